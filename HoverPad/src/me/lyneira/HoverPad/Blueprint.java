@@ -9,12 +9,14 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import me.lyneira.MachinaCore.AnchoredBlueprint;
 import me.lyneira.MachinaCore.BlockData;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
 import me.lyneira.MachinaCore.BlockVector;
 import me.lyneira.MachinaCore.BlueprintFactory;
 import me.lyneira.MachinaCore.Machina;
+import me.lyneira.MachinaCore.MachinaCore;
 import me.lyneira.MachinaCore.MovableBlueprint;
 
 /**
@@ -23,7 +25,7 @@ import me.lyneira.MachinaCore.MovableBlueprint;
  * @author Lyneira
  * @author Nividica
  */
-class Blueprint extends MovableBlueprint {
+class Blueprint extends MovableBlueprint implements AnchoredBlueprint {
     final static Material anchorOFF = Material.REDSTONE_LAMP_OFF;
     final static Material anchorON = Material.REDSTONE_LAMP_ON;
     private static Material baseMaterial = Material.WOOD;
@@ -37,6 +39,16 @@ class Blueprint extends MovableBlueprint {
         this.mainModule = mainModule;
     }
 
+    @Override
+    public int[] getAnchorTypeIds() {
+        return new int[] { anchorOFF.getId() };
+    }
+
+    @Override
+    public BlockFace[] getLeverFaces() {
+        return new BlockFace[] { BlockFace.UP };
+    }
+
     @Override
     public Machina detect(Player player, BlockLocation anchor, BlockFace leverFace, ItemStack itemInHand) {
         // Search for a lever above the anchor
@@ -65,6 +77,7 @@ class Blueprint extends MovableBlueprint {
         if (!player.hasPermission("hoverpad")) {
             // Player does not have permission
             player.sendMessage("You do not have permission to activate a hoverpad.");
+            MachinaCore.rejectDetection();
             return null;
         }
 
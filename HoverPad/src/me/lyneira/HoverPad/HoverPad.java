@@ -12,6 +12,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.material.Lever;
 
+import me.lyneira.MachinaCore.BlockAccess;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
 import me.lyneira.MachinaCore.HeartBeatEvent;
@@ -176,6 +177,7 @@ class HoverPad extends Movable {
 
             // Update the state
             leverBlockState.update();
+            BlockAccess.invalidate();
 
         }
 
@@ -5,14 +5,14 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import me.lyneira.MachinaCore.AnchoredBlueprint;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
 import me.lyneira.MachinaCore.BlockVector;
 import me.lyneira.MachinaCore.BlueprintBlock;
 import me.lyneira.MachinaCore.Machina;
-import me.lyneira.MachinaCore.MachinaBlueprint;
 
-public class Blueprint implements MachinaBlueprint {
+public class Blueprint implements AnchoredBlueprint {
 
     final static BlueprintBlock sign;
 
@@ -23,6 +23,16 @@ public class Blueprint implements MachinaBlueprint {
             sign = new BlueprintBlock(new BlockVector(-1, 1, 0), Material.WALL_SIGN, false), //
     };
 
+    @Override
+    public int[] getAnchorTypeIds() {
+        return new int[] { Material.SMOOTH_BRICK.getId() };
+    }
+
+    @Override
+    public BlockFace[] getLeverFaces() {
+        return new BlockFace[] { BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST };
+    }
+
     @Override
     public Machina detect(Player player, BlockLocation anchor, BlockFace leverFace, ItemStack itemInHand) {
         final BlockRotation yaw;
@@ -0,0 +1,80 @@
+package me.lyneira.Fabricator;
+
+import java.util.concurrent.TimeUnit;
+
+import me.lyneira.MachinaCore.BenchServer;
+import me.lyneira.MachinaFactory.ComponentActivateException;
+import me.lyneira.MachinaHeadless.HeadlessServer;
+import me.lyneira.MachinaHeadless.HeadlessWorld;
+
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.inventory.ShapelessRecipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link RecipeVerifier#find(java.util.Iterator)} walking the full
+ * recipe list of the server, with the recipe laid out in the chest at the very
+ * end of the list.
+ * <p>
+ * A headless server has no recipes of its own, so the list is made up of a
+ * shaped 3x3, a shaped 2x2 and a shapeless recipe for each of the first 80
+ * block materials. That is about as many recipes as a vanilla server has, with
+ * a similar mix of shapes.
+ * 
+ * @author Lyneira
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecipeVerifierBenchmark {
+    private static final int materials = 80;
+
+    private Server server;
+    private RecipeVerifier verifier;
+
+    @Setup
+    public void setUp() throws ComponentActivateException {
+        BenchServer bench = new BenchServer();
+        HeadlessServer headless = bench.getServer();
+        server = headless.getServer();
+
+        int count = 0;
+        for (Material material : Material.values()) {
+            if (count == materials)
+                break;
+            if (!material.isBlock() || material == Material.AIR || material == Material.WOOD)
+                continue;
+            ItemStack result = new ItemStack(material, 1);
+            headless.addRecipe(new ShapedRecipe(result).shape("###", "# #", "###").setIngredient('#', material));
+            headless.addRecipe(new ShapedRecipe(result).shape("##", "##").setIngredient('#', material));
+            headless.addRecipe(new ShapelessRecipe(result).addIngredient(2, material));
+            count++;
+        }
+        headless.addRecipe(new ShapedRecipe(new ItemStack(Material.WORKBENCH, 1)).shape("##", "##").setIngredient('#', Material.WOOD));
+
+        HeadlessWorld world = bench.getWorld();
+        world.setTypeIdAndData(0, BenchServer.y, 0, Material.CHEST.getId(), (byte) 0);
+        Inventory inventory = world.getInventory(0, BenchServer.y, 0);
+        for (int slot : new int[] { 0, 1, 9, 10 }) {
+            inventory.setItem(slot, new ItemStack(Material.WOOD, 1));
+        }
+        verifier = new RecipeVerifier(inventory);
+        if (verifier.find(server.recipeIterator()) == null)
+            throw new IllegalStateException("Benchmark recipe was not found");
+    }
+
+    @Benchmark
+    public Object find() {
+        return verifier.find(server.recipeIterator());
+    }
+}
@@ -0,0 +1,46 @@
+package me.lyneira.MachinaCore;
+
+import me.lyneira.MachinaHeadless.HeadlessServer;
+import me.lyneira.MachinaHeadless.HeadlessWorld;
+
+/**
+ * Sets up the {@link HeadlessServer} the JMH benchmarks run against, and hooks
+ * MachinaCore up to its plugin manager so the {@link EventSimulator} works
+ * without a running server.
+ * 
+ * @author Lyneira
+ */
+public final class BenchServer {
+    /**
+     * Height at which the benchmark fixtures are built.
+     */
+    public static final int y = 64;
+
+    private final HeadlessServer server = new HeadlessServer();
+    private final HeadlessWorld world = server.createWorld("bench");
+
+    public BenchServer() {
+        MachinaCore.pluginManager = server.getPluginManager();
+    }
+
+    /**
+     * @return The headless server.
+     */
+    public final HeadlessServer getServer() {
+        return server;
+    }
+
+    /**
+     * @return The world the fixtures are built in.
+     */
+    public final HeadlessWorld getWorld() {
+        return world;
+    }
+
+    /**
+     * Returns the location of the given block in the benchmark world.
+     */
+    public final BlockLocation location(final int x, final int y, final int z) {
+        return new BlockLocation(world, x, y, z);
+    }
+}
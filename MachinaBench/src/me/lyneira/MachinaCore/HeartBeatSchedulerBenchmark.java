@@ -0,0 +1,200 @@
+package me.lyneira.MachinaCore;
+
+import java.util.PriorityQueue;
+
+/**
+ * Compares the cost of driving a large number of machina heartbeats through
+ * the {@link HeartBeatScheduler} timing wheel against the old path, where every
+ * heartbeat schedules a new one-shot task on the Bukkit scheduler.
+ * <p>
+ * The Bukkit path is modelled after the CraftBukkit scheduler: every delayed
+ * task is a freshly allocated object that goes through a priority queue
+ * ordered by the tick it is due.
+ * <p>
+ * Finally it shows the effect of phase spreading on runners that all have the
+ * same period and are activated on the same tick, like the components of a
+ * factory started by a single lever.
+ * 
+ * @author Lyneira
+ */
+public final class HeartBeatSchedulerBenchmark {
+    private static final int runners = 10000;
+    private static final int ticks = 20 * 60 * 5;
+    private static final int rounds = 5;
+    private static final int[] delays = { 1, 2, 4, 5, 10, 20, 40 };
+
+    private static long heartBeats;
+
+    public static void main(String[] args) {
+        System.out.println("Simulating " + runners + " runners for " + ticks + " ticks per round.");
+        for (int round = 1; round <= rounds; round++) {
+            report("wheel ", round, timingWheel());
+            report("bukkit", round, priorityQueue());
+        }
+        phaseSpreading(false);
+        phaseSpreading(true);
+    }
+
+    private static void report(String name, int round, long nanos) {
+        System.out.println(String.format("round %d %s: %8.2f ms total, %6.1f ns per heartbeat", round, name, nanos / 1e6, (double) nanos
+                / heartBeats));
+    }
+
+    private static int delay(int id, int beat) {
+        return delays[(id + beat) % delays.length];
+    }
+
+    /*
+     * Timing wheel path
+     */
+
+    private static long timingWheel() {
+        final HeartBeatScheduler scheduler = new HeartBeatScheduler();
+        for (int i = 0; i < runners; i++) {
+            scheduler.schedule(new WheelRunner(scheduler, i), 1);
+        }
+        heartBeats = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            scheduler.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static final class WheelRunner extends HeartBeatScheduler.Task {
+        private final HeartBeatScheduler scheduler;
+        private final int id;
+        private int beat = 0;
+
+        WheelRunner(HeartBeatScheduler scheduler, int id) {
+            this.scheduler = scheduler;
+            this.id = id;
+        }
+
+        public void run() {
+            heartBeats++;
+            scheduler.schedule(this, delay(id, beat++));
+        }
+    }
+
+    /*
+     * Phase spreading
+     */
+
+    private static void phaseSpreading(boolean spread) {
+        final HeartBeatScheduler scheduler = new HeartBeatScheduler();
+        for (int i = 0; i < runners; i++) {
+            scheduler.schedule(new PeriodicRunner(scheduler, spread), 1);
+        }
+        // Let the runners settle into their phase before measuring.
+        for (int i = 0; i < 100; i++) {
+            scheduler.run();
+        }
+        long[] before = scheduler.histogram();
+        int max = 0;
+        heartBeats = 0;
+        for (int i = 0; i < ticks; i++) {
+            long last = heartBeats;
+            scheduler.run();
+            max = Math.max(max, (int) (heartBeats - last));
+        }
+        long[] after = scheduler.histogram();
+        StringBuilder histogram = new StringBuilder();
+        for (int i = 0; i < after.length; i++) {
+            long count = after[i] - before[i];
+            if (count > 0)
+                histogram.append(" [").append(i == 0 ? 0 : 1 << (i - 1)).append("..").append((1 << i) - 1).append("]: ").append(count);
+        }
+        System.out.println(String.format("phase spreading %-3s: %d heartbeats, max %d per tick, ticks per bucket%s", spread ? "on" : "off", heartBeats,
+                max, histogram));
+    }
+
+    private static final class PeriodicRunner extends HeartBeatScheduler.Task {
+        private static final int period = 20;
+        private final HeartBeatScheduler scheduler;
+        private final boolean spread;
+        private boolean settled = false;
+
+        PeriodicRunner(HeartBeatScheduler scheduler, boolean spread) {
+            this.scheduler = scheduler;
+            this.spread = spread;
+        }
+
+        public void run() {
+            heartBeats++;
+            if (spread && !settled)
+                scheduler.scheduleSpread(this, period);
+            else
+                scheduler.schedule(this, period);
+            settled = true;
+        }
+    }
+
+    /*
+     * Bukkit scheduler path
+     */
+
+    private static long priorityQueue() {
+        final QueueScheduler scheduler = new QueueScheduler();
+        for (int i = 0; i < runners; i++) {
+            scheduler.scheduleSyncDelayedTask(new QueueRunner(scheduler, i), 1);
+        }
+        heartBeats = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            scheduler.mainThreadHeartbeat();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static final class QueueRunner implements Runnable {
+        private final QueueScheduler scheduler;
+        private final int id;
+        private int beat = 0;
+
+        QueueRunner(QueueScheduler scheduler, int id) {
+            this.scheduler = scheduler;
+            this.id = id;
+        }
+
+        public void run() {
+            heartBeats++;
+            scheduler.scheduleSyncDelayedTask(this, delay(id, beat++));
+        }
+    }
+
+    private static final class QueueScheduler {
+        private final PriorityQueue<QueuedTask> pending = new PriorityQueue<QueuedTask>();
+        private long currentTick = 0;
+        private int nextId = 1;
+
+        void scheduleSyncDelayedTask(Runnable task, long delay) {
+            pending.add(new QueuedTask(task, nextId++, currentTick + delay));
+        }
+
+        void mainThreadHeartbeat() {
+            currentTick++;
+            while (!pending.isEmpty() && pending.peek().nextRun <= currentTick) {
+                pending.remove().task.run();
+            }
+        }
+    }
+
+    private static final class QueuedTask implements Comparable<QueuedTask> {
+        final Runnable task;
+        final int id;
+        final long nextRun;
+
+        QueuedTask(Runnable task, int id, long nextRun) {
+            this.task = task;
+            this.id = id;
+            this.nextRun = nextRun;
+        }
+
+        public int compareTo(QueuedTask other) {
+            if (nextRun != other.nextRun)
+                return nextRun < other.nextRun ? -1 : 1;
+            return id < other.id ? -1 : (id == other.id ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package me.lyneira.MachinaCore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import me.lyneira.MachinaHeadless.HeadlessWorld;
+
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the blueprint code that runs for every moving machina: verifying the
+ * blueprint against the world, detecting the non-key blocks on activation and
+ * computing the difference for a move.
+ * <p>
+ * The fixture is a drill-sized machina of 32 blocks in two modules, built in
+ * the world facing the {@link BlockRotation} of the run.
+ * <p>
+ * Run with the gc profiler to compare the allocation of {@link #verify()},
+ * which probes the world with a {@link BlockCursor}, against
+ * {@link #verifyRelative()}, which creates a {@link BlockLocation} per block.
+ * {@link #moveForwardAndBack(PhysicsCounter)} shows what a move allocates
+ * besides the Bukkit objects of the world itself. It also reports the block
+ * changes it makes with physics as physicsUpdates. Dividing that rate by the
+ * score gives the number of changes with physics per call, each of which
+ * updates the neighbours of a block on a server.
+ * 
+ * @author Lyneira
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MovableBenchmark {
+    private static final int mainModule;
+    private static final int headModule;
+    private static final FixtureBlueprint fixtureBlueprint;
+    private static final List<Integer> modules = new ArrayList<Integer>(2);
+
+    static {
+        BlueprintFactory factory = new BlueprintFactory(2);
+        mainModule = factory.newModule();
+        headModule = factory.newModule();
+        factory.addKey(new BlockVector(0, 0, 0), Material.GOLD_BLOCK, mainModule);
+        factory.addKey(new BlockVector(0, 1, 0), Material.LEVER, mainModule);
+        factory.add(new BlockVector(-1, 0, 0), Material.CHEST, mainModule);
+        factory.add(new BlockVector(-1, -1, 0), Material.FURNACE, mainModule);
+        for (int x = -3; x <= -1; x++) {
+            for (int y = -1; y <= 1; y++) {
+                for (int z = -1; z <= 1; z++) {
+                    if (x == -1 && z == 0 && y <= 0)
+                        continue;
+                    factory.add(new BlockVector(x, y, z), Material.WOOD, mainModule);
+                }
+            }
+        }
+        factory.add(new BlockVector(1, -1, 0), Material.IRON_BLOCK, headModule);
+        factory.add(new BlockVector(1, 0, 0), Material.DIAMOND_BLOCK, headModule);
+        factory.add(new BlockVector(1, 1, 0), Material.IRON_BLOCK, headModule);
+        fixtureBlueprint = new FixtureBlueprint(factory);
+        modules.add(mainModule);
+        modules.add(headModule);
+    }
+
+    private static final class FixtureBlueprint extends MovableBlueprint {
+        FixtureBlueprint(BlueprintFactory factory) {
+            super(factory);
+        }
+
+        @Override
+        public Machina detect(Player player, BlockLocation anchor, BlockFace leverFace, ItemStack itemInHand) {
+            return null;
+        }
+    }
+
+    private static final class FixtureMachina extends Movable {
+        FixtureMachina(BlockRotation yaw) {
+            super(fixtureBlueprint, modules, yaw, null);
+        }
+
+        @Override
+        public HeartBeatEvent heartBeat(BlockLocation anchor) {
+            return null;
+        }
+
+        @Override
+        public boolean onLever(BlockLocation anchor, Player player, ItemStack itemInHand) {
+            return false;
+        }
+
+        @Override
+        public void onDeActivate(BlockLocation anchor) {
+        }
+    }
+
+    /**
+     * Counts the block changes with physics made by a benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class PhysicsCounter {
+        public long physicsUpdates;
+    }
+
+    @Param({ "ROTATE_0", "ROTATE_90", "ROTATE_180", "ROTATE_270" })
+    public BlockRotation yaw;
+
+    private HeadlessWorld world;
+    private BlockLocation anchor;
+    private FixtureMachina machina;
+    private BlueprintBlock[] unifiedBlueprint;
+    private BlockVector[] unifiedVectors;
+
+    @Setup
+    public void setUp() {
+        BenchServer server = new BenchServer();
+        world = server.getWorld();
+        anchor = server.location(0, BenchServer.y, 0);
+        for (BlueprintBlock block : fixtureBlueprint.unifyBlueprint(modules)) {
+            anchor.getRelative(block.vector(yaw)).setTypeId(block.typeId);
+        }
+        machina = new FixtureMachina(yaw);
+        unifiedBlueprint = fixtureBlueprint.unifyBlueprint(modules);
+        unifiedVectors = new BlockVector[unifiedBlueprint.length];
+        fixtureBlueprint.unifyVectors(modules, yaw, unifiedVectors);
+        if (!machina.verify(anchor) || !fixtureBlueprint.detectOther(anchor, yaw, mainModule))
+            throw new IllegalStateException("Benchmark fixture was not built correctly for " + yaw);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return machina.verify(anchor);
+    }
+
+    @Benchmark
+    public boolean verifyRelative() {
+        for (int i = 0; i < unifiedVectors.length; i++) {
+            if (anchor.getRelative(unifiedVectors[i]).getTypeId() != unifiedBlueprint[i].typeId)
+                return false;
+        }
+        return true;
+    }
+
+    @Benchmark
+    public boolean detectOther() {
+        return fixtureBlueprint.detectOther(anchor, yaw, mainModule) && fixtureBlueprint.detectOther(anchor, yaw, headModule);
+    }
+
+    /**
+     * Moves the fixture one block forward and back again, copying the data
+     * and inventories of its blocks both times.
+     */
+    @Benchmark
+    public BlockLocation moveForwardAndBack(PhysicsCounter counter) {
+        final long physicsUpdates = world.getPhysicsUpdates();
+        BlockFace face = yaw.getYawFace();
+        BlockLocation result = machina.moveByFace(machina.moveByFace(anchor, face), face.getOppositeFace());
+        counter.physicsUpdates += world.getPhysicsUpdates() - physicsUpdates;
+        return result;
+    }
+
+    @Benchmark
+    public Object differenceForward() {
+        return new BlueprintDifference(unifiedBlueprint, unifiedVectors, unifiedBlueprint.length, yaw.getYawFace());
+    }
+
+    @Benchmark
+    public Object differenceUp() {
+        return new BlueprintDifference(unifiedBlueprint, unifiedVectors, unifiedBlueprint.length, BlockFace.UP);
+    }
+}
@@ -0,0 +1,57 @@
+package me.lyneira.MachinaFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import me.lyneira.MachinaCore.BenchServer;
+import me.lyneira.MachinaCore.BlockLocation;
+import me.lyneira.MachinaHeadless.HeadlessWorld;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the route search of a {@link Pipeline} through a network close to
+ * the maximum search size: a 17 by 17 plane of pipeline blocks with the only
+ * chest next to the corner opposite the source, so nearly every node is
+ * visited before the endpoint is found.
+ * 
+ * @author Lyneira
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PipelineBenchmark {
+    private static final int side = 17;
+
+    private BlockLocation anchor;
+    private Pipeline pipeline;
+
+    @Setup
+    public void setUp() {
+        BenchServer server = new BenchServer();
+        HeadlessWorld world = server.getWorld();
+        world.fill(0, BenchServer.y, 0, side - 1, BenchServer.y, side - 1, ComponentBlueprint.pipelineMaterial.getId(), (byte) 0);
+        world.setTypeIdAndData(side, BenchServer.y, side - 1, Material.CHEST.getId(), (byte) 0);
+        anchor = server.location(-1, BenchServer.y, 0);
+        pipeline = new Pipeline(server.location(0, BenchServer.y, 0));
+        pipeline.findRoute(anchor, null);
+        try {
+            pipeline.sendPacket(new ItemStack(Material.COBBLESTONE, 1));
+        } catch (Exception e) {
+            throw new IllegalStateException("Benchmark pipeline did not find its endpoint", e);
+        }
+    }
+
+    @Benchmark
+    public Pipeline findRoute() {
+        pipeline.findRoute(anchor, null);
+        return pipeline;
+    }
+}
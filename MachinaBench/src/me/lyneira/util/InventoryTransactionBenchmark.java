@@ -0,0 +1,77 @@
+package me.lyneira.util;
+
+import java.util.concurrent.TimeUnit;
+
+import me.lyneira.MachinaCore.BenchServer;
+import me.lyneira.MachinaHeadless.HeadlessWorld;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link InventoryTransaction} on full chests, which is the common
+ * case for a drill or pump that has been running for a while and the worst
+ * case for the transaction, since every slot is looked at.
+ * 
+ * @author Lyneira
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InventoryTransactionBenchmark {
+    private Inventory full;
+    private Inventory fullOfOther;
+
+    @Setup
+    public void setUp() {
+        HeadlessWorld world = new BenchServer().getWorld();
+        world.setTypeIdAndData(0, BenchServer.y, 0, Material.CHEST.getId(), (byte) 0);
+        world.setTypeIdAndData(2, BenchServer.y, 0, Material.CHEST.getId(), (byte) 0);
+        world.getHeadlessInventory(0, BenchServer.y, 0).fill(Material.COBBLESTONE.getId(), (short) 0);
+        world.getHeadlessInventory(2, BenchServer.y, 0).fill(Material.DIRT.getId(), (short) 0);
+        full = world.getInventory(0, BenchServer.y, 0);
+        fullOfOther = world.getInventory(2, BenchServer.y, 0);
+    }
+
+    /**
+     * A drill adding a block of the same type to a full chest. The transaction
+     * fails.
+     */
+    @Benchmark
+    public boolean verifyAddSame() {
+        InventoryTransaction transaction = new InventoryTransaction(full);
+        transaction.add(new ItemStack(Material.COBBLESTONE, 1));
+        return transaction.verify();
+    }
+
+    /**
+     * A drill adding a block of a different type to a full chest. The
+     * transaction fails.
+     */
+    @Benchmark
+    public boolean verifyAddOther() {
+        InventoryTransaction transaction = new InventoryTransaction(fullOfOther);
+        transaction.add(new ItemStack(Material.COBBLESTONE, 1));
+        return transaction.verify();
+    }
+
+    /**
+     * Takes a full stack out of a full chest and puts it back in a single
+     * transaction, leaving the chest as it was.
+     */
+    @Benchmark
+    public boolean executeRemoveAdd() {
+        InventoryTransaction transaction = new InventoryTransaction(full);
+        transaction.remove(new ItemStack(Material.COBBLESTONE, 64));
+        transaction.add(new ItemStack(Material.COBBLESTONE, 64));
+        return transaction.execute();
+    }
+}
@@ -41,6 +41,19 @@ public abstract class BlockDropperBuilder extends Builder {
             heads.add(blueprint.basicHeadRight);
     }
 
+    /**
+     * The builder has nothing to drop if the block under each of its heads is
+     * already filled.
+     */
+    @Override
+    protected boolean isIdle(final BlockLocation anchor) {
+        for (BlueprintBlock i : heads) {
+            if (validBuildLocation(anchor.getRelative(i.vector(yaw)).getRelative(BlockFace.DOWN)))
+                return false;
+        }
+        return true;
+    }
+
     /**
      * In this stage, the builder places solid blocks into buildable locations
      * below its heads, up to the maximum depth.
@@ -73,7 +86,7 @@ public abstract class BlockDropperBuilder extends Builder {
                     continue;
 
                 manager.decrement();
-                target.getBlock().setTypeIdAndData(typeId, data, true);
+                target.setTypeIdAndData(typeId, data, true);
             }
             if (depth == 1) {
                 return moveState;
@@ -1,5 +1,7 @@
 package me.lyneira.MachinaBuilder;
 
+import java.io.DataInput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,6 +10,7 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import me.lyneira.MachinaCore.AnchoredBlueprint;
 import me.lyneira.MachinaCore.BlockData;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
@@ -16,7 +19,9 @@ import me.lyneira.MachinaCore.BlueprintBlock;
 import me.lyneira.MachinaCore.BlueprintFactory;
 import me.lyneira.MachinaCore.EventSimulator;
 import me.lyneira.MachinaCore.Machina;
+import me.lyneira.MachinaCore.MachinaCore;
 import me.lyneira.MachinaCore.MovableBlueprint;
+import me.lyneira.MachinaCore.PersistentBlueprint;
 
 /**
  * MachinaBlueprint representing a Builder blueprint
@@ -162,11 +167,21 @@ public class Blueprint {
         this.blueprint = new BuilderBlueprint(blueprint);
     }
 
-    public class BuilderBlueprint extends MovableBlueprint {
+    public class BuilderBlueprint extends MovableBlueprint implements PersistentBlueprint, AnchoredBlueprint {
         protected BuilderBlueprint(BlueprintFactory blueprint) {
             super(blueprint);
         }
 
+        @Override
+        public int[] getAnchorTypeIds() {
+            return new int[] { baseMaterial.getId() };
+        }
+
+        @Override
+        public BlockFace[] getLeverFaces() {
+            return new BlockFace[] { BlockFace.UP };
+        }
+
         /**
          * Detects whether a builder is present at the given BlockLocation. Key
          * blocks defined above must be detected manually.
@@ -191,15 +206,19 @@ public class Blueprint {
 
                 if (!player.hasPermission("machinabuilder.activate")) {
                     player.sendMessage("You do not have permission to activate a builder.");
+                    MachinaCore.rejectDetection();
                     return null;
                 }
                 if (!Builder.canActivate(player)) {
                     player.sendMessage("You cannot activate any more builders.");
+                    MachinaCore.rejectDetection();
                     return null;
                 }
 
-                if (detector.inventoryProtected())
+                if (detector.inventoryProtected()) {
+                    MachinaCore.rejectDetection();
                     return null;
+                }
 
                 detector.detectOptionalModules();
 
@@ -218,6 +237,13 @@ public class Blueprint {
             return null;
         }
 
+        /**
+         * Restores a saved builder.
+         */
+        public Machina restore(BlockLocation anchor, DataInput in) throws IOException {
+            return Builder.restore(Blueprint.this, anchor, in);
+        }
+
         /**
          * Searches for a furnace around the anchor.
          * @param player
@@ -1,5 +1,10 @@
 package me.lyneira.MachinaBuilder;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import me.lyneira.MachinaCore.BlockLocation;
@@ -26,6 +31,7 @@ public class BridgeBuilder extends Builder {
     private final State retractState = new Retract();
     private final State buildState = new Build();
     private final MovableHead head;
+    private final List<Integer> headModules;
     private final int width;
     private final int height;
     private int offset;
@@ -36,6 +42,7 @@ public class BridgeBuilder extends Builder {
         super(blueprint, modules, yaw, player, anchor, blueprint.bridgeFurnace, blueprint.bridgeCentralBase, blueprint.bridgeHeadPrimary, blueprint.bridgeSupplyChest);
         width = heads.size();
         this.offset = offset;
+        this.headModules = headModules;
         head = new MovableHead(blueprint.blueprint, headModules, yaw, player, heads);
 
         // Set up the build pattern.
@@ -91,6 +98,49 @@ public class BridgeBuilder extends Builder {
         return super.verify(anchor);
     }
 
+    @Override
+    public void getFootprint(BlockLocation anchor, Collection<BlockLocation> footprint) {
+        head.getFootprint(anchor.getRelative(BlockFace.DOWN, offset), footprint);
+        super.getFootprint(anchor, footprint);
+    }
+
+    /**
+     * Saves the head modules and the current head offset in addition to the
+     * builder state.
+     */
+    @Override
+    public void save(final DataOutput out) throws IOException {
+        super.save(out);
+        out.writeByte(offset);
+        out.writeByte(headModules.size());
+        for (int i : headModules) {
+            out.writeShort(i);
+        }
+    }
+
+    /**
+     * Restores a bridge builder saved by {@link #save(DataOutput)}, after the
+     * state common to all builders has been read.
+     */
+    static BridgeBuilder restore(final Blueprint blueprint, final SavedState state, final BlockLocation anchor, final DataInput in) throws IOException {
+        final int offset = in.readByte();
+        final int headCount = in.readByte();
+        final List<Integer> headModules = new ArrayList<Integer>(headCount);
+        for (int i = 0; i < headCount; i++) {
+            headModules.add((int) in.readShort());
+        }
+
+        // Heads are ordered from left to right.
+        final List<BlueprintBlock> heads = new ArrayList<BlueprintBlock>(3);
+        if (headModules.contains(blueprint.moduleBridgeHeadLeft))
+            heads.add(blueprint.bridgeHeadLeft);
+        heads.add(blueprint.bridgeHeadPrimary);
+        if (headModules.contains(blueprint.moduleBridgeHeadRight))
+            heads.add(blueprint.bridgeHeadRight);
+
+        return new BridgeBuilder(blueprint, state.modules, state.yaw, state.player, anchor, headModules, heads, offset);
+    }
+
     @Override
     protected void setContainers(BlockLocation anchor) {
         setChest(anchor, blueprint.bridgeSupplyChest);
@@ -126,6 +176,7 @@ public class BridgeBuilder extends Builder {
 
         head.moveByFace(anchor, face);
         offset += direction;
+        blocksChanged(anchor);
 
         return true;
     }
@@ -265,7 +316,7 @@ public class BridgeBuilder extends Builder {
 
                 if (canPlace(target, typeId, data, target.getRelative(BlockFace.UP))) {
                     manager.decrement();
-                    target.getBlock().setTypeIdAndData(typeId, data, true);
+                    target.setTypeIdAndData(typeId, data, true);
                     placed++;
                 }
             }
@@ -1,5 +1,8 @@
 package me.lyneira.MachinaBuilder;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,6 +14,8 @@ import me.lyneira.MachinaCore.BlueprintBlock;
 import me.lyneira.MachinaCore.Fuel;
 import me.lyneira.MachinaCore.HeartBeatEvent;
 import me.lyneira.MachinaCore.Movable;
+import me.lyneira.MachinaCore.PersistentBlueprint;
+import me.lyneira.MachinaCore.PersistentMachina;
 import me.lyneira.util.InventoryManager;
 
 import org.bukkit.Material;
@@ -29,12 +34,18 @@ import com.google.common.base.Predicate;
  * 
  * @author Lyneira
  */
-public abstract class Builder extends Movable {
+public abstract class Builder extends Movable implements PersistentMachina {
     /**
      * The number of server ticks to wait for a move action.
      */
     private static int moveDelay = 20;
 
+    /**
+     * The maximum number of blocks the builder moves in one go when it has
+     * nothing to build along the way.
+     */
+    private static int moveSteps = 4;
+
     /**
      * The number of server ticks to wait for a build action.
      */
@@ -151,6 +162,18 @@ public abstract class Builder extends Movable {
         }
     }
 
+    /**
+     * Tells MachinaCore after this heartbeat that blocks of the builder have
+     * changed even though it did not move.
+     * 
+     * @param anchor
+     *            The anchor of the builder
+     */
+    protected final void blocksChanged(final BlockLocation anchor) {
+        if (newAnchor == null)
+            newAnchor = anchor;
+    }
+
     /**
      * Rotates the builder to the new direction, if this would not cause a
      * collision.
@@ -245,6 +268,19 @@ public abstract class Builder extends Movable {
             active.put(player, newActive - 1);
     }
 
+    public PersistentBlueprint getBlueprint() {
+        return blueprint.blueprint;
+    }
+
+    /**
+     * Saves the yaw, modules, player and stored energy of the builder.
+     */
+    @Override
+    public void save(final DataOutput out) throws IOException {
+        super.save(out);
+        out.writeInt(currentEnergy);
+    }
+
     /**
      * Sets the builder's furnace to the given state and set correct direction.
      * 
@@ -258,15 +294,28 @@ public abstract class Builder extends Movable {
         Fuel.setFurnace(furnaceBlock, yaw.getOpposite(), burning);
     }
 
+    /**
+     * Returns true if the builder would have nothing to do at the given
+     * anchor, so that a move can carry on past it. Builders that do not
+     * override this move one block at a time.
+     * 
+     * @param anchor
+     *            The anchor to check
+     * @return True if the builder can pass the anchor without stopping
+     */
+    protected boolean isIdle(final BlockLocation anchor) {
+        return false;
+    }
+
     /**
      * Sets a chest facing backwards.
      * 
      * @param anchor
      */
     protected void setChest(final BlockLocation anchor, final BlueprintBlock chest) {
-        Block chestBlock = anchor.getRelative(chest.vector(yaw)).getBlock();
-        if (chestBlock.getType() == Material.CHEST)
-            chestBlock.setData(yaw.getOpposite().getYawData());
+        BlockLocation chestLocation = anchor.getRelative(chest.vector(yaw));
+        if (chestLocation.checkType(Material.CHEST))
+            chestLocation.setData(yaw.getOpposite().getYawData());
     }
 
     /**
@@ -327,29 +376,49 @@ public abstract class Builder extends Movable {
             // Check for ground at the new base
             BlockFace face = yaw.getYawFace();
             BlockLocation movedAnchor = anchor.getRelative(face);
-            BlockLocation ground = movedAnchor.getRelative(centralBase.vector(yaw).add(BlockFace.DOWN));
-            if (!BlockData.isSolid(ground.getTypeId())) {
+            if (!hasGround(movedAnchor)) {
                 return null;
             }
 
-            if (detectCollision(anchor, face)) {
-                return null;
+            // Count how far the builder can go before it has work to do.
+            int steps = 1;
+            if (signRotation == null) {
+                while (steps < moveSteps && isIdle(movedAnchor) && readRotationSign(movedAnchor) == null) {
+                    BlockLocation further = movedAnchor.getRelative(face);
+                    if (!hasGround(further))
+                        break;
+                    movedAnchor = further;
+                    steps++;
+                }
             }
 
-            // Simulate a block place event to give protection plugins a chance
-            // to stop the move
-            if (!canMove(movedAnchor, primaryHead)) {
+            steps = detectCollisionSwept(anchor, face, steps);
+            if (steps == 0) {
                 return null;
             }
 
-            // Use energy
-            if (!useEnergy(anchor, moveDelay)) {
+            // Simulate block place events for every position the head passes
+            // to give protection plugins a chance to stop the move, going
+            // only up to the first one they deny.
+            steps = canMoveSwept(anchor, face, steps, primaryHead);
+            if (steps == 0) {
                 return null;
             }
 
-            moveByFace(anchor, face);
+            // Use energy, going less far if the fuel runs out.
+            while (!useEnergy(anchor, moveDelay * steps)) {
+                if (--steps == 0) {
+                    return null;
+                }
+            }
+            movedAnchor = anchor.getRelative(face, steps);
+
+            moveBy(anchor, face, steps);
 
-            buildRail(movedAnchor);
+            // Lay rails behind every block passed, in order.
+            for (int i = steps - 1; i >= 0; i--) {
+                buildRail(movedAnchor.getRelative(face, -i));
+            }
 
             newAnchor = movedAnchor;
             if (signRotation != null) {
@@ -359,6 +428,15 @@ public abstract class Builder extends Movable {
             return startingState;
         }
 
+        /**
+         * Returns true if the builder would have ground to stand on at the
+         * given anchor.
+         */
+        private boolean hasGround(BlockLocation anchor) {
+            BlockLocation ground = anchor.getRelative(centralBase.vector(yaw).add(BlockFace.DOWN));
+            return BlockData.isSolid(ground.getTypeId());
+        }
+
         protected void buildRail(BlockLocation anchor) {
             BlockLocation target = anchor.getRelative(furnace.vector(yaw).add(yaw.getOpposite().getYawFace()));
             BlockLocation ground = target.getRelative(BlockFace.DOWN);
@@ -420,6 +498,43 @@ public abstract class Builder extends Movable {
     }
 
     // **** Static stuff ****
+    /**
+     * Restores a builder saved by {@link #save(DataOutput)}.
+     * 
+     * @param blueprint
+     *            The builder blueprint
+     * @param anchor
+     *            The anchor of the builder
+     * @param in
+     *            The saved state
+     * @return The restored builder, or null if it could not be restored.
+     * @throws IOException
+     */
+    static Builder restore(final Blueprint blueprint, final BlockLocation anchor, final DataInput in) throws IOException {
+        final SavedState state = loadState(in);
+        final int energy = in.readInt();
+        if (state.player == null || !canActivate(state.player))
+            return null;
+
+        final Builder builder;
+        if (state.modules.contains(blueprint.moduleBasicBackend))
+            builder = new BasicBuilder(blueprint, state.modules, state.yaw, state.player, anchor);
+        else if (state.modules.contains(blueprint.moduleBasicBackendRoad))
+            builder = new RoadBuilder(blueprint, state.modules, state.yaw, state.player, anchor);
+        else if (state.modules.contains(blueprint.moduleBridgeMain))
+            builder = BridgeBuilder.restore(blueprint, state, anchor, in);
+        else
+            return null;
+
+        if (!builder.verify(anchor)) {
+            builder.setFurnace(anchor, false);
+            return null;
+        }
+        builder.currentEnergy = energy;
+        builder.increment();
+        return builder;
+    }
+
     /**
      * Returns true if the current limit allows activating another builder for
      * this player.
@@ -486,6 +601,7 @@ public abstract class Builder extends Movable {
      */
     static void loadConfiguration(ConfigurationSection configuration) {
         moveDelay = Math.max(configuration.getInt("move-delay", moveDelay), 1);
+        moveSteps = Math.max(configuration.getInt("move-steps", moveSteps), 1);
         buildDelay = Math.max(configuration.getInt("build-delay", buildDelay), 1);
         BlockDropperBuilder.maxDepth = Math.min(Math.max(configuration.getInt("max-depth", BlockDropperBuilder.maxDepth), 1), 256);
         useEnergy = configuration.getBoolean("use-energy", useEnergy);
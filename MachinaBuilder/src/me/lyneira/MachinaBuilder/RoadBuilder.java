@@ -45,6 +45,37 @@ public class RoadBuilder extends BlockDropperBuilder {
         setChest(anchor, blueprint.basicChestRoad);
     }
 
+    /**
+     * The builder has no road to lay if none of the blocks under its heads
+     * would be replaced.
+     */
+    @Override
+    protected boolean isIdle(final BlockLocation anchor) {
+        if (!super.isIdle(anchor))
+            return false;
+
+        Block inputBlock = anchor.getRelative(blueprint.basicChest.vector(yaw)).getBlock();
+        InventoryManager manager = new InventoryManager(InventoryManager.getSafeInventory(inputBlock));
+        if (!manager.find(isBuildingBlock))
+            return true;
+
+        for (BlueprintBlock i : heads) {
+            if (isRoadTarget(anchor.getRelative(i.vector(yaw)).getRelative(BlockFace.DOWN).getTypeId(), manager))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if a block of the given type under a head should be
+     * replaced.
+     */
+    private static boolean isRoadTarget(final int typeId, final InventoryManager manager) {
+        // Obsidian cannot be replaced by the builder as its head is made of
+        // iron.
+        return BlockData.isDrillable(typeId) && typeId != Material.OBSIDIAN.getId() && !(BlockData.isSolid(typeId) && manager.inventory.contains(typeId));
+    }
+
     /**
      * In this stage, the builder replaces existing solid blocks directly below
      * its heads with blocks from the front chest. Replaced blocks are put in
@@ -98,7 +129,7 @@ public class RoadBuilder extends BlockDropperBuilder {
                     return null;
 
                 inputManager.decrement();
-                target.getBlock().setTypeIdAndData(typeId, data, false);
+                target.setTypeIdAndData(typeId, data, false);
             }
             return buildState;
         }
@@ -119,9 +150,7 @@ public class RoadBuilder extends BlockDropperBuilder {
             for (BlueprintBlock i : heads) {
                 BlockLocation target = anchor.getRelative(i.vector(yaw).add(down));
                 int typeId = target.getTypeId();
-                // Obsidian cannot be replaced by the builder as its head is
-                // made of iron.
-                if (BlockData.isDrillable(typeId) && typeId != Material.OBSIDIAN.getId() && !(BlockData.isSolid(typeId) && manager.inventory.contains(typeId))) {
+                if (isRoadTarget(typeId, manager)) {
                     time += BlockData.getDrillTime(typeId) + buildDelay;
                     targets.add(target);
                 }
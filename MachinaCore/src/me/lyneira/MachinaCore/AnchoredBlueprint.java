@@ -0,0 +1,31 @@
+package me.lyneira.MachinaCore;
+
+import org.bukkit.block.BlockFace;
+
+/**
+ * Represents a blueprint that declares which anchor blocks and lever faces it
+ * can be detected at. MachinaCore uses this to skip the detect function of
+ * blueprints that cannot possibly match, instead of trying every registered
+ * blueprint on every lever pull.
+ * 
+ * @author Lyneira
+ */
+public interface AnchoredBlueprint extends MachinaBlueprint {
+    /**
+     * Returns the type ids the anchor block of this blueprint can have. Detect
+     * is only called for anchors of one of these types.
+     * 
+     * @return An array of block type ids
+     */
+    public int[] getAnchorTypeIds();
+
+    /**
+     * Returns the faces of the anchor a lever activating this blueprint can be
+     * attached to, or null if any face will do. Detect is only called for
+     * levers on one of these faces. Detection without a lever, such as for
+     * pipeline endpoints, is not affected.
+     * 
+     * @return An array of block faces, or null
+     */
+    public BlockFace[] getLeverFaces();
+}
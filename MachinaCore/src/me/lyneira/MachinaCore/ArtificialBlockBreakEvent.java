@@ -16,4 +16,16 @@ public class ArtificialBlockBreakEvent extends BlockBreakEvent {
         super(theBlock, player);
     }
 
+    /**
+     * Prepares this event to be fired again for another block, so that
+     * {@link EventSimulator} can check many blocks with a single event.
+     * 
+     * @param theBlock
+     *            The block to break
+     */
+    void reuse(Block theBlock) {
+        block = theBlock;
+        setCancelled(false);
+    }
+
 }
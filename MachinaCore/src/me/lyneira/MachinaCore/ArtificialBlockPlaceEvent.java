@@ -18,4 +18,25 @@ public class ArtificialBlockPlaceEvent extends BlockPlaceEvent {
         super(placedBlock, replacedBlockState, placedAgainst, itemInHand, thePlayer, canBuild);
     }
 
+    /**
+     * Prepares this event to be fired again for another block, so that
+     * {@link EventSimulator} can check many blocks with a single event.
+     * 
+     * @param placedBlock
+     *            The block being placed
+     * @param replacedBlockState
+     *            The state of the block before it was placed
+     * @param placedAgainst
+     *            The block it is placed against
+     * @param thePlayer
+     *            The player placing the block
+     */
+    void reuse(Block placedBlock, BlockState replacedBlockState, Block placedAgainst, Player thePlayer) {
+        block = placedBlock;
+        this.replacedBlockState = replacedBlockState;
+        this.placedAgainst = placedAgainst;
+        player = thePlayer;
+        setCancelled(false);
+    }
+
 }
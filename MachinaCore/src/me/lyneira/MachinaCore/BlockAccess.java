@@ -0,0 +1,201 @@
+package me.lyneira.MachinaCore;
+
+import java.util.Arrays;
+
+import org.bukkit.World;
+
+/**
+ * Reads and writes blocks for MachinaCore. While a machina is verified and
+ * runs its heartbeat, type ids and data that were read are remembered, so
+ * reading the same block again costs a few array lookups instead of another
+ * trip through the world's chunk map. Reading data through Bukkit also
+ * creates a new Block each time, which the cache avoids as well.
+ * <p>
+ * Any write through this class, and any block change MachinaCore is notified
+ * of, forgets everything that was read. Outside of a heartbeat every read goes
+ * straight to the world, since players and the server change blocks in
+ * between without telling MachinaCore.
+ * <p>
+ * The cache is direct mapped: each block has a single slot, and a read of a
+ * different block in the same slot simply replaces it.
+ * 
+ * @author Lyneira
+ */
+public final class BlockAccess {
+    private static final int cacheBits = 10;
+    private static final int cacheSize = 1 << cacheBits;
+
+    private static final World[] worlds = new World[cacheSize];
+    private static final long[] keys = new long[cacheSize];
+    private static final int[] typeIdStamps = new int[cacheSize];
+    private static final int[] typeIds = new int[cacheSize];
+    private static final int[] dataStamps = new int[cacheSize];
+    private static final byte[] data = new byte[cacheSize];
+
+    /**
+     * Slots are only valid if their stamp equals the current generation.
+     * Bumping the generation forgets the whole cache at once.
+     */
+    private static int generation = 1;
+    private static boolean active = false;
+
+    private BlockAccess() {
+        // Static utility class
+    }
+
+    /**
+     * Starts remembering reads.
+     */
+    static final void begin() {
+        invalidate();
+        active = true;
+    }
+
+    /**
+     * Stops remembering reads and forgets what was read.
+     */
+    static final void end() {
+        active = false;
+        invalidate();
+    }
+
+    /**
+     * Forgets everything that was read. Call this after changing blocks in a
+     * way that does not go through this class, such as updating a
+     * {@link org.bukkit.block.BlockState}.
+     */
+    public static final void invalidate() {
+        if (++generation == 0) {
+            // Wrapped around, make sure no slot from long ago becomes valid
+            // again.
+            Arrays.fill(typeIdStamps, 0);
+            Arrays.fill(dataStamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Returns the slot of the given block, claiming it if it holds another
+     * block.
+     */
+    private static final int slot(final World world, final long key) {
+        final int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - cacheBits));
+        if (keys[slot] != key || worlds[slot] != world) {
+            keys[slot] = key;
+            worlds[slot] = world;
+            typeIdStamps[slot] = 0;
+            dataStamps[slot] = 0;
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the type id of the block at the given coordinates.
+     * 
+     * @param world
+     *            The world of the block
+     * @param x
+     *            The x-coordinate of the block
+     * @param y
+     *            The y-coordinate of the block
+     * @param z
+     *            The z-coordinate of the block
+     * @return The type id of the block
+     */
+    public static final int getTypeId(final World world, final int x, final int y, final int z) {
+        if (!active)
+            return world.getBlockTypeIdAt(x, y, z);
+        final int slot = slot(world, BlockLocation.pack(x, y, z));
+        if (typeIdStamps[slot] != generation) {
+            typeIds[slot] = world.getBlockTypeIdAt(x, y, z);
+            typeIdStamps[slot] = generation;
+        }
+        return typeIds[slot];
+    }
+
+    /**
+     * Returns the data of the block at the given coordinates.
+     * 
+     * @param world
+     *            The world of the block
+     * @param x
+     *            The x-coordinate of the block
+     * @param y
+     *            The y-coordinate of the block
+     * @param z
+     *            The z-coordinate of the block
+     * @return The data of the block
+     */
+    public static final byte getData(final World world, final int x, final int y, final int z) {
+        if (!active)
+            return world.getBlockAt(x, y, z).getData();
+        final int slot = slot(world, BlockLocation.pack(x, y, z));
+        if (dataStamps[slot] != generation) {
+            data[slot] = world.getBlockAt(x, y, z).getData();
+            dataStamps[slot] = generation;
+        }
+        return data[slot];
+    }
+
+    /**
+     * Sets the type id of the block at the given coordinates.
+     * 
+     * @param world
+     *            The world of the block
+     * @param x
+     *            The x-coordinate of the block
+     * @param y
+     *            The y-coordinate of the block
+     * @param z
+     *            The z-coordinate of the block
+     * @param typeId
+     *            The type id to set
+     */
+    public static final void setTypeId(final World world, final int x, final int y, final int z, final int typeId) {
+        world.getBlockAt(x, y, z).setTypeId(typeId);
+        invalidate();
+    }
+
+    /**
+     * Sets the data of the block at the given coordinates.
+     * 
+     * @param world
+     *            The world of the block
+     * @param x
+     *            The x-coordinate of the block
+     * @param y
+     *            The y-coordinate of the block
+     * @param z
+     *            The z-coordinate of the block
+     * @param data
+     *            The data to set
+     */
+    public static final void setData(final World world, final int x, final int y, final int z, final byte data) {
+        world.getBlockAt(x, y, z).setData(data);
+        invalidate();
+    }
+
+    /**
+     * Sets the type id and data of the block at the given coordinates.
+     * 
+     * @param world
+     *            The world of the block
+     * @param x
+     *            The x-coordinate of the block
+     * @param y
+     *            The y-coordinate of the block
+     * @param z
+     *            The z-coordinate of the block
+     * @param typeId
+     *            The type id to set
+     * @param data
+     *            The data to set
+     * @param applyPhysics
+     *            Whether to apply physics to the surrounding blocks
+     */
+    public static final void setTypeIdAndData(final World world, final int x, final int y, final int z, final int typeId, final byte data,
+            final boolean applyPhysics) {
+        world.getBlockAt(x, y, z).setTypeIdAndData(typeId, data, applyPhysics);
+        invalidate();
+    }
+}
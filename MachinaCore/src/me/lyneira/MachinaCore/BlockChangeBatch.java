@@ -0,0 +1,324 @@
+package me.lyneira.MachinaCore;
+
+import java.util.Arrays;
+
+import me.lyneira.util.LongHashSet;
+
+import org.bukkit.World;
+
+/**
+ * Collects block changes in a single world and applies them together. Used by
+ * {@link Movable} so that moving a machina does not set off physics for every
+ * single block it consists of.
+ * <p>
+ * Only the last change to each position on the edge of the batch applies
+ * physics. Changes to blocks surrounded on all sides by other changed blocks,
+ * and clears of blocks that the batch places again, are applied first and
+ * without physics. The changes with physics follow: places before clears, so
+ * nothing outside the batch loses a block that the batch puts back. Within
+ * both groups attached blocks are cleared before other blocks and placed
+ * after them. A change that would leave its block as it is, like a block of a
+ * moving machina that is replaced by the same block, is not written at all.
+ * <p>
+ * If a change throws an exception, the changes applied so far are undone
+ * before the exception is passed on. Only type ids and data are restored,
+ * the contents of inventories are not. The original block is read just before
+ * each change is applied, unless the caller already knows what it is. Its data
+ * is only read if it is not air.
+ * 
+ * @author Lyneira
+ */
+public final class BlockChangeBatch {
+    private static final int initialCapacity = 32;
+
+    private World world = null;
+    private int size = 0;
+    private int[] xs = new int[initialCapacity];
+    private int[] ys = new int[initialCapacity];
+    private int[] zs = new int[initialCapacity];
+    private int[] typeIds = new int[initialCapacity];
+    private byte[] data = new byte[initialCapacity];
+    private int[] oldTypeIds = new int[initialCapacity];
+    private byte[] oldData = new byte[initialCapacity];
+    /**
+     * How much of the original block of each change is known.
+     */
+    private byte[] known = new byte[initialCapacity];
+    private static final byte knownNothing = 0;
+    private static final byte knownTypeId = 1;
+    private static final byte knownAll = 2;
+    /**
+     * Whether each change is applied with physics.
+     */
+    private boolean[] physics = new boolean[initialCapacity];
+    /**
+     * The indices of the changes in the order they are applied.
+     */
+    private int[] order = new int[initialCapacity];
+    private int applied = 0;
+    private final LongHashSet positions = new LongHashSet(initialCapacity);
+    /**
+     * Positions that currently have a placing change in the batch.
+     */
+    private final LongHashSet placed = new LongHashSet(initialCapacity);
+    /**
+     * Positions on the edge that already have a clear with physics, used while
+     * applying.
+     */
+    private final LongHashSet cleared = new LongHashSet(initialCapacity);
+
+    /**
+     * Adds a change that empties the block at the given location.
+     * 
+     * @param location
+     *            The location to empty
+     */
+    public final void setEmpty(final BlockLocation location) {
+        add(location, 0, (byte) 0);
+    }
+
+    /**
+     * Adds a change that empties the block at the given location, which is
+     * known to hold the given type id and data. This saves reading the block
+     * when the batch is applied.
+     * 
+     * @param location
+     *            The location to empty
+     * @param oldTypeId
+     *            The type id currently at the location
+     * @param oldData
+     *            The data currently at the location
+     */
+    public final void setEmpty(final BlockLocation location, final int oldTypeId, final byte oldData) {
+        add(location, 0, (byte) 0, oldTypeId, oldData, knownAll);
+    }
+
+    /**
+     * Adds a change that sets the type id of the block at the given location.
+     * The data of the block will be 0.
+     * 
+     * @param location
+     *            The location to change
+     * @param typeId
+     *            The type id to set
+     */
+    public final void setTypeId(final BlockLocation location, final int typeId) {
+        add(location, typeId, (byte) 0);
+    }
+
+    /**
+     * Adds a change that sets the type id and data of the block at the given
+     * location.
+     * 
+     * @param location
+     *            The location to change
+     * @param typeId
+     *            The type id to set
+     * @param data
+     *            The data to set
+     */
+    public final void setTypeIdAndData(final BlockLocation location, final int typeId, final byte data) {
+        add(location, typeId, data);
+    }
+
+    private final void add(final BlockLocation location, final int typeId, final byte data) {
+        add(location, typeId, data, 0, (byte) 0, knownNothing);
+    }
+
+    private final void add(final BlockLocation location, final int typeId, final byte data, final int oldTypeId, final byte oldData, final byte known) {
+        if (applied != 0)
+            throw new IllegalStateException("Tried to add a change to a BlockChangeBatch that was already applied!");
+        if (world == null)
+            world = location.getWorld();
+        else if (world != location.getWorld())
+            throw new IllegalArgumentException("All changes in a BlockChangeBatch must be in the same world!");
+        final long key = location.key();
+        if (placed.contains(key)) {
+            // Clears happen before places, so a later change to a block that
+            // is already being placed replaces that change.
+            replacePlace(location, typeId, data);
+            if (typeId == 0)
+                placed.remove(key);
+            return;
+        }
+        if (size == xs.length)
+            grow();
+        xs[size] = location.x;
+        ys[size] = location.y;
+        zs[size] = location.z;
+        typeIds[size] = typeId;
+        this.data[size] = data;
+        oldTypeIds[size] = oldTypeId;
+        this.oldData[size] = oldData;
+        this.known[size] = known;
+        size++;
+        positions.add(key);
+        if (typeId != 0)
+            placed.add(key);
+    }
+
+    private final void replacePlace(final BlockLocation location, final int typeId, final byte data) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (typeIds[i] != 0 && xs[i] == location.x && ys[i] == location.y && zs[i] == location.z) {
+                typeIds[i] = typeId;
+                this.data[i] = data;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The number of changes in this batch.
+     */
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * Applies all changes in this batch. If applying a change fails, the
+     * changes applied before it are rolled back and the exception is thrown
+     * again.
+     */
+    public final void apply() {
+        if (applied != 0)
+            throw new IllegalStateException("Tried to apply a BlockChangeBatch twice!");
+        if (size == 0)
+            return;
+
+        // The order of emptying changes depends on what they empty.
+        for (int i = 0; i < size; i++) {
+            if (typeIds[i] == 0 && known[i] == knownNothing) {
+                oldTypeIds[i] = BlockAccess.getTypeId(world, xs[i], ys[i], zs[i]);
+                known[i] = knownTypeId;
+            }
+        }
+
+        // Only the last change to each edge position gets physics. A place is
+        // always the last change to its position.
+        cleared.clear();
+        for (int i = size - 1; i >= 0; i--) {
+            final long key = BlockLocation.pack(xs[i], ys[i], zs[i]);
+            physics[i] = isEdge(i) && (typeIds[i] != 0 || (!placed.contains(key) && cleared.add(key)));
+        }
+
+        int count = 0;
+        count = orderClears(count, false);
+        count = orderPlaces(count, false);
+        final int physicsFrom = count;
+        count = orderPlaces(count, true);
+        count = orderClears(count, true);
+
+        try {
+            while (applied < size) {
+                final int i = order[applied];
+                remember(i);
+                // Writing what is already there would only update the
+                // neighbours for nothing.
+                if (oldTypeIds[i] != typeIds[i] || oldData[i] != data[i])
+                    BlockAccess.setTypeIdAndData(world, xs[i], ys[i], zs[i], typeIds[i], data[i], applied >= physicsFrom);
+                applied++;
+            }
+        } catch (RuntimeException e) {
+            rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the original block of the given change if it is not known yet.
+     * Since this happens just before the change is applied, rolling back in
+     * reverse ends with the original block even if it is changed twice.
+     */
+    private final void remember(final int i) {
+        if (known[i] == knownAll)
+            return;
+        if (known[i] == knownNothing)
+            oldTypeIds[i] = BlockAccess.getTypeId(world, xs[i], ys[i], zs[i]);
+        oldData[i] = oldTypeIds[i] == 0 ? 0 : BlockAccess.getData(world, xs[i], ys[i], zs[i]);
+        known[i] = knownAll;
+    }
+
+    /**
+     * Puts the emptying changes with or without physics into the order,
+     * attached blocks first. A clear without physics always comes before the
+     * place at the same position, so a block that is both cleared and placed
+     * ends up placed.
+     */
+    private final int orderClears(int count, final boolean physics) {
+        for (int i = 0; i < size; i++) {
+            if (typeIds[i] == 0 && this.physics[i] == physics && BlockData.isAttached(oldTypeIds[i]))
+                order[count++] = i;
+        }
+        for (int i = 0; i < size; i++) {
+            if (typeIds[i] == 0 && this.physics[i] == physics && !BlockData.isAttached(oldTypeIds[i]))
+                order[count++] = i;
+        }
+        return count;
+    }
+
+    /**
+     * Puts the placing changes with or without physics into the order,
+     * attached blocks last.
+     */
+    private final int orderPlaces(int count, final boolean physics) {
+        for (int i = 0; i < size; i++) {
+            if (typeIds[i] != 0 && this.physics[i] == physics && !BlockData.isAttached(typeIds[i]))
+                order[count++] = i;
+        }
+        for (int i = 0; i < size; i++) {
+            if (typeIds[i] != 0 && this.physics[i] == physics && BlockData.isAttached(typeIds[i]))
+                order[count++] = i;
+        }
+        return count;
+    }
+
+    /**
+     * Returns true if the given change has a neighbour outside the batch.
+     */
+    private final boolean isEdge(final int i) {
+        final int x = xs[i];
+        final int y = ys[i];
+        final int z = zs[i];
+        return !(positions.contains(BlockLocation.pack(x + 1, y, z)) && positions.contains(BlockLocation.pack(x - 1, y, z))
+                && positions.contains(BlockLocation.pack(x, y + 1, z)) && positions.contains(BlockLocation.pack(x, y - 1, z))
+                && positions.contains(BlockLocation.pack(x, y, z + 1)) && positions.contains(BlockLocation.pack(x, y, z - 1)));
+    }
+
+    /**
+     * Undoes the changes of this batch that were applied, in reverse order
+     * and without physics.
+     */
+    public final void rollback() {
+        while (applied > 0) {
+            applied--;
+            final int i = order[applied];
+            BlockAccess.setTypeIdAndData(world, xs[i], ys[i], zs[i], oldTypeIds[i], oldData[i], false);
+        }
+    }
+
+    /**
+     * Empties this batch so it can be used again. Changes that were applied
+     * stay in the world.
+     */
+    public final void reset() {
+        world = null;
+        size = 0;
+        applied = 0;
+        positions.clear();
+        placed.clear();
+    }
+
+    private final void grow() {
+        final int capacity = xs.length << 1;
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        zs = Arrays.copyOf(zs, capacity);
+        typeIds = Arrays.copyOf(typeIds, capacity);
+        oldTypeIds = Arrays.copyOf(oldTypeIds, capacity);
+        order = Arrays.copyOf(order, capacity);
+        data = Arrays.copyOf(data, capacity);
+        oldData = Arrays.copyOf(oldData, capacity);
+        known = Arrays.copyOf(known, capacity);
+        physics = Arrays.copyOf(physics, capacity);
+    }
+}
@@ -0,0 +1,259 @@
+package me.lyneira.MachinaCore;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+
+/**
+ * Mutable position in a world for loops that probe many blocks around an
+ * anchor. Unlike {@link BlockLocation#getRelative(BlockVector)}, moving the
+ * cursor does not create a new object, so a verify or detect loop over a
+ * blueprint produces no garbage.
+ * <p>
+ * A cursor remembers the anchor it was set to. {@link #at(BlockVector)}
+ * positions it relative to that anchor, while the move functions step from
+ * the current position.
+ * 
+ * @author Lyneira
+ */
+public final class BlockCursor {
+    private World world;
+    private int anchorX;
+    private int anchorY;
+    private int anchorZ;
+    private int x;
+    private int y;
+    private int z;
+
+    /**
+     * Constructs a new cursor that must be set to an anchor before use.
+     */
+    public BlockCursor() {
+    }
+
+    /**
+     * Constructs a new cursor positioned at the given anchor.
+     * 
+     * @param anchor
+     *            The anchor to position the cursor at
+     */
+    public BlockCursor(final BlockLocation anchor) {
+        set(anchor);
+    }
+
+    /**
+     * Sets the anchor of this cursor to the given location and moves the
+     * cursor there.
+     * 
+     * @param anchor
+     *            The new anchor
+     * @return This cursor
+     */
+    public final BlockCursor set(final BlockLocation anchor) {
+        return set(anchor.getWorld(), anchor.x, anchor.y, anchor.z);
+    }
+
+    /**
+     * Sets the anchor of this cursor to the given coordinates and moves the
+     * cursor there.
+     * 
+     * @param world
+     *            The world of the anchor
+     * @param x
+     *            The x-coordinate of the anchor
+     * @param y
+     *            The y-coordinate of the anchor
+     * @param z
+     *            The z-coordinate of the anchor
+     * @return This cursor
+     */
+    public final BlockCursor set(final World world, final int x, final int y, final int z) {
+        this.world = world;
+        anchorX = this.x = x;
+        anchorY = this.y = y;
+        anchorZ = this.z = z;
+        return this;
+    }
+
+    /**
+     * Moves the cursor back to its anchor.
+     * 
+     * @return This cursor
+     */
+    public final BlockCursor reset() {
+        x = anchorX;
+        y = anchorY;
+        z = anchorZ;
+        return this;
+    }
+
+    /**
+     * Moves the cursor to the given vector from its anchor.
+     * 
+     * @param vector
+     *            The vector to apply to the anchor
+     * @return This cursor
+     */
+    public final BlockCursor at(final BlockVector vector) {
+        x = anchorX + vector.x;
+        y = anchorY + vector.y;
+        z = anchorZ + vector.z;
+        return this;
+    }
+
+    /**
+     * Moves the cursor by the given vector from its current position.
+     * 
+     * @param vector
+     *            The vector to move by
+     * @return This cursor
+     */
+    public final BlockCursor move(final BlockVector vector) {
+        x += vector.x;
+        y += vector.y;
+        z += vector.z;
+        return this;
+    }
+
+    /**
+     * Moves the cursor one block in the direction of the given face.
+     * 
+     * @param face
+     *            The direction to move in
+     * @return This cursor
+     */
+    public final BlockCursor move(final BlockFace face) {
+        x += face.getModX();
+        y += face.getModY();
+        z += face.getModZ();
+        return this;
+    }
+
+    /**
+     * Moves the cursor the given number of blocks in the direction of the
+     * given face.
+     * 
+     * @param face
+     *            The direction to move in
+     * @param distance
+     *            The number of blocks to move
+     * @return This cursor
+     */
+    public final BlockCursor move(final BlockFace face, final int distance) {
+        x += face.getModX() * distance;
+        y += face.getModY() * distance;
+        z += face.getModZ() * distance;
+        return this;
+    }
+
+    /**
+     * @return The world of this cursor.
+     */
+    public final World getWorld() {
+        return world;
+    }
+
+    /**
+     * @return The x-coordinate of the cursor.
+     */
+    public final int getX() {
+        return x;
+    }
+
+    /**
+     * @return The y-coordinate of the cursor.
+     */
+    public final int getY() {
+        return y;
+    }
+
+    /**
+     * @return The z-coordinate of the cursor.
+     */
+    public final int getZ() {
+        return z;
+    }
+
+    /**
+     * Returns the Type Id at the cursor.
+     * 
+     * @return The Type Id at the cursor
+     */
+    public final int getTypeId() {
+        return BlockAccess.getTypeId(world, x, y, z);
+    }
+
+    /**
+     * Returns true if the block at the cursor contains air.
+     * 
+     * @return True if the block at the cursor contains air.
+     */
+    public final boolean isEmpty() {
+        return BlockAccess.getTypeId(world, x, y, z) == 0;
+    }
+
+    /**
+     * @return True if the block at the cursor is safe to move into for a
+     *         machina.
+     */
+    public final boolean isEmptyForCollision() {
+        return BlockLocation.isEmptyForCollision(BlockAccess.getTypeId(world, x, y, z));
+    }
+
+    /**
+     * Returns the data at the cursor.
+     * 
+     * @return The data at the cursor
+     */
+    public final byte getData() {
+        return BlockAccess.getData(world, x, y, z);
+    }
+
+    /**
+     * Sets the type id at the cursor.
+     * 
+     * @param typeId
+     *            The type id to set
+     */
+    public final void setTypeId(final int typeId) {
+        BlockAccess.setTypeId(world, x, y, z, typeId);
+    }
+
+    /**
+     * Sets the type id and data at the cursor.
+     * 
+     * @param typeId
+     *            The type id to set
+     * @param data
+     *            The data to set
+     * @param applyPhysics
+     *            Whether to apply physics to the surrounding blocks
+     */
+    public final void setTypeIdAndData(final int typeId, final byte data, final boolean applyPhysics) {
+        BlockAccess.setTypeIdAndData(world, x, y, z, typeId, data, applyPhysics);
+    }
+
+    /**
+     * Returns the {@link Block} at the cursor.
+     * 
+     * @return Block
+     */
+    public final Block getBlock() {
+        return world.getBlockAt(x, y, z);
+    }
+
+    /**
+     * Returns a new {@link BlockLocation} for the current position of the
+     * cursor.
+     * 
+     * @return A new BlockLocation
+     */
+    public final BlockLocation toLocation() {
+        return new BlockLocation(world, x, y, z);
+    }
+
+    @Override
+    public String toString() {
+        return "BlockCursor{" + world + " - " + x + "," + y + "," + z + "}";
+    }
+}
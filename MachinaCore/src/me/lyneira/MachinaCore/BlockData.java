@@ -1,7 +1,9 @@
 package me.lyneira.MachinaCore;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -13,154 +15,224 @@ import org.bukkit.inventory.ItemStack;
 
 /**
  * Class that contains useful information about block types.
+ * <p>
+ * The properties of all block ids are kept in flat tables of bits and ints, so
+ * that looking up a property costs a single array read. A block id can also
+ * have its properties overridden per data value. Such an id gets sixteen
+ * extra entries in the tables, one for each data value, and only lookups that
+ * pass a data value use them.
  * 
  * @author Lyneira
  */
 public final class BlockData {
-    private static final int blockIdLimit = 256;
-    private static BlockData[] blockId = new BlockData[blockIdLimit];
+    /**
+     * The number of block ids a world can contain.
+     */
+    private static final int blockIdLimit = 4096;
+    private static final int dataValues = 16;
     private static final Random generator = new Random();
-    private static final BreakTime breakTimeInstant = new BreakTime(1);
-    private static final BreakTime breakTimeNetherrack = new BreakTime(4);
-    private static final BreakTime breakTimeFast = new BreakTime(7);
-    private static final BreakTime breakTimeMedium = new BreakTime(15);
-    private static final BreakTime breakTimeSlow = new BreakTime(20);
-    private static final BreakTime breakTimeTough = new BreakTime(25);
-    private static final BreakTime breakTimeObsidian = new BreakTime(220);
-
-    private static class BreakTime {
-        int time;
-
-        BreakTime(final int time) {
-            this.time = time;
-        }
-    }
-
-    private BlockData() {
-        // Only this class can instantiate itself.
-    }
-
     /**
-     * Returns the ItemStack that would result from a player breaking the given
-     * Block with an appropriate tool.
-     * 
-     * @param location
-     *            The location where the block is being broken
-     * @return The item stack resulting from the block break, or null if there
-     *         is no drop
+     * The result of breaking a block that drops nothing.
      */
-    public static final Collection<ItemStack> breakBlock(final BlockLocation location) {
-        Block block = location.getBlock();
-        BlockData data;
-        int blockType = block.getTypeId();
-        try {
-            data = blockId[blockType];
-        } catch (Exception e) {
-            return new ArrayList<ItemStack>(1);
-        }
-        // Got a BlockMetaData, now determine what to drop
-
-        // Simplest case, ask bukkit
-        if (data.drop < 0) {
-            return block.getDrops();
-        }
+    private static final List<ItemStack> noDrops = Collections.emptyList();
+    /**
+     * The most drop templates kept for a single entry. Entries that can drop
+     * more combinations of data value and amount create their drop when the
+     * block is broken.
+     */
+    private static final int maxDropTemplates = 256;
+
+    // Indices into breakTimes.
+    private static final int breakTimeInstant = 0;
+    private static final int breakTimeNetherrack = 1;
+    private static final int breakTimeFast = 2;
+    private static final int breakTimeMedium = 3;
+    private static final int breakTimeSlow = 4;
+    private static final int breakTimeTough = 5;
+    private static final int breakTimeObsidian = 6;
+    /**
+     * Marks a drill time that was configured as a number of ticks.
+     */
+    private static final byte breakTimeCustom = -1;
+    private static final int[] breakTimes = { 1, 4, 7, 15, 20, 25, 220 };
 
-        int item;
-        short damageValue;
-        if (data.drop == 0) {
-            return null;
-        } else {
-            item = data.drop;
-        }
-        // Determine if we should use the Block's data value or the predefined
-        // one
-        if (data.data < 0) {
-            damageValue = block.getData();
-        } else {
-            damageValue = (byte) data.data;
-        }
-        // Determine drop amount
-        int amount;
-        if (data.dropRandom > 0) {
-            amount = data.dropMin + generator.nextInt(data.dropRandom);
-        } else {
-            amount = data.dropMin;
-        }
-        if (amount > 0) {
-            List<ItemStack> drop = new ArrayList<ItemStack>(1);
-            drop.add(new ItemStack(item, amount, damageValue));
-            return drop;
-        } else {
-            return new ArrayList<ItemStack>(1);
-        }
-    }
+    /*
+     * The tables below have one entry per block id, followed by sixteen
+     * entries for each id that has overrides per data value.
+     */
+    private static int entries = 0;
 
     /**
-     * Whether this block type is solid, meaning whether a device can rest on
+     * Whether the block type is solid, meaning whether a device can rest on
      * it.
      */
-    private boolean solid = false;
+    private static long[] solid;
 
     /**
-     * Whether this blockId can be drilled.
+     * Whether the block type can be drilled.
      */
-    private boolean drillable = false;
+    private static long[] drillable;
 
     /**
-     * How long (in server ticks) it takes to drill this block.
+     * How long (in server ticks) it takes to drill the block type.
      */
-    private BreakTime drillTime = breakTimeInstant;
+    private static int[] drillTime;
 
     /**
-     * What item Id will be dropped when this block is drilled. A value of 0
+     * Which break time the drill time follows, or breakTimeCustom.
+     */
+    private static byte[] drillTimeClass;
+
+    /**
+     * What item Id will be dropped when the block is drilled. A value of 0
      * means nothing will be dropped. A negative value means the block will be
      * broken as if a player had dug it.
      */
-    private int drop = -1;
+    private static int[] drop;
 
     /**
      * Metadata of the item to be dropped. A negative value means the broken
      * block's data will be used. Only used if drop is non-negative.
      */
-    private short data = -1;
+    private static short[] dropData;
 
     /**
      * The minimum amount that will be dropped. If 0 or negative, relies on
      * dropRandom increasing to above 0 for anything to drop.
      */
-    private int dropMin = 1;
+    private static int[] dropMin;
 
     /**
      * A random amount from 0 to (dropRandom - 1) that will be dropped in
      * addition to dropMin.
      */
-    private int dropRandom = 0;
+    private static int[] dropRandom;
+
+    /**
+     * The shared drops of each entry that drops a fixed item, one for every
+     * combination of data value and amount it can drop. They are created when
+     * first needed and forgotten when the drop properties of the entry change.
+     */
+    private static Object[][] dropTemplates;
+
+    /*
+     * The tables below have one entry per block id only.
+     */
 
     /**
-     * Whether this block's data must be copied during a move.
+     * Whether the block's data must be copied during a move.
      */
-    private boolean copyData = false;
+    private static final long[] copyData = new long[blockIdLimit >> 6];
 
     /**
-     * Whether this block has an inventory.
+     * Whether the block has an inventory.
      */
-    private boolean hasInventory = false;
+    private static final long[] hasInventory = new long[blockIdLimit >> 6];
 
     /**
-     * Whether this block can only exist while attached to another block.
+     * Whether the block can only exist while attached to another block.
      */
-    private boolean attached = false;
+    private static final long[] attached = new long[blockIdLimit >> 6];
+
+    /**
+     * The first of the sixteen entries for each data value of the block id,
+     * or 0 if the block id has no overrides.
+     */
+    private static final int[] overrides = new int[blockIdLimit];
+
+    /**
+     * The entry that the setters of this instance write to.
+     */
+    private final int entry;
+
+    private BlockData(final int entry) {
+        // Only this class can instantiate itself.
+        this.entry = entry;
+    }
+
+    /**
+     * Returns the ItemStacks that would result from a player breaking the
+     * given Block with an appropriate tool.
+     * <p>
+     * Unless the drop is left to Bukkit, the result is shared between all
+     * blocks that drop the same, and must not be modified. It can be passed
+     * straight to an {@link me.lyneira.util.InventoryTransaction}.
+     * 
+     * @param location
+     *            The location where the block is being broken
+     * @return The item stacks resulting from the block break, empty if there
+     *         is no drop
+     */
+    public static final Collection<ItemStack> breakBlock(final BlockLocation location) {
+        final int blockType = location.getTypeId();
+        if (!isValid(blockType))
+            return noDrops;
+        final byte blockData = location.getData();
+        final int entry = entry(blockType, blockData);
+        // Got the entry, now determine what to drop
+
+        // Simplest case, ask bukkit
+        final int item = drop[entry];
+        if (item < 0) {
+            return location.getBlock().getDrops();
+        }
+        if (item == 0) {
+            return noDrops;
+        }
+        // Determine drop amount
+        int amount = dropMin[entry];
+        if (dropRandom[entry] > 0) {
+            amount += generator.nextInt(dropRandom[entry]);
+        }
+        if (amount <= 0) {
+            return noDrops;
+        }
+        return dropTemplate(entry, item, blockData, amount);
+    }
+
+    /**
+     * Returns the shared drop of the given amount for the given entry,
+     * creating it if this is the first time it drops.
+     */
+    @SuppressWarnings("unchecked")
+    private static final List<ItemStack> dropTemplate(final int entry, final int item, final byte blockData, final int amount) {
+        // Determine if we should use the Block's data value or the predefined
+        // one
+        final boolean useBlockData = dropData[entry] < 0;
+        final short damageValue = useBlockData ? blockData : (byte) dropData[entry];
+        final int amounts = Math.max(dropRandom[entry], 1);
+        final int size = useBlockData ? amounts * dataValues : amounts;
+        if (size > maxDropTemplates)
+            return Collections.singletonList(new ItemStack(item, amount, damageValue));
+
+        Object[] templates = dropTemplates[entry];
+        if (templates == null) {
+            templates = new Object[size];
+            dropTemplates[entry] = templates;
+        }
+        final int index = (useBlockData ? (blockData & 0xF) * amounts : 0) + amount - dropMin[entry];
+        List<ItemStack> template = (List<ItemStack>) templates[index];
+        if (template == null) {
+            template = Collections.singletonList(new ItemStack(item, amount, damageValue));
+            templates[index] = template;
+        }
+        return template;
+    }
 
     static {
+        grow(blockIdLimit);
+
         // The Big Scary Static Init of Everything Block Related...
+        // Blocks that always drop the same item say so, which saves asking
+        // Bukkit every time one is drilled.
 
         set(Material.STONE.getId()).solid(true).drillable(true).drillTime(breakTimeMedium);
 
-        set(Material.GRASS.getId()).solid(true).drillable(true).drillTime(breakTimeFast);
+        set(Material.GRASS.getId()).solid(true).drillable(true).drillTime(breakTimeFast).drop(Material.DIRT.getId()).data((short) 0);
 
         set(Material.DIRT.getId()).solid(true).drillable(true).drillTime(breakTimeFast);
 
-        set(Material.COBBLESTONE.getId()).solid(true).drillable(true).drillTime(breakTimeMedium);
+        set(Material.COBBLESTONE.getId()).solid(true).drillable(true).drillTime(breakTimeMedium).drop(Material.COBBLESTONE.getId()).data((short) 0);
 
         set(Material.WOOD.getId()).solid(true).drillable(true).copyData(true).drillTime(breakTimeMedium);
 
@@ -176,7 +248,7 @@ public final class BlockData {
 
         set(Material.STATIONARY_LAVA.getId()).copyData(true);
 
-        set(Material.SAND.getId()).solid(true).drillable(true).drillTime(breakTimeFast);
+        set(Material.SAND.getId()).solid(true).drillable(true).drillTime(breakTimeFast).drop(Material.SAND.getId());
 
         set(Material.GRAVEL.getId()).solid(true).drillable(true).drillTime(breakTimeFast);
 
@@ -200,7 +272,7 @@ public final class BlockData {
 
         set(Material.DISPENSER.getId()).solid(true).copyData(true).inventory(true);
 
-        set(Material.SANDSTONE.getId()).solid(true).drillable(true).copyData(true).drillTime(breakTimeFast);
+        set(Material.SANDSTONE.getId()).solid(true).drillable(true).copyData(true).drillTime(breakTimeFast).drop(Material.SANDSTONE.getId());
 
         set(Material.NOTE_BLOCK.getId()).solid(true).drillable(true).drillTime(breakTimeMedium);
 
@@ -246,9 +318,9 @@ public final class BlockData {
 
         set(Material.BOOKSHELF.getId()).solid(true).drillable(true).drillTime(breakTimeMedium);
 
-        set(Material.MOSSY_COBBLESTONE.getId()).solid(true).drillable(true).drillTime(breakTimeMedium);
+        set(Material.MOSSY_COBBLESTONE.getId()).solid(true).drillable(true).drillTime(breakTimeMedium).drop(Material.MOSSY_COBBLESTONE.getId()).data((short) 0);
 
-        set(Material.OBSIDIAN.getId()).solid(true).drillable(true).drillTime(breakTimeObsidian);
+        set(Material.OBSIDIAN.getId()).solid(true).drillable(true).drillTime(breakTimeObsidian).drop(Material.OBSIDIAN.getId()).data((short) 0);
 
         set(Material.TORCH.getId()).drillable(true).copyData(true).attached(true);
 
@@ -325,9 +397,9 @@ public final class BlockData {
 
         set(Material.PUMPKIN.getId()).drillable(true).solid(true).drillTime(breakTimeFast);
 
-        set(Material.NETHERRACK.getId()).drillable(true).solid(true).drillTime(breakTimeNetherrack);
+        set(Material.NETHERRACK.getId()).drillable(true).solid(true).drillTime(breakTimeNetherrack).drop(Material.NETHERRACK.getId()).data((short) 0);
 
-        set(Material.SOUL_SAND.getId()).drillable(true).solid(true).drillTime(breakTimeFast);
+        set(Material.SOUL_SAND.getId()).drillable(true).solid(true).drillTime(breakTimeFast).drop(Material.SOUL_SAND.getId()).data((short) 0);
 
         set(Material.GLOWSTONE.getId()).drillable(true).solid(true).drillTime(breakTimeFast);
 
@@ -373,7 +445,7 @@ public final class BlockData {
 
         set(Material.WATER_LILY.getId()).drillable(true).drillTime(breakTimeFast);
 
-        set(Material.NETHER_BRICK.getId()).solid(true).drillable(true).drillTime(breakTimeSlow);
+        set(Material.NETHER_BRICK.getId()).solid(true).drillable(true).drillTime(breakTimeSlow).drop(Material.NETHER_BRICK.getId()).data((short) 0);
 
         set(Material.NETHER_FENCE.getId()).solid(true).drillable(true).drillTime(breakTimeSlow);
 
@@ -389,7 +461,7 @@ public final class BlockData {
 
         set(Material.ENDER_PORTAL.getId()).copyData(true);
 
-        set(Material.ENDER_STONE.getId()).solid(true).drillable(true).drillTime(breakTimeSlow);
+        set(Material.ENDER_STONE.getId()).solid(true).drillable(true).drillTime(breakTimeSlow).drop(Material.ENDER_STONE.getId()).data((short) 0);
 
         set(Material.REDSTONE_LAMP_OFF.getId()).solid(true).drillable(true).drillTime(breakTimeFast);
 
@@ -459,63 +531,152 @@ public final class BlockData {
 
     // Private setters to make the initialization look better.
     private final BlockData solid(boolean value) {
-        this.solid = value;
+        setBit(solid, entry, value);
         return this;
     }
 
     private final BlockData drillable(boolean value) {
-        this.drillable = value;
+        setBit(drillable, entry, value);
         return this;
     }
 
-    private final BlockData drillTime(final BreakTime drillTime) {
-        this.drillTime = drillTime;
+    private final BlockData drillTime(final int breakTime) {
+        drillTimeClass[entry] = (byte) breakTime;
+        drillTime[entry] = breakTimes[breakTime];
+        return this;
+    }
+
+    private final BlockData drillTimeTicks(final int ticks) {
+        drillTimeClass[entry] = breakTimeCustom;
+        drillTime[entry] = ticks;
         return this;
     }
 
     private final BlockData drop(final int drop) {
-        this.drop = drop;
+        BlockData.drop[entry] = drop;
+        dropTemplates[entry] = null;
         return this;
     }
 
     private final BlockData data(final short data) {
-        this.data = data;
+        dropData[entry] = data;
+        dropTemplates[entry] = null;
         return this;
     }
 
     private final BlockData dropMin(final int dropMin) {
-        this.dropMin = dropMin;
+        BlockData.dropMin[entry] = dropMin;
+        dropTemplates[entry] = null;
         return this;
     }
 
     private final BlockData dropRandom(final int dropRandom) {
-        this.dropRandom = dropRandom;
+        BlockData.dropRandom[entry] = dropRandom;
+        dropTemplates[entry] = null;
         return this;
     }
 
     private final BlockData copyData(boolean value) {
-        this.copyData = value;
+        setBit(copyData, entry, value);
         return this;
     }
 
     private final BlockData inventory(boolean value) {
-        this.hasInventory = value;
+        setBit(hasInventory, entry, value);
         return this;
     }
 
     private final BlockData attached(boolean value) {
-        this.attached = value;
+        setBit(attached, entry, value);
         return this;
     }
 
     private static final BlockData set(final int typeId) {
-        if (typeId >= blockIdLimit)
+        if (!isValid(typeId))
+            return null;
+        return new BlockData(typeId);
+    }
+
+    /**
+     * Returns the entry for the given data value of the given block id,
+     * creating overrides for the block id if it has none yet. The new
+     * overrides start out as copies of the block id's properties.
+     */
+    private static final BlockData set(final int typeId, final int data) {
+        if (!isValid(typeId) || data < 0 || data >= dataValues)
             return null;
 
-        if (blockId[typeId] == null)
-            blockId[typeId] = new BlockData();
+        if (overrides[typeId] == 0) {
+            final int base = entries;
+            grow(base + dataValues);
+            for (int i = base; i < entries; i++) {
+                copy(typeId, i);
+            }
+            overrides[typeId] = base;
+        }
+        return new BlockData(overrides[typeId] + data);
+    }
+
+    private static final boolean isValid(final int typeId) {
+        return (typeId >>> 12) == 0;
+    }
+
+    /**
+     * Returns the entry to use for the given block id and data value.
+     */
+    private static final int entry(final int typeId, final int data) {
+        final int base = overrides[typeId];
+        return base == 0 ? typeId : base + (data & 0xF);
+    }
+
+    private static final boolean getBit(final long[] bits, final int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static final void setBit(final long[] bits, final int index, final boolean value) {
+        if (value)
+            bits[index >>> 6] |= 1L << index;
+        else
+            bits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Grows the tables to the given number of entries and fills the new ones
+     * with the default properties.
+     */
+    private static final void grow(final int size) {
+        final int oldSize = entries;
+        solid = Arrays.copyOf(solid == null ? new long[0] : solid, (size + 63) >> 6);
+        drillable = Arrays.copyOf(drillable == null ? new long[0] : drillable, (size + 63) >> 6);
+        drillTime = Arrays.copyOf(drillTime == null ? new int[0] : drillTime, size);
+        drillTimeClass = Arrays.copyOf(drillTimeClass == null ? new byte[0] : drillTimeClass, size);
+        drop = Arrays.copyOf(drop == null ? new int[0] : drop, size);
+        dropData = Arrays.copyOf(dropData == null ? new short[0] : dropData, size);
+        dropMin = Arrays.copyOf(dropMin == null ? new int[0] : dropMin, size);
+        dropRandom = Arrays.copyOf(dropRandom == null ? new int[0] : dropRandom, size);
+        dropTemplates = Arrays.copyOf(dropTemplates == null ? new Object[0][] : dropTemplates, size);
+        entries = size;
+
+        Arrays.fill(drillTime, oldSize, size, breakTimes[breakTimeInstant]);
+        Arrays.fill(drillTimeClass, oldSize, size, (byte) breakTimeInstant);
+        Arrays.fill(drop, oldSize, size, -1);
+        Arrays.fill(dropData, oldSize, size, (short) -1);
+        Arrays.fill(dropMin, oldSize, size, 1);
+    }
 
-        return blockId[typeId];
+    /**
+     * Copies the properties of one entry to another.
+     */
+    private static final void copy(final int from, final int to) {
+        setBit(solid, to, getBit(solid, from));
+        setBit(drillable, to, getBit(drillable, from));
+        drillTime[to] = drillTime[from];
+        drillTimeClass[to] = drillTimeClass[from];
+        drop[to] = drop[from];
+        dropData[to] = dropData[from];
+        dropMin[to] = dropMin[from];
+        dropRandom[to] = dropRandom[from];
+        dropTemplates[to] = null;
     }
 
     static final void loadBlockConfiguration(ConfigurationSection configuration) {
@@ -523,6 +684,7 @@ public final class BlockData {
             return;
 
         Map<String, Object> blockSections = configuration.getValues(false);
+        List<String> overrideItems = new ArrayList<String>();
         for (String configItem : blockSections.keySet()) {
             BlockData data;
 
@@ -541,6 +703,13 @@ public final class BlockData {
             if (!configuration.isConfigurationSection(configItem))
                 continue;
 
+            // Overrides per data value copy the properties of their block id,
+            // so they are loaded after all block ids.
+            if (configItem.indexOf(':') >= 0) {
+                overrideItems.add(configItem);
+                continue;
+            }
+
             int typeId;
             try {
                 typeId = Integer.valueOf(configItem);
@@ -555,50 +724,87 @@ public final class BlockData {
                 continue;
             }
 
-            ConfigurationSection blockSection = configuration.getConfigurationSection(configItem);
-
-            data.solid(blockSection.getBoolean("solid", data.solid));
-            data.drillable(blockSection.getBoolean("drillable", data.drillable));
-            String breakTime = blockSection.getString("drillTime");
-            if (breakTime != null) {
-                if (breakTime.equals("instant")) {
-                    data.drillTime(breakTimeInstant);
-                } else if (breakTime.equals("netherrack")) {
-                    data.drillTime(breakTimeNetherrack);
-                } else if (breakTime.equals("fast")) {
-                    data.drillTime(breakTimeFast);
-                } else if (breakTime.equals("medium")) {
-                    data.drillTime(breakTimeMedium);
-                } else if (breakTime.equals("slow")) {
-                    data.drillTime(breakTimeSlow);
-                } else if (breakTime.equals("tough")) {
-                    data.drillTime(breakTimeTough);
-                } else if (breakTime.equals("obsidian")) {
-                    data.drillTime(breakTimeObsidian);
-                } else {
-                    // It might be an int, so try that instead.
-                    data.drillTime(new BreakTime(Math.max(blockSection.getInt("drillTime", 1), 1)));
-                }
+            data.load(configuration.getConfigurationSection(configItem), true);
+        }
+
+        for (String configItem : overrideItems) {
+            BlockData data;
+            try {
+                int separator = configItem.indexOf(':');
+                data = set(Integer.valueOf(configItem.substring(0, separator).trim()), Integer.valueOf(configItem.substring(separator + 1).trim()));
+            } catch (Exception e) {
+                MachinaCore.log.warning("MachinaCore: Could not parse block data for id and data value: " + configItem);
+                continue;
             }
-            data.drop(blockSection.getInt("drop", data.drop));
-            data.data((short) blockSection.getInt("data", data.data));
-            data.dropMin(blockSection.getInt("dropMin", data.dropMin));
-            data.dropRandom(blockSection.getInt("dropRandom", data.dropRandom));
-            data.copyData(blockSection.getBoolean("copyData", data.copyData));
-            data.inventory(blockSection.getBoolean("hasInventory", data.hasInventory));
-            data.attached(blockSection.getBoolean("attached", data.attached));
+            if (data == null) {
+                MachinaCore.log.warning("MachinaCore: Given block data id or data value invalid: " + configItem);
+                continue;
+            }
+
+            data.load(configuration.getConfigurationSection(configItem), false);
         }
     }
 
+    /**
+     * Loads the properties of this entry from the given section.
+     * 
+     * @param blockSection
+     *            The section to load from
+     * @param blockId
+     *            True if this entry is a block id, false if it is an override
+     *            for a data value. Overrides only have the properties that
+     *            can differ per data value.
+     */
+    private final void load(ConfigurationSection blockSection, boolean blockId) {
+        solid(blockSection.getBoolean("solid", getBit(solid, entry)));
+        drillable(blockSection.getBoolean("drillable", getBit(drillable, entry)));
+        String breakTime = blockSection.getString("drillTime");
+        if (breakTime != null) {
+            if (breakTime.equals("instant")) {
+                drillTime(breakTimeInstant);
+            } else if (breakTime.equals("netherrack")) {
+                drillTime(breakTimeNetherrack);
+            } else if (breakTime.equals("fast")) {
+                drillTime(breakTimeFast);
+            } else if (breakTime.equals("medium")) {
+                drillTime(breakTimeMedium);
+            } else if (breakTime.equals("slow")) {
+                drillTime(breakTimeSlow);
+            } else if (breakTime.equals("tough")) {
+                drillTime(breakTimeTough);
+            } else if (breakTime.equals("obsidian")) {
+                drillTime(breakTimeObsidian);
+            } else {
+                // It might be an int, so try that instead.
+                drillTimeTicks(Math.max(blockSection.getInt("drillTime", 1), 1));
+            }
+        }
+        drop(blockSection.getInt("drop", drop[entry]));
+        data((short) blockSection.getInt("data", dropData[entry]));
+        dropMin(blockSection.getInt("dropMin", dropMin[entry]));
+        dropRandom(blockSection.getInt("dropRandom", dropRandom[entry]));
+        if (!blockId)
+            return;
+        copyData(blockSection.getBoolean("copyData", getBit(copyData, entry)));
+        inventory(blockSection.getBoolean("hasInventory", getBit(hasInventory, entry)));
+        attached(blockSection.getBoolean("attached", getBit(attached, entry)));
+    }
+
     static final void loadBreakTimeConfiguration(ConfigurationSection configuration) {
         if (configuration == null)
             return;
-        breakTimeNetherrack.time = Math.max(configuration.getInt("netherrack", breakTimeNetherrack.time), 1);
-        breakTimeFast.time = Math.max(configuration.getInt("fast", breakTimeFast.time), 1);
-        breakTimeMedium.time = Math.max(configuration.getInt("medium", breakTimeMedium.time), 1);
-        breakTimeSlow.time = Math.max(configuration.getInt("slow", breakTimeSlow.time), 1);
-        breakTimeTough.time = Math.max(configuration.getInt("tough", breakTimeTough.time), 1);
-        breakTimeObsidian.time = Math.max(configuration.getInt("obsidian", breakTimeObsidian.time), 1);
+        breakTimes[breakTimeNetherrack] = Math.max(configuration.getInt("netherrack", breakTimes[breakTimeNetherrack]), 1);
+        breakTimes[breakTimeFast] = Math.max(configuration.getInt("fast", breakTimes[breakTimeFast]), 1);
+        breakTimes[breakTimeMedium] = Math.max(configuration.getInt("medium", breakTimes[breakTimeMedium]), 1);
+        breakTimes[breakTimeSlow] = Math.max(configuration.getInt("slow", breakTimes[breakTimeSlow]), 1);
+        breakTimes[breakTimeTough] = Math.max(configuration.getInt("tough", breakTimes[breakTimeTough]), 1);
+        breakTimes[breakTimeObsidian] = Math.max(configuration.getInt("obsidian", breakTimes[breakTimeObsidian]), 1);
+
+        // Drill times are looked up directly, so bring them up to date.
+        for (int i = 0; i < entries; i++) {
+            if (drillTimeClass[i] != breakTimeCustom)
+                drillTime[i] = breakTimes[drillTimeClass[i]];
+        }
     }
 
     /**
@@ -609,11 +815,20 @@ public final class BlockData {
      * @return True if the block type is solid
      */
     public static final boolean isSolid(final int typeId) {
-        try {
-            return blockId[typeId].solid;
-        } catch (Exception e) {
-            return false;
-        }
+        return isValid(typeId) && getBit(solid, typeId);
+    }
+
+    /**
+     * Returns true if the given block type with the given data value is solid.
+     * 
+     * @param typeId
+     *            The block id to check
+     * @param data
+     *            The data value of the block
+     * @return True if the block is solid
+     */
+    public static final boolean isSolid(final int typeId, final int data) {
+        return isValid(typeId) && getBit(solid, entry(typeId, data));
     }
 
     /**
@@ -624,11 +839,21 @@ public final class BlockData {
      * @return True if the block type can be drilled
      */
     public static final boolean isDrillable(final int typeId) {
-        try {
-            return blockId[typeId].drillable;
-        } catch (Exception e) {
-            return false;
-        }
+        return isValid(typeId) && getBit(drillable, typeId);
+    }
+
+    /**
+     * Returns true if the given block type with the given data value can be
+     * drilled.
+     * 
+     * @param typeId
+     *            The block id to check
+     * @param data
+     *            The data value of the block
+     * @return True if the block can be drilled
+     */
+    public static final boolean isDrillable(final int typeId, final int data) {
+        return isValid(typeId) && getBit(drillable, entry(typeId, data));
     }
 
     /**
@@ -639,11 +864,34 @@ public final class BlockData {
      * @return The drill time in server ticks
      */
     public static final int getDrillTime(final int typeId) {
-        try {
-            return blockId[typeId].drillTime.time;
-        } catch (Exception e) {
-            return breakTimeInstant.time;
-        }
+        return isValid(typeId) ? drillTime[typeId] : breakTimes[breakTimeInstant];
+    }
+
+    /**
+     * Returns the drill time (in server ticks) for the given block type with
+     * the given data value.
+     * 
+     * @param typeId
+     *            The block id to check
+     * @param data
+     *            The data value of the block
+     * @return The drill time in server ticks
+     */
+    public static final int getDrillTime(final int typeId, final int data) {
+        return isValid(typeId) ? drillTime[entry(typeId, data)] : breakTimes[breakTimeInstant];
+    }
+
+    /**
+     * Returns true if some properties of the given block type are overridden
+     * for specific data values. Only then does it make a difference whether
+     * the data value is passed to the lookup functions.
+     * 
+     * @param typeId
+     *            The block id to check
+     * @return True if the block type has overrides per data value.
+     */
+    public static final boolean hasDataOverrides(final int typeId) {
+        return isValid(typeId) && overrides[typeId] != 0;
     }
 
     /**
@@ -654,11 +902,7 @@ public final class BlockData {
      * @return True if the block type has data to be copied.
      */
     public static final boolean copyData(final int typeId) {
-        try {
-            return blockId[typeId].copyData;
-        } catch (Exception e) {
-            return false;
-        }
+        return isValid(typeId) && getBit(copyData, typeId);
     }
 
     /**
@@ -669,11 +913,7 @@ public final class BlockData {
      * @return True if the block type has an inventory.
      */
     public static final boolean hasInventory(final int typeId) {
-        try {
-            return blockId[typeId].hasInventory;
-        } catch (Exception e) {
-            return false;
-        }
+        return isValid(typeId) && getBit(hasInventory, typeId);
     }
 
     /**
@@ -685,10 +925,6 @@ public final class BlockData {
      * @return True if the block type is attached.
      */
     public static final boolean isAttached(final int typeId) {
-        try {
-            return blockId[typeId].attached;
-        } catch (Exception e) {
-            return false;
-        }
+        return isValid(typeId) && getBit(attached, typeId);
     }
 }
@@ -0,0 +1,151 @@
+package me.lyneira.MachinaCore;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import me.lyneira.util.LongHashMap;
+
+import org.bukkit.World;
+
+/**
+ * Map from block locations to values. Each world has its own
+ * {@link LongHashMap} keyed by the packed coordinates of the location, so a
+ * lookup needs neither a {@link BlockLocation} nor a boxed key.
+ * 
+ * @author Lyneira
+ * @param <T>
+ *            The type of value stored in the index
+ */
+final class BlockIndex<T> {
+    private final Map<World, LongHashMap<T>> worlds = new HashMap<World, LongHashMap<T>>();
+    private World lastWorld = null;
+    private LongHashMap<T> lastBlocks = null;
+    private int size = 0;
+
+    /**
+     * Returns the map of the given world, creating it if asked to.
+     */
+    private final LongHashMap<T> blocks(final World world, final boolean create) {
+        if (world == lastWorld && lastBlocks != null)
+            return lastBlocks;
+        LongHashMap<T> blocks = worlds.get(world);
+        if (blocks == null) {
+            if (!create)
+                return null;
+            blocks = new LongHashMap<T>();
+            worlds.put(world, blocks);
+        }
+        lastWorld = world;
+        lastBlocks = blocks;
+        return blocks;
+    }
+
+    /**
+     * Returns the value at the given location.
+     * 
+     * @param location
+     *            The location to look up
+     * @return The value, or null if there is none.
+     */
+    final T get(final BlockLocation location) {
+        return get(location.getWorld(), location.x, location.y, location.z);
+    }
+
+    /**
+     * Returns the value at the given coordinates.
+     * 
+     * @param world
+     *            The world of the location
+     * @param x
+     *            The x-coordinate
+     * @param y
+     *            The y-coordinate
+     * @param z
+     *            The z-coordinate
+     * @return The value, or null if there is none.
+     */
+    final T get(final World world, final int x, final int y, final int z) {
+        if (size == 0)
+            return null;
+        final LongHashMap<T> blocks = blocks(world, false);
+        if (blocks == null)
+            return null;
+        return blocks.get(BlockLocation.pack(x, y, z));
+    }
+
+    /**
+     * Returns true if there is a value at the given location.
+     * 
+     * @param location
+     *            The location to look up
+     * @return True if there is a value
+     */
+    final boolean contains(final BlockLocation location) {
+        return get(location) != null;
+    }
+
+    /**
+     * Puts a value at the given location.
+     * 
+     * @param location
+     *            The location of the value
+     * @param value
+     *            The value, which may not be null
+     * @return The value previously at the location, or null if there was none.
+     */
+    final T put(final BlockLocation location, final T value) {
+        final T previous = blocks(location.getWorld(), true).put(location.key(), value);
+        if (previous == null)
+            size++;
+        return previous;
+    }
+
+    /**
+     * Removes the value at the given location.
+     * 
+     * @param location
+     *            The location of the value
+     * @return The value that was removed, or null if there was none.
+     */
+    final T remove(final BlockLocation location) {
+        final LongHashMap<T> blocks = blocks(location.getWorld(), false);
+        if (blocks == null)
+            return null;
+        final T previous = blocks.remove(location.key());
+        if (previous != null)
+            size--;
+        return previous;
+    }
+
+    /**
+     * @return True if the index has no values.
+     */
+    final boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds all values in the index to the given collection.
+     * 
+     * @param result
+     *            The collection to add the values to
+     */
+    final void collectAll(final Collection<? super T> result) {
+        for (LongHashMap<T> blocks : worlds.values()) {
+            for (LongHashMap.Cursor<T> cursor = blocks.cursor(); cursor.next();) {
+                result.add(cursor.value());
+            }
+        }
+    }
+
+    /**
+     * Removes all values from the index.
+     */
+    final void clear() {
+        worlds.clear();
+        lastWorld = null;
+        lastBlocks = null;
+        size = 0;
+    }
+}
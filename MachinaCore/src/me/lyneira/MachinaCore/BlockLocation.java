@@ -76,7 +76,7 @@ public final class BlockLocation {
      * @return True if this location's type matches the given material
      */
     public final boolean checkType(final Material material) {
-        return (world.getBlockTypeIdAt(x, y, z) == material.getId());
+        return (BlockAccess.getTypeId(world, x, y, z) == material.getId());
     }
 
     /**
@@ -86,7 +86,7 @@ public final class BlockLocation {
      * @return True if this location's type matches one the given materials
      */
     public final boolean checkTypes(final Material... materials) {
-        int id = world.getBlockTypeIdAt(x, y, z);
+        int id = BlockAccess.getTypeId(world, x, y, z);
         for (Material m : materials) {
             if (id == m.getId()) {
                 return true;
@@ -99,14 +99,15 @@ public final class BlockLocation {
      * @return True if the location is safe to move into for a machina.
      */
     public final boolean isEmptyForCollision() {
-        switch (world.getBlockAt(x, y, z).getType()) {
-        case AIR:
-        case SNOW:
-        case LONG_GRASS:
-            return true;
-        default:
-            return false;
-        }
+        return isEmptyForCollision(BlockAccess.getTypeId(world, x, y, z));
+    }
+
+    /**
+     * @return True if a block of the given type is safe to move into for a
+     *         machina.
+     */
+    static final boolean isEmptyForCollision(final int typeId) {
+        return typeId == 0 || typeId == Material.SNOW.getId() || typeId == Material.LONG_GRASS.getId();
     }
 
     /**
@@ -115,7 +116,7 @@ public final class BlockLocation {
      * @return The {@link Material} at this location
      */
     public final Material getType() {
-        return world.getBlockAt(x, y, z).getType();
+        return Material.getMaterial(BlockAccess.getTypeId(world, x, y, z));
     }
 
     /**
@@ -124,7 +125,16 @@ public final class BlockLocation {
      * @return The Type Id at this location
      */
     public final int getTypeId() {
-        return world.getBlockTypeIdAt(x, y, z);
+        return BlockAccess.getTypeId(world, x, y, z);
+    }
+
+    /**
+     * Returns the data at this {@link BlockLocation}
+     * 
+     * @return The data at this location
+     */
+    public final byte getData() {
+        return BlockAccess.getData(world, x, y, z);
     }
 
     /**
@@ -134,7 +144,7 @@ public final class BlockLocation {
      *            The Material to set to
      */
     public final void setType(final Material type) {
-        world.getBlockAt(x, y, z).setType(type);
+        BlockAccess.setTypeId(world, x, y, z, type.getId());
     }
 
     /**
@@ -144,7 +154,7 @@ public final class BlockLocation {
      *            The type id to set
      */
     public final void setTypeId(final int typeId) {
-        world.getBlockAt(x, y, z).setTypeId(typeId);
+        BlockAccess.setTypeId(world, x, y, z, typeId);
     }
 
     /**
@@ -154,7 +164,7 @@ public final class BlockLocation {
      *            The data to set
      */
     public final void setData(final byte data) {
-        world.getBlockAt(x, y, z).setData(data);
+        BlockAccess.setData(world, x, y, z, data);
     }
 
     /**
@@ -166,7 +176,7 @@ public final class BlockLocation {
      *            The data to set
      */
     public final void setTypeIdAndData(final int typeId, final byte data, boolean applyPhysics) {
-        world.getBlockAt(x, y, z).setTypeIdAndData(typeId, data, applyPhysics);
+        BlockAccess.setTypeIdAndData(world, x, y, z, typeId, data, applyPhysics);
     }
 
     /**
@@ -175,14 +185,14 @@ public final class BlockLocation {
      * @return True if the {@link BlockLocation} contains air.
      */
     public final boolean isEmpty() {
-        return world.getBlockTypeIdAt(x, y, z) == 0;
+        return BlockAccess.getTypeId(world, x, y, z) == 0;
     }
 
     /**
      * Sets this {@link BlockLocation} to air.
      */
     public final void setEmpty() {
-        world.getBlockAt(x, y, z).setTypeIdAndData(0, (byte) 0, true);
+        BlockAccess.setTypeIdAndData(world, x, y, z, 0, (byte) 0, true);
     }
 
     /**
@@ -264,9 +274,57 @@ public final class BlockLocation {
         return new Location(world, x + 0.5, y + 0.5, z + 0.5);
     }
 
+    /**
+     * Packs the given block coordinates into a single long. x and z each take
+     * 26 bits and y takes 12 bits, which covers the whole height of a world
+     * and the full range of coordinates the server allows.
+     * 
+     * @param x
+     *            The x-coordinate
+     * @param y
+     *            The y-coordinate
+     * @param z
+     *            The z-coordinate
+     * @return The packed coordinates
+     */
+    public static final long pack(final int x, final int y, final int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    /**
+     * @return The x-coordinate of the given packed coordinates.
+     */
+    public static final int unpackX(final long key) {
+        return (int) (key >> 38);
+    }
+
+    /**
+     * @return The y-coordinate of the given packed coordinates.
+     */
+    public static final int unpackY(final long key) {
+        return (int) (key << 52 >> 52);
+    }
+
+    /**
+     * @return The z-coordinate of the given packed coordinates.
+     */
+    public static final int unpackZ(final long key) {
+        return (int) (key << 26 >> 38);
+    }
+
+    /**
+     * Returns the coordinates of this location packed into a single long. Two
+     * locations in the same world are equal exactly when their keys are.
+     * 
+     * @return The packed coordinates
+     */
+    public final long key() {
+        return pack(x, y, z);
+    }
+
     @Override
     public int hashCode() {
-        return y << 24 ^ x ^ z ^ world.hashCode();
+        return (int) ((key() * 0x9E3779B97F4A7C15L) >>> 32) ^ world.hashCode();
     }
 
     @Override
@@ -9,9 +9,9 @@ import org.bukkit.block.BlockFace;
  * @author Lyneira
  */
 public final class BlockVector {
-    private final int x;
-    private final int y;
-    private final int z;
+    final int x;
+    final int y;
+    final int z;
 
     /**
      * Constructs a BlockVector from the given x, y and z values.
@@ -1,8 +1,11 @@
 package me.lyneira.MachinaCore;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import me.lyneira.util.LongHashSet;
+
 import org.bukkit.block.BlockFace;
 
 /**
@@ -20,6 +23,10 @@ import org.bukkit.block.BlockFace;
 class BlueprintDifference {
     final BlockVector[] plus;
     final BlockVector[] minus;
+    /**
+     * The type ids of the blueprint blocks in the minus difference.
+     */
+    final int[] minusTypeIds;
 
     /**
      * Constructs a {@link BlueprintDifference} for the given blueprint in the
@@ -27,85 +34,88 @@ class BlueprintDifference {
      * 
      * @param blueprint
      *            An array representing the blueprint to be calculated for.
-     * @param blueprintSize
-     *            The size of the blueprint array.
+     * @param vectors
+     *            The vectors of the blueprint at its current yaw.
+     * @param occupied
+     *            The packed vectors, as returned by
+     *            {@link #keys(BlockVector[])}.
      * @param face
      *            The direction to calculate for.
      */
-    BlueprintDifference(final BlueprintBlock[] blueprint, final BlockVector[] vectors, final int blueprintSize, final BlockFace face) {
-        List<BlockVector> differenceMinus = new ArrayList<BlockVector>(blueprintSize);
-        List<BlockVector> differencePlus = new ArrayList<BlockVector>(blueprintSize);
-        List<BlockVector> originalVectors = new ArrayList<BlockVector>(blueprintSize);
-        List<BlockVector> movedVectors = new ArrayList<BlockVector>(blueprintSize);
+    BlueprintDifference(final BlueprintBlock[] blueprint, final BlockVector[] vectors, final LongHashSet occupied, final BlockFace face) {
+        final int dx = face.getModX();
+        final int dy = face.getModY();
+        final int dz = face.getModZ();
+        List<BlockVector> differencePlus = new ArrayList<BlockVector>(vectors.length);
+        List<BlockVector> differenceMinus = new ArrayList<BlockVector>(vectors.length);
+        int[] typeIds = new int[vectors.length];
 
-        for (BlockVector vector : vectors) {
-            originalVectors.add(vector);
-            movedVectors.add(vector.add(face));
-        }
-
-        differencePlus.addAll(movedVectors);
-        differencePlus.removeAll(originalVectors);
-        plus = differencePlus.toArray(new BlockVector[0]);
-
-        // The negative difference must always include attached blocks.
-        for (int i = 0; i < blueprintSize; i++) {
-            BlockVector vector = originalVectors.get(i);
-            if (blueprint[i].attached || !movedVectors.contains(vector)) {
+        for (int i = 0; i < vectors.length; i++) {
+            BlockVector vector = vectors[i];
+            // The moved vector is new if nothing currently occupies it.
+            if (!occupied.contains(BlockLocation.pack(vector.x + dx, vector.y + dy, vector.z + dz)))
+                differencePlus.add(vector.add(face));
+            // The vector stays occupied if the block behind it moves into
+            // it. The negative difference must always include attached
+            // blocks.
+            if (blueprint[i].attached || !occupied.contains(BlockLocation.pack(vector.x - dx, vector.y - dy, vector.z - dz))) {
+                typeIds[differenceMinus.size()] = blueprint[i].typeId;
                 differenceMinus.add(vector);
             }
         }
-        minus = differenceMinus.toArray(new BlockVector[0]);
+        plus = differencePlus.toArray(new BlockVector[differencePlus.size()]);
+        minus = differenceMinus.toArray(new BlockVector[differenceMinus.size()]);
+        minusTypeIds = Arrays.copyOf(typeIds, minus.length);
     }
 
     /**
-     * Calculates the positive difference for a teleportation of the given
-     * blueprint by the given {@link BlockVector}.
+     * Constructs a {@link BlueprintDifference} for the given blueprint in the
+     * direction of BlockFace.
      * 
+     * @param blueprint
+     *            An array representing the blueprint to be calculated for.
      * @param vectors
-     *            An array representing the vectors to calculate for.
+     *            The vectors of the blueprint at its current yaw.
      * @param blueprintSize
-     *            The size of the array.
-     * @param teleportBy
-     *            The vector to calculate for.
-     * @return An array of vectors representing the positive difference.
+     *            The size of the blueprint array.
+     * @param face
+     *            The direction to calculate for.
      */
-    static BlockVector[] teleportDifference(final BlockVector[] vectors, final int blueprintSize, final BlockVector teleportBy) {
-        List<BlockVector> originalVectors = new ArrayList<BlockVector>(blueprintSize);
-        List<BlockVector> movedVectors = new ArrayList<BlockVector>(blueprintSize);
+    BlueprintDifference(final BlueprintBlock[] blueprint, final BlockVector[] vectors, final int blueprintSize, final BlockFace face) {
+        this(blueprint, vectors, keys(vectors), face);
+    }
 
+    /**
+     * Returns a set of the given vectors packed with
+     * {@link BlockLocation#pack(int, int, int)}.
+     * 
+     * @param vectors
+     *            The vectors to pack
+     * @return A new set of packed vectors
+     */
+    static LongHashSet keys(final BlockVector[] vectors) {
+        LongHashSet result = new LongHashSet(vectors.length);
         for (BlockVector vector : vectors) {
-            originalVectors.add(vector);
-            movedVectors.add(vector.add(teleportBy));
+            result.add(BlockLocation.pack(vector.x, vector.y, vector.z));
         }
-
-        movedVectors.removeAll(originalVectors);
-
-        return movedVectors.toArray(new BlockVector[0]);
+        return result;
     }
 
     /**
-     * Calculates the positive difference for a rotation of the given blueprint
-     * by the given {@link BlockRotation}.
+     * Returns the vectors that are not in the given set.
      * 
      * @param vectors
-     *            An array representing the vectors to calculate for.
-     * @param blueprintSize
-     *            The size of the array.
-     * @param rotateBy
-     *            The rotation to calculate for.
-     * @return An array of vectors representing the positive difference.
+     *            The vectors to filter
+     * @param filterBy
+     *            The packed vectors to leave out
+     * @return A new array of vectors
      */
-    static BlockVector[] rotateDifference(final BlockVector[] vectors, final int blueprintSize, final BlockRotation rotateBy) {
-        List<BlockVector> originalVectors = new ArrayList<BlockVector>(blueprintSize);
-        List<BlockVector> rotatedVectors = new ArrayList<BlockVector>(blueprintSize);
-
+    static BlockVector[] difference(final BlockVector[] vectors, final LongHashSet filterBy) {
+        List<BlockVector> result = new ArrayList<BlockVector>(vectors.length);
         for (BlockVector vector : vectors) {
-            originalVectors.add(vector);
-            rotatedVectors.add(vector.rotated(rotateBy));
+            if (!filterBy.contains(BlockLocation.pack(vector.x, vector.y, vector.z)))
+                result.add(vector);
         }
-
-        rotatedVectors.removeAll(originalVectors);
-
-        return rotatedVectors.toArray(new BlockVector[0]);
+        return result.toArray(new BlockVector[result.size()]);
     }
 }
@@ -0,0 +1,195 @@
+package me.lyneira.MachinaCore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.block.BlockFace;
+
+/**
+ * An ordered set of {@link MachinaBlueprint}s indexed by anchor type id, so
+ * that detection only runs the blueprints that can match the anchor block.
+ * Blueprints that are not an {@link AnchoredBlueprint} are candidates for
+ * every anchor. Candidates are always returned in registration order.
+ * 
+ * @author Lyneira
+ */
+public final class BlueprintIndex {
+    private static final Entry[] noEntries = new Entry[0];
+
+    /**
+     * This is a hashmap of the blueprint's class name to its blueprint. This
+     * prevents accidental double insertions by buggy code.
+     */
+    private final Map<Class<?>, Entry> entries = new LinkedHashMap<Class<?>, Entry>();
+    /**
+     * Candidates for each anchor type id up to the highest declared id.
+     * Rebuilt lazily after the set of blueprints changes.
+     */
+    private Entry[][] byTypeId = null;
+    /**
+     * Candidates for anchor type ids no blueprint declared.
+     */
+    private Entry[] wildcards = noEntries;
+    /**
+     * Incremented whenever a blueprint is added or removed.
+     */
+    private int version = 0;
+
+    /**
+     * A blueprint along with its lever face constraint.
+     */
+    static final class Entry {
+        final MachinaBlueprint blueprint;
+        final int[] anchorTypeIds;
+        /**
+         * Bit mask of the ordinals of the allowed lever faces, -1 for any.
+         */
+        private final int leverFaces;
+
+        private Entry(MachinaBlueprint blueprint) {
+            this.blueprint = blueprint;
+            if (blueprint instanceof AnchoredBlueprint) {
+                AnchoredBlueprint anchored = (AnchoredBlueprint) blueprint;
+                anchorTypeIds = anchored.getAnchorTypeIds();
+                BlockFace[] faces = anchored.getLeverFaces();
+                if (faces == null) {
+                    leverFaces = -1;
+                } else {
+                    int mask = 0;
+                    for (BlockFace face : faces) {
+                        mask |= 1 << face.ordinal();
+                    }
+                    leverFaces = mask;
+                }
+            } else {
+                anchorTypeIds = null;
+                leverFaces = -1;
+            }
+        }
+
+        /**
+         * Returns true if this blueprint can be activated by a lever on the
+         * given face. A null face means detection without a lever, which is
+         * always allowed.
+         */
+        final boolean acceptsLeverFace(BlockFace leverFace) {
+            return leverFace == null || (leverFaces & (1 << leverFace.ordinal())) != 0;
+        }
+
+        private boolean acceptsAnchor(int typeId) {
+            if (anchorTypeIds == null)
+                return true;
+            for (int id : anchorTypeIds) {
+                if (id == typeId)
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Adds a blueprint to the index, replacing any blueprint of the same class.
+     * 
+     * @param blueprint
+     *            The blueprint to add
+     */
+    public final void add(MachinaBlueprint blueprint) {
+        entries.put(blueprint.getClass(), new Entry(blueprint));
+        byTypeId = null;
+        version++;
+    }
+
+    /**
+     * Removes the blueprint of the same class as the given blueprint.
+     * 
+     * @param blueprint
+     *            The blueprint to remove
+     */
+    public final void remove(MachinaBlueprint blueprint) {
+        if (entries.remove(blueprint.getClass()) != null) {
+            byTypeId = null;
+            version++;
+        }
+    }
+
+    /**
+     * Removes all blueprints from the index.
+     */
+    public final void clear() {
+        entries.clear();
+        byTypeId = null;
+        version++;
+    }
+
+    /**
+     * Returns a number that changes whenever a blueprint is added or removed.
+     */
+    final int version() {
+        return version;
+    }
+
+    /**
+     * Returns all blueprints in the index in registration order.
+     * 
+     * @return An unmodifiable collection of blueprints
+     */
+    public final Collection<MachinaBlueprint> blueprints() {
+        List<MachinaBlueprint> result = new ArrayList<MachinaBlueprint>(entries.size());
+        for (Entry entry : entries.values()) {
+            result.add(entry.blueprint);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns the blueprints that can have an anchor of the given type, in
+     * registration order. The returned array must not be modified.
+     * 
+     * @param typeId
+     *            The type id of the anchor block
+     * @return An array of candidate entries, which may be empty
+     */
+    final Entry[] candidates(int typeId) {
+        if (byTypeId == null)
+            rebuild();
+        if (typeId >= 0 && typeId < byTypeId.length)
+            return byTypeId[typeId];
+        return wildcards;
+    }
+
+    /**
+     * Rebuilds the candidate arrays for every declared anchor type id.
+     */
+    private void rebuild() {
+        int limit = 0;
+        List<Entry> wildcardList = new ArrayList<Entry>();
+        for (Entry entry : entries.values()) {
+            if (entry.anchorTypeIds == null) {
+                wildcardList.add(entry);
+                continue;
+            }
+            for (int id : entry.anchorTypeIds) {
+                if (id >= limit)
+                    limit = id + 1;
+            }
+        }
+        wildcards = wildcardList.toArray(noEntries);
+
+        Entry[][] table = new Entry[limit][];
+        List<Entry> matching = new ArrayList<Entry>();
+        for (int typeId = 0; typeId < limit; typeId++) {
+            matching.clear();
+            for (Entry entry : entries.values()) {
+                if (entry.acceptsAnchor(typeId))
+                    matching.add(entry);
+            }
+            // Share the wildcard array for ids no blueprint declared.
+            table[typeId] = matching.size() == wildcards.length ? wildcards : matching.toArray(noEntries);
+        }
+        byTypeId = table;
+    }
+}
@@ -0,0 +1,184 @@
+package me.lyneira.MachinaCore;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+
+/**
+ * A list of {@link BlueprintBlock}s at a single rotation, compiled into flat
+ * arrays of offsets and type ids for fast matching against the world.
+ * <p>
+ * The blocks are checked in order of how selective they are. Blocks made of
+ * distinctive materials such as furnaces, chests or diamond blocks come first,
+ * and materials that make up most of the terrain come last. A detection at a
+ * lever that is not part of a machina will then usually fail on the first or
+ * second read instead of after checking every stone block around it.
+ * 
+ * @author Lyneira
+ */
+public final class BlueprintKernel {
+    private static final int[] commonness = new int[256];
+
+    static {
+        // Terrain
+        setCommonness(3, Material.AIR, Material.STONE, Material.GRASS, Material.DIRT, Material.WATER, Material.STATIONARY_WATER, Material.LAVA,
+                Material.STATIONARY_LAVA, Material.SAND, Material.GRAVEL, Material.LEAVES, Material.LONG_GRASS, Material.SNOW, Material.NETHERRACK);
+        // Common building materials
+        setCommonness(2, Material.COBBLESTONE, Material.WOOD, Material.LOG, Material.SANDSTONE, Material.GLASS, Material.WOOL, Material.BRICK,
+                Material.SMOOTH_BRICK, Material.FENCE, Material.STEP, Material.DOUBLE_STEP, Material.WOOD_STAIRS, Material.COBBLESTONE_STAIRS);
+        // Common detail blocks
+        setCommonness(1, Material.TORCH, Material.LEVER, Material.IRON_FENCE, Material.RAILS, Material.LADDER, Material.SIGN_POST, Material.WALL_SIGN);
+    }
+
+    private static void setCommonness(final int rank, final Material... materials) {
+        for (Material material : materials) {
+            commonness[material.getId()] = rank;
+        }
+    }
+
+    /**
+     * The number of blocks in this kernel.
+     */
+    public final int size;
+    private final int[] dx;
+    private final int[] dy;
+    private final int[] dz;
+    private final int[] typeIds;
+
+    /**
+     * Compiles the given blocks at the given rotation.
+     * 
+     * @param blocks
+     *            The blocks to compile
+     * @param yaw
+     *            The rotation to compile for
+     * @param includeKey
+     *            Whether to include key blocks. Detection leaves them out,
+     *            verification does not.
+     */
+    public BlueprintKernel(final Collection<BlueprintBlock> blocks, final BlockRotation yaw, final boolean includeKey) {
+        this(order(blocks, includeKey), yaw);
+    }
+
+    private BlueprintKernel(final BlueprintBlock[] ordered, final BlockRotation yaw) {
+        size = ordered.length;
+        dx = new int[size];
+        dy = new int[size];
+        dz = new int[size];
+        typeIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            BlockVector vector = ordered[i].vector(yaw);
+            dx[i] = vector.x;
+            dy[i] = vector.y;
+            dz[i] = vector.z;
+            typeIds[i] = ordered[i].typeId;
+        }
+    }
+
+    /**
+     * Compiles the given blocks for every rotation.
+     * 
+     * @param blocks
+     *            The blocks to compile
+     * @param includeKey
+     *            Whether to include key blocks
+     * @return A map from each rotation to its kernel
+     */
+    public static Map<BlockRotation, BlueprintKernel> compileAll(final Collection<BlueprintBlock> blocks, final boolean includeKey) {
+        // The order does not depend on the rotation, so sort only once.
+        BlueprintBlock[] ordered = order(blocks, includeKey);
+        Map<BlockRotation, BlueprintKernel> result = new EnumMap<BlockRotation, BlueprintKernel>(BlockRotation.class);
+        for (BlockRotation yaw : BlockRotation.values()) {
+            result.put(yaw, new BlueprintKernel(ordered, yaw));
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if every block of this kernel is present in relation to
+     * the given anchor.
+     * 
+     * @param anchor
+     *            The anchor to match at
+     * @return True if all blocks match
+     */
+    public final boolean match(final BlockLocation anchor) {
+        return match(anchor.getWorld(), anchor.x, anchor.y, anchor.z);
+    }
+
+    /**
+     * Returns true if every block of this kernel is present in relation to
+     * the given anchor coordinates.
+     * 
+     * @param world
+     *            The world of the anchor
+     * @param x
+     *            The x-coordinate of the anchor
+     * @param y
+     *            The y-coordinate of the anchor
+     * @param z
+     *            The z-coordinate of the anchor
+     * @return True if all blocks match
+     */
+    public final boolean match(final World world, final int x, final int y, final int z) {
+        for (int i = 0; i < size; i++) {
+            if (BlockAccess.getTypeId(world, x + dx[i], y + dy[i], z + dz[i]) != typeIds[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sorts the blocks to check by selectivity: rare materials first, then
+     * materials that occur less often in the blueprint itself, then blocks
+     * closer to the anchor. Remaining ties keep the blueprint order.
+     */
+    private static BlueprintBlock[] order(final Collection<BlueprintBlock> blocks, final boolean includeKey) {
+        final Map<Integer, Integer> occurrences = new HashMap<Integer, Integer>();
+        int count = 0;
+        for (BlueprintBlock block : blocks) {
+            if (block.key && !includeKey)
+                continue;
+            Integer previous = occurrences.get(block.typeId);
+            occurrences.put(block.typeId, previous == null ? 1 : previous + 1);
+            count++;
+        }
+        BlueprintBlock[] result = new BlueprintBlock[count];
+        int i = 0;
+        for (BlueprintBlock block : blocks) {
+            if (block.key && !includeKey)
+                continue;
+            result[i++] = block;
+        }
+        // Arrays.sort on objects is stable.
+        Arrays.sort(result, new Comparator<BlueprintBlock>() {
+            @Override
+            public int compare(BlueprintBlock a, BlueprintBlock b) {
+                int result = commonness(a.typeId) - commonness(b.typeId);
+                if (result != 0)
+                    return result;
+                result = occurrences.get(a.typeId) - occurrences.get(b.typeId);
+                if (result != 0)
+                    return result;
+                return distance(a.south) - distance(b.south);
+            }
+        });
+        return result;
+    }
+
+    private static int commonness(final int typeId) {
+        if (typeId < 0 || typeId >= commonness.length)
+            return 0;
+        return commonness[typeId];
+    }
+
+    private static int distance(final BlockVector vector) {
+        return Math.abs(vector.x) + Math.abs(vector.y) + Math.abs(vector.z);
+    }
+}
@@ -1,12 +1,13 @@
 package me.lyneira.MachinaCore;
 
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
 import me.lyneira.util.InventoryManager;
 
-import org.bukkit.block.Block;
+import org.bukkit.World;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
@@ -19,6 +20,10 @@ class BlueprintModule {
     final BlueprintBlock[] blueprint;
     final Map<BlockRotation, BlockVector[]> blueprintVectors = new EnumMap<BlockRotation, BlockVector[]>(BlockRotation.class);
     final int size;
+    /**
+     * Kernels for detecting the non-key blocks at each rotation.
+     */
+    private final Map<BlockRotation, BlueprintKernel> detectKernels;
     private final int[] dataIndices;
     private final int[] inventoryIndices;
 
@@ -41,6 +46,7 @@ class BlueprintModule {
             }
             blueprintVectors.put(rotation, vectors);
         }
+        detectKernels = BlueprintKernel.compileAll(Arrays.asList(blueprint), false);
 
         dataIndices = calculateDataIndices();
         inventoryIndices = calculateInventoryIndices();
@@ -54,15 +60,7 @@ class BlueprintModule {
      * @return True if the non-key blocks are present.
      */
     boolean detectOther(final BlockLocation anchor, final BlockRotation yaw) {
-        BlockVector[] vectors = blueprintVectors.get(yaw);
-        for (int i = 0; i < size; i++) {
-            if (!blueprint[i].key) {
-                if (anchor.getRelative(vectors[i]).getTypeId() != blueprint[i].typeId) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return detectKernels.get(yaw).match(anchor);
     }
 
     /**
@@ -73,13 +71,27 @@ class BlueprintModule {
      * @return An array of bytes of block data
      */
     byte[] getBlockData(final BlockLocation anchor, final BlockRotation yaw) {
-        BlockVector[] vectors = blueprintVectors.get(yaw);
         byte[] result = new byte[dataIndices.length];
+        getBlockData(anchor, yaw, result);
+        return result;
+    }
+
+    /**
+     * Copies the block data for this blueprint into the given array, which
+     * must hold at least {@link #dataCount()} bytes.
+     * 
+     * @param anchor
+     *            The anchor for which to grab data from the blocks
+     * @param result
+     *            The array to copy the data into
+     */
+    void getBlockData(final BlockLocation anchor, final BlockRotation yaw, final byte[] result) {
+        final BlockVector[] vectors = blueprintVectors.get(yaw);
+        final World world = anchor.getWorld();
         for (int i = 0; i < dataIndices.length; i++) {
-            BlockLocation location = anchor.getRelative(vectors[dataIndices[i]]);
-            result[i] = location.getBlock().getData();
+            final BlockVector vector = vectors[dataIndices[i]];
+            result[i] = BlockAccess.getData(world, anchor.x + vector.x, anchor.y + vector.y, anchor.z + vector.z);
         }
-        return result;
     }
 
     /**
@@ -92,10 +104,11 @@ class BlueprintModule {
      *            The byte array to use
      */
     void setBlockData(final BlockLocation anchor, final byte[] data, final BlockRotation yaw) {
-        BlockVector[] vectors = blueprintVectors.get(yaw);
+        final BlockVector[] vectors = blueprintVectors.get(yaw);
+        final World world = anchor.getWorld();
         for (int i = 0; i < dataIndices.length; i++) {
-            Block block = anchor.getRelative(vectors[dataIndices[i]]).getBlock();
-            block.setData(data[i]);
+            final BlockVector vector = vectors[dataIndices[i]];
+            BlockAccess.setData(world, anchor.x + vector.x, anchor.y + vector.y, anchor.z + vector.z, data[i]);
         }
     }
 
@@ -109,15 +122,39 @@ class BlueprintModule {
      * @return A {@link List} of {@link ItemStack} arrays
      */
     ItemStack[][] getBlockInventories(final BlockLocation anchor, final BlockRotation yaw) {
-        BlockVector[] vectors = blueprintVectors.get(yaw);
         ItemStack[][] result = new ItemStack[inventoryIndices.length][];
+        getBlockInventories(anchor, yaw, result);
+        return result;
+    }
+
+    /**
+     * Moves the contents of the inventories in this blueprint into the given
+     * array, which must hold at least {@link #inventoryCount()} slot buffers.
+     * A slot buffer that is missing or has the wrong size is replaced, any
+     * other is filled in place. The inventories are cleared in the process.
+     * 
+     * @param anchor
+     *            The anchor for which to grab inventory from the blocks
+     * @param result
+     *            The slot buffers to move the contents into
+     */
+    void getBlockInventories(final BlockLocation anchor, final BlockRotation yaw, final ItemStack[][] result) {
+        final BlockVector[] vectors = blueprintVectors.get(yaw);
+        final World world = anchor.getWorld();
         for (int i = 0; i < inventoryIndices.length; i++) {
-            Block block = anchor.getRelative(vectors[inventoryIndices[i]]).getBlock();
-            Inventory inventory = InventoryManager.getSafeInventory(block);
-            result[i] = inventory.getContents();
+            final BlockVector vector = vectors[inventoryIndices[i]];
+            Inventory inventory = InventoryManager.getSafeInventory(world.getBlockAt(anchor.x + vector.x, anchor.y + vector.y, anchor.z + vector.z));
+            final int slots = inventory.getSize();
+            ItemStack[] contents = result[i];
+            if (contents == null || contents.length != slots) {
+                contents = new ItemStack[slots];
+                result[i] = contents;
+            }
+            for (int slot = 0; slot < slots; slot++) {
+                contents[slot] = inventory.getItem(slot);
+            }
             inventory.clear();
         }
-        return result;
     }
 
     /**
@@ -130,14 +167,29 @@ class BlueprintModule {
      *            The inventory array to use
      */
     void setBlockInventories(final BlockLocation anchor, final ItemStack[][] inventories, final BlockRotation yaw) {
-        BlockVector[] vectors = blueprintVectors.get(yaw);
+        final BlockVector[] vectors = blueprintVectors.get(yaw);
+        final World world = anchor.getWorld();
         for (int i = 0; i < inventoryIndices.length; i++) {
-            Block block = anchor.getRelative(vectors[inventoryIndices[i]]).getBlock();
-            Inventory inventory = InventoryManager.getSafeInventory(block);
+            final BlockVector vector = vectors[inventoryIndices[i]];
+            Inventory inventory = InventoryManager.getSafeInventory(world.getBlockAt(anchor.x + vector.x, anchor.y + vector.y, anchor.z + vector.z));
             inventory.setContents(inventories[i]);
         }
     }
 
+    /**
+     * @return The number of blocks whose data is copied during a move.
+     */
+    final int dataCount() {
+        return dataIndices.length;
+    }
+
+    /**
+     * @return The number of blocks whose inventory is copied during a move.
+     */
+    final int inventoryCount() {
+        return inventoryIndices.length;
+    }
+
     /**
      * Returns an array of indices whose blocks need their data copied during a
      * move.
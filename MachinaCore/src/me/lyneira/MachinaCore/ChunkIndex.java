@@ -0,0 +1,158 @@
+package me.lyneira.MachinaCore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.lyneira.util.LongHashMap;
+
+import org.bukkit.World;
+
+/**
+ * Spatial index that groups values by the chunk their {@link BlockLocation}
+ * lies in. Chunk coordinates are derived from the block coordinates directly,
+ * so no world lookups are needed to maintain or query the index.
+ * 
+ * @author Lyneira
+ * @param <T>
+ *            The type of value stored in the index
+ */
+final class ChunkIndex<T> {
+    private final Map<World, LongHashMap<List<T>>> worlds = new HashMap<World, LongHashMap<List<T>>>();
+
+    /**
+     * Packs the given chunk coordinates into a single long.
+     */
+    static final long key(final int chunkX, final int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Adds a value to the chunk of the given location.
+     * 
+     * @param location
+     *            The location of the value
+     * @param value
+     *            The value to add
+     */
+    final void add(final BlockLocation location, final T value) {
+        LongHashMap<List<T>> chunks = worlds.get(location.getWorld());
+        if (chunks == null) {
+            chunks = new LongHashMap<List<T>>();
+            worlds.put(location.getWorld(), chunks);
+        }
+        final long key = key(location.x >> 4, location.z >> 4);
+        List<T> values = chunks.get(key);
+        if (values == null) {
+            values = new ArrayList<T>(2);
+            chunks.put(key, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * Removes a value from the chunk of the given location.
+     * 
+     * @param location
+     *            The location the value was added with
+     * @param value
+     *            The value to remove
+     */
+    final void remove(final BlockLocation location, final T value) {
+        final LongHashMap<List<T>> chunks = worlds.get(location.getWorld());
+        if (chunks == null)
+            return;
+        final long key = key(location.x >> 4, location.z >> 4);
+        final List<T> values = chunks.get(key);
+        if (values == null)
+            return;
+        values.remove(value);
+        if (values.isEmpty()) {
+            chunks.remove(key);
+            if (chunks.isEmpty())
+                worlds.remove(location.getWorld());
+        }
+    }
+
+    /**
+     * Moves a value from the chunk of one location to the chunk of another.
+     * Does nothing if both locations are in the same chunk.
+     * 
+     * @param from
+     *            The location the value was added with
+     * @param to
+     *            The new location of the value
+     * @param value
+     *            The value to move
+     */
+    final void move(final BlockLocation from, final BlockLocation to, final T value) {
+        if (from.getWorld() == to.getWorld() && (from.x >> 4) == (to.x >> 4) && (from.z >> 4) == (to.z >> 4))
+            return;
+        remove(from, value);
+        add(to, value);
+    }
+
+    /**
+     * Adds all values in the given rectangle of chunks to the given collection.
+     * 
+     * @param world
+     *            The world to look in
+     * @param minChunkX
+     *            The lowest chunk x-coordinate, inclusive
+     * @param minChunkZ
+     *            The lowest chunk z-coordinate, inclusive
+     * @param maxChunkX
+     *            The highest chunk x-coordinate, inclusive
+     * @param maxChunkZ
+     *            The highest chunk z-coordinate, inclusive
+     * @param result
+     *            The collection to add the values to
+     */
+    final void collect(final World world, final int minChunkX, final int minChunkZ, final int maxChunkX, final int maxChunkZ, final Collection<? super T> result) {
+        final LongHashMap<List<T>> chunks = worlds.get(world);
+        if (chunks == null)
+            return;
+        if ((long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1) > chunks.size()) {
+            // Fewer occupied chunks than chunks in the rectangle, check each
+            // occupied chunk instead.
+            for (LongHashMap.Cursor<List<T>> cursor = chunks.cursor(); cursor.next();) {
+                final long key = cursor.key();
+                final int chunkX = (int) (key >> 32);
+                final int chunkZ = (int) key;
+                if (chunkX >= minChunkX && chunkX <= maxChunkX && chunkZ >= minChunkZ && chunkZ <= maxChunkZ)
+                    result.addAll(cursor.value());
+            }
+            return;
+        }
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                final List<T> values = chunks.get(key(chunkX, chunkZ));
+                if (values != null)
+                    result.addAll(values);
+            }
+        }
+    }
+
+    /**
+     * Adds all values in the index to the given collection.
+     * 
+     * @param result
+     *            The collection to add the values to
+     */
+    final void collectAll(final Collection<? super T> result) {
+        for (LongHashMap<List<T>> chunks : worlds.values()) {
+            for (LongHashMap.Cursor<List<T>> cursor = chunks.cursor(); cursor.next();) {
+                result.addAll(cursor.value());
+            }
+        }
+    }
+
+    /**
+     * Removes all values from the index.
+     */
+    final void clear() {
+        worlds.clear();
+    }
+}
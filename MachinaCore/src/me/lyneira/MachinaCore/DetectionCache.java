@@ -0,0 +1,304 @@
+package me.lyneira.MachinaCore;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import me.lyneira.util.LongHashMap;
+
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+/**
+ * Remembers detection attempts that found no machina, so that repeated
+ * attempts on an unchanged structure only cost a single hash lookup. This
+ * happens a lot with redstone bridges on a clock and players clicking a lever
+ * over and over.
+ * <p>
+ * Each failure watches the chunks within {@link #chunkRadius} of its anchor.
+ * Every watched chunk has a modification epoch that is bumped whenever a block
+ * in it changes, and a failure is forgotten as soon as one of its chunks has
+ * moved on to a new epoch. Chunks that no failure is watching are not tracked
+ * at all, so block changes elsewhere cost next to nothing.
+ * <p>
+ * Only structural misses are remembered. When a blueprint finds its machina
+ * but refuses to activate it, like for a missing permission or the limit of
+ * active machinae, it reports this through {@link MachinaCore#rejectDetection()}
+ * and the attempt is not cached, so the player gets to see the message every
+ * time. A failure is still only reused for the same player, and expires after
+ * a configurable time.
+ * 
+ * @author Lyneira
+ */
+final class DetectionCache {
+    /**
+     * Distance in chunks around the anchor in which a block change forgets a
+     * failure.
+     */
+    private static final int chunkRadius = 1;
+    private static final int chunkDiameter = 2 * chunkRadius + 1;
+
+    /**
+     * The time in milliseconds a failure is remembered. 0 disables the cache.
+     */
+    private long ttl = 10000;
+    private long nextPurge = 0;
+    private int rejections = 0;
+    private final Map<Key, Failure> failures = new HashMap<Key, Failure>();
+    private final Map<World, LongHashMap<Epoch>> epochs = new HashMap<World, LongHashMap<Epoch>>();
+
+    /**
+     * The modification epoch of a watched chunk.
+     */
+    private static final class Epoch {
+        final long key;
+        int value = 0;
+
+        Epoch(long key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Identifies a detection attempt.
+     */
+    private static final class Key {
+        final BlueprintIndex index;
+        final BlockLocation anchor;
+        final BlockFace leverFace;
+
+        Key(BlueprintIndex index, BlockLocation anchor, BlockFace leverFace) {
+            this.index = index;
+            this.anchor = anchor;
+            this.leverFace = leverFace;
+        }
+
+        @Override
+        public int hashCode() {
+            return anchor.hashCode() * 31 + (leverFace == null ? 0 : leverFace.ordinal() + 1);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return index == other.index && leverFace == other.leverFace && anchor.equals(other.anchor);
+        }
+    }
+
+    /**
+     * A remembered failure along with the state it was valid for.
+     */
+    private static final class Failure {
+        final Player player;
+        final int indexVersion;
+        final long expires;
+        final Epoch[] chunks = new Epoch[chunkDiameter * chunkDiameter];
+        final int[] values = new int[chunkDiameter * chunkDiameter];
+
+        Failure(Player player, int indexVersion, long expires) {
+            this.player = player;
+            this.indexVersion = indexVersion;
+            this.expires = expires;
+        }
+
+        boolean isValid(Player player, int indexVersion, long now) {
+            if (player != this.player || indexVersion != this.indexVersion || now >= expires)
+                return false;
+            for (int i = 0; i < chunks.length; i++) {
+                if (chunks[i].value != values[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Loads the time to live from the given configuration.
+     * 
+     * @param configuration
+     *            The configuration to load from
+     */
+    void loadConfiguration(ConfigurationSection configuration) {
+        ttl = Math.max(configuration.getLong("detection-cache-ttl", ttl / 1000), 0) * 1000;
+        clear();
+    }
+
+    /**
+     * Returns true if detection at the given anchor failed before for the same
+     * player, and nothing has changed since.
+     * 
+     * @param index
+     *            The blueprints detection was attempted for
+     * @param anchor
+     *            The anchor detection was attempted at
+     * @param leverFace
+     *            The face of the lever, or null
+     * @param player
+     *            The player attempting detection
+     * @return True if detection is known to fail.
+     */
+    boolean isKnownFailure(BlueprintIndex index, BlockLocation anchor, BlockFace leverFace, Player player) {
+        if (ttl == 0 || failures.isEmpty())
+            return false;
+        final Key key = new Key(index, anchor, leverFace);
+        final Failure failure = failures.get(key);
+        if (failure == null)
+            return false;
+        if (failure.isValid(player, index.version(), System.currentTimeMillis()))
+            return true;
+        failures.remove(key);
+        return false;
+    }
+
+    /**
+     * Remembers that detection at the given anchor failed.
+     * 
+     * @param index
+     *            The blueprints detection was attempted for
+     * @param anchor
+     *            The anchor detection was attempted at
+     * @param leverFace
+     *            The face of the lever, or null
+     * @param player
+     *            The player attempting detection
+     */
+    void addFailure(BlueprintIndex index, BlockLocation anchor, BlockFace leverFace, Player player) {
+        if (ttl == 0)
+            return;
+        final long now = System.currentTimeMillis();
+        if (now >= nextPurge) {
+            purge(now);
+            nextPurge = now + ttl;
+        }
+
+        final Failure failure = new Failure(player, index.version(), now + ttl);
+        LongHashMap<Epoch> chunks = epochs.get(anchor.getWorld());
+        if (chunks == null) {
+            chunks = new LongHashMap<Epoch>();
+            epochs.put(anchor.getWorld(), chunks);
+        }
+        final int anchorChunkX = anchor.x >> 4;
+        final int anchorChunkZ = anchor.z >> 4;
+        int i = 0;
+        for (int chunkX = anchorChunkX - chunkRadius; chunkX <= anchorChunkX + chunkRadius; chunkX++) {
+            for (int chunkZ = anchorChunkZ - chunkRadius; chunkZ <= anchorChunkZ + chunkRadius; chunkZ++) {
+                final long chunkKey = ChunkIndex.key(chunkX, chunkZ);
+                Epoch epoch = chunks.get(chunkKey);
+                if (epoch == null) {
+                    epoch = new Epoch(chunkKey);
+                    chunks.put(chunkKey, epoch);
+                }
+                failure.chunks[i] = epoch;
+                failure.values[i] = epoch.value;
+                i++;
+            }
+        }
+        failures.put(new Key(index, anchor, leverFace), failure);
+    }
+
+    /**
+     * Records that a blueprint found its machina but refused to activate it.
+     */
+    void reject() {
+        rejections++;
+    }
+
+    /**
+     * Returns the number of rejections so far. A detection attempt that saw
+     * this number change must not be added as a failure.
+     * 
+     * @return The number of rejections
+     */
+    int rejections() {
+        return rejections;
+    }
+
+    /**
+     * Forgets all failures remembered for the given player.
+     * 
+     * @param playerName
+     *            The name of the player
+     */
+    void invalidate(String playerName) {
+        for (Iterator<Failure> it = failures.values().iterator(); it.hasNext();) {
+            if (it.next().player.getName().equalsIgnoreCase(playerName))
+                it.remove();
+        }
+    }
+
+    /**
+     * Notifies the cache that a block in the given world has changed.
+     * 
+     * @param world
+     *            The world of the block
+     * @param x
+     *            The x-coordinate of the block
+     * @param z
+     *            The z-coordinate of the block
+     */
+    void blockChanged(World world, int x, int z) {
+        chunkChanged(world, x >> 4, z >> 4);
+    }
+
+    /**
+     * Notifies the cache that one or more blocks in the given chunk have
+     * changed.
+     * 
+     * @param world
+     *            The world of the chunk
+     * @param chunkX
+     *            The x-coordinate of the chunk
+     * @param chunkZ
+     *            The z-coordinate of the chunk
+     */
+    void chunkChanged(World world, int chunkX, int chunkZ) {
+        if (epochs.isEmpty())
+            return;
+        final LongHashMap<Epoch> chunks = epochs.get(world);
+        if (chunks == null)
+            return;
+        final Epoch epoch = chunks.get(ChunkIndex.key(chunkX, chunkZ));
+        if (epoch != null)
+            epoch.value++;
+    }
+
+    /**
+     * Forgets all failures.
+     */
+    void clear() {
+        failures.clear();
+        epochs.clear();
+    }
+
+    /**
+     * Removes expired failures and stops watching chunks that no remaining
+     * failure depends on.
+     */
+    private void purge(long now) {
+        for (Iterator<Failure> it = failures.values().iterator(); it.hasNext();) {
+            if (now >= it.next().expires)
+                it.remove();
+        }
+        if (failures.isEmpty()) {
+            epochs.clear();
+            return;
+        }
+        for (LongHashMap<Epoch> chunks : epochs.values()) {
+            chunks.clear();
+        }
+        for (Map.Entry<Key, Failure> entry : failures.entrySet()) {
+            final LongHashMap<Epoch> chunks = epochs.get(entry.getKey().anchor.getWorld());
+            for (Epoch epoch : entry.getValue().chunks) {
+                chunks.put(epoch.key, epoch);
+            }
+        }
+        for (Iterator<LongHashMap<Epoch>> it = epochs.values().iterator(); it.hasNext();) {
+            if (it.next().isEmpty())
+                it.remove();
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package me.lyneira.MachinaCore;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.BlockState;
 import org.bukkit.entity.Player;
-import org.bukkit.event.Event;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
@@ -13,7 +17,9 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.ItemStack;
 
 /**
- * Class that simulates events.
+ * Class that simulates events. The verdicts of protection plugins on block
+ * place and break events are remembered for a short while by a
+ * {@link ProtectionCache}.
  * 
  * @author Lyneira
  */
@@ -22,8 +28,10 @@ public class EventSimulator {
         // Cannot instantiate
     }
 
-    static Event pretendEvent;
-    static boolean pretendEventCancelled;
+    /**
+     * Remembers the verdicts of protection plugins.
+     */
+    static final ProtectionCache protectionCache = new ProtectionCache();
 
     /**
      * Simulates a block place event on behalf of a player. Returns true if the
@@ -40,6 +48,10 @@ public class EventSimulator {
      * @return True if the player may place a block at the location
      */
     public static boolean blockPlace(BlockLocation target, int typeId, byte data, BlockLocation placedAgainst, Player player) {
+        Boolean cached = protectionCache.get(player, target, ProtectionCache.place, typeId, false);
+        if (cached != null)
+            return cached;
+
         Block placedBlock = target.getBlock();
         BlockState replacedBlockState = placedBlock.getState();
         int oldType = replacedBlockState.getTypeId();
@@ -52,6 +64,8 @@ public class EventSimulator {
 
         // Revert to the old state without physics.
         placedBlock.setTypeIdAndData(oldType, oldData, false);
+        BlockAccess.invalidate();
+        protectionCache.put(player, target, ProtectionCache.place, typeId, !placeEvent.isCancelled());
         if (placeEvent.isCancelled())
             return false;
 
@@ -71,9 +85,16 @@ public class EventSimulator {
      * @return True if the player may break a block at the location.
      */
     public static boolean blockBreak(BlockLocation target, Player player) {
+        final int typeId = target.getTypeId();
+        Boolean cached = protectionCache.get(player, target, ProtectionCache.breakBlock, typeId, false);
+        if (cached != null)
+            return cached;
+
         Block block = target.getBlock();
         BlockBreakEvent breakEvent = new ArtificialBlockBreakEvent(block, player);
         MachinaCore.pluginManager.callEvent(breakEvent);
+        BlockAccess.invalidate();
+        protectionCache.put(player, target, ProtectionCache.breakBlock, typeId, !breakEvent.isCancelled());
         if (breakEvent.isCancelled())
             return false;
         return true;
@@ -99,6 +120,10 @@ public class EventSimulator {
      * @return True if the player may place a block at the location
      */
     public static boolean blockPlacePretend(BlockLocation target, int typeId, BlockLocation placedAgainst, Player player) {
+        Boolean cached = protectionCache.get(player, target, ProtectionCache.place, typeId, true);
+        if (cached != null)
+            return cached;
+
         Block placedBlock = target.getBlock();
         BlockState replacedBlockState = placedBlock.getState();
         int oldType = replacedBlockState.getTypeId();
@@ -107,14 +132,15 @@ public class EventSimulator {
         // Set the new state without physics.
         placedBlock.setTypeIdAndData(typeId, (byte) 0, false);
 
-        pretendEvent = new ArtificialBlockPlaceEvent(placedBlock, replacedBlockState, placedAgainst.getBlock(), new ItemStack(Material.AIR), player, true);
-        pretendEventCancelled = true;
-        MachinaCore.pluginManager.callEvent(pretendEvent);
+        SimulationContext context = SimulationContext.get();
+        boolean allowed = context.fire(context.placeEvent(placedBlock, replacedBlockState, placedAgainst.getBlock(), player));
 
         // Revert to the old state without physics.
         placedBlock.setTypeIdAndData(oldType, oldData, false);
+        BlockAccess.invalidate();
+        protectionCache.put(player, target, ProtectionCache.place, typeId, allowed);
 
-        return !pretendEventCancelled;
+        return allowed;
     }
 
     /**
@@ -130,12 +156,185 @@ public class EventSimulator {
      * @return True if the player may break a block at the location
      */
     public static boolean blockBreakPretend(BlockLocation target, Player player) {
-        Block block = target.getBlock();
-        pretendEvent = new ArtificialBlockBreakEvent(block, player);
-        pretendEventCancelled = true;
-        MachinaCore.pluginManager.callEvent(pretendEvent);
+        final int typeId = target.getTypeId();
+        Boolean cached = protectionCache.get(player, target, ProtectionCache.breakBlock, typeId, true);
+        if (cached != null)
+            return cached;
+
+        SimulationContext context = SimulationContext.get();
+        boolean allowed = context.fire(context.breakEvent(target.getBlock(), player));
+        BlockAccess.invalidate();
+        protectionCache.put(player, target, ProtectionCache.breakBlock, typeId, allowed);
 
-        return !pretendEventCancelled;
+        return allowed;
+    }
+
+    /**
+     * Pretends block break events for many blocks at once and returns which
+     * of them would be allowed. Like the protection cache, a denial covers
+     * the other blocks of the same type in its protection cell, while an
+     * allowed block only answers for itself. The blocks that need an event
+     * reuse the same one.
+     * 
+     * @param targets
+     *            The locations to break at, all in the same world
+     * @param player
+     *            The player to simulate for
+     * @return A bitset in which bit i is set if the player may break the block
+     *         at target i
+     */
+    public static BitSet blockBreakPretend(List<BlockLocation> targets, Player player) {
+        final int size = targets.size();
+        final BitSet result = new BitSet(size);
+        final BulkVerdicts verdicts = new BulkVerdicts(size);
+        final SimulationContext context = SimulationContext.get();
+        boolean fired = false;
+        for (int i = 0; i < size; i++) {
+            final BlockLocation target = targets.get(i);
+            checkWorld(targets.get(0), target);
+            final int typeId = target.getTypeId();
+            final long cell = protectionCache.cell(target);
+            if (verdicts.denied(cell, typeId))
+                continue;
+            Boolean verdict = protectionCache.get(player, target, ProtectionCache.breakBlock, typeId, true);
+            if (verdict == null) {
+                verdict = context.fire(context.breakEvent(target.getBlock(), player));
+                fired = true;
+                protectionCache.put(player, target, ProtectionCache.breakBlock, typeId, verdict);
+            }
+            if (verdict)
+                result.set(i);
+            else
+                verdicts.deny(cell, typeId);
+        }
+        if (fired)
+            BlockAccess.invalidate();
+        return result;
+    }
+
+    /**
+     * Pretends block place events for many blocks at once and returns which
+     * of them would be allowed. Like the protection cache, a denial covers
+     * the other blocks in its protection cell, while an allowed block only
+     * answers for itself. The blocks that need an event reuse the same one.
+     * 
+     * @param targets
+     *            The locations to place at, all in the same world
+     * @param typeId
+     *            The typeId of the blocks to place
+     * @param placedAgainst
+     *            The direction of the block each target is placed against
+     * @param player
+     *            The player to simulate for
+     * @return A bitset in which bit i is set if the player may place the
+     *         block at target i
+     */
+    public static BitSet blockPlacePretend(List<BlockLocation> targets, int typeId, BlockFace placedAgainst, Player player) {
+        final int size = targets.size();
+        final BitSet result = new BitSet(size);
+        final BulkVerdicts verdicts = new BulkVerdicts(size);
+        final SimulationContext context = SimulationContext.get();
+        boolean fired = false;
+        for (int i = 0; i < size; i++) {
+            final BlockLocation target = targets.get(i);
+            checkWorld(targets.get(0), target);
+            final long cell = protectionCache.cell(target);
+            if (verdicts.denied(cell, typeId))
+                continue;
+            Boolean verdict = protectionCache.get(player, target, ProtectionCache.place, typeId, true);
+            if (verdict == null) {
+                Block placedBlock = target.getBlock();
+                BlockState replacedBlockState = placedBlock.getState();
+                int oldType = replacedBlockState.getTypeId();
+                byte oldData = replacedBlockState.getRawData();
+                Block against = target.getRelative(placedAgainst).getBlock();
+
+                // Set the new state without physics.
+                placedBlock.setTypeIdAndData(typeId, (byte) 0, false);
+                verdict = context.fire(context.placeEvent(placedBlock, replacedBlockState, against, player));
+                fired = true;
+
+                // Revert to the old state without physics.
+                placedBlock.setTypeIdAndData(oldType, oldData, false);
+                protectionCache.put(player, target, ProtectionCache.place, typeId, verdict);
+            }
+            if (verdict)
+                result.set(i);
+            else
+                verdicts.deny(cell, typeId);
+        }
+        if (fired)
+            BlockAccess.invalidate();
+        return result;
+    }
+
+    /**
+     * The denials found so far during a single bulk check, so that they cover
+     * their cell even when the protection cache is turned off. A bulk check
+     * usually covers a handful of cells, so a linear search is all it takes.
+     */
+    private static final class BulkVerdicts {
+        private final long[] cells;
+        private final int[] typeIds;
+        private int size = 0;
+
+        BulkVerdicts(int capacity) {
+            cells = new long[capacity];
+            typeIds = new int[capacity];
+        }
+
+        boolean denied(long cell, int typeId) {
+            for (int i = 0; i < size; i++) {
+                if (cells[i] == cell && typeIds[i] == typeId)
+                    return true;
+            }
+            return false;
+        }
+
+        void deny(long cell, int typeId) {
+            cells[size] = cell;
+            typeIds[size] = typeId;
+            size++;
+        }
+    }
+
+    private static void checkWorld(BlockLocation first, BlockLocation target) {
+        if (first.getWorld() != target.getWorld())
+            throw new IllegalArgumentException("All targets of a bulk protection check must be in the same world!");
+    }
+
+    /**
+     * Forgets all remembered protection verdicts. Protection plugins can call
+     * this when their regions or permissions change.
+     */
+    public static void invalidateProtection() {
+        protectionCache.clear();
+    }
+
+    /**
+     * Forgets the remembered protection verdicts for the given player.
+     * 
+     * @param player
+     *            The player whose verdicts to forget
+     */
+    public static void invalidateProtection(Player player) {
+        protectionCache.invalidate(player);
+    }
+
+    /**
+     * Forgets the remembered protection verdicts near the given block.
+     * 
+     * @param world
+     *            The world of the block
+     * @param x
+     *            The x-coordinate of the block
+     * @param y
+     *            The y-coordinate of the block
+     * @param z
+     *            The z-coordinate of the block
+     */
+    public static void invalidateProtection(World world, int x, int y, int z) {
+        protectionCache.invalidate(world, x, y, z);
     }
 
     /**
@@ -153,6 +352,7 @@ public class EventSimulator {
     public static boolean blockRightClick(BlockLocation target, Player player, BlockFace clickedFace) {
         PlayerInteractEvent event = new PlayerInteractEvent(player, Action.RIGHT_CLICK_BLOCK, new ItemStack(Material.AIR), target.getBlock(), clickedFace);
         MachinaCore.pluginManager.callEvent(event);
+        BlockAccess.invalidate();
 
         if (event.isCancelled())
             return false;
@@ -177,12 +377,14 @@ public class EventSimulator {
      */
     public static boolean inventoryProtected(BlockRotation yaw, Player player, BlockLocation anchor, BlueprintBlock... blocks) {
         BlockFace clickedFace = yaw.getOpposite().getYawFace();
+        List<BlockLocation> targets = new ArrayList<BlockLocation>(blocks.length);
         for (BlueprintBlock b : blocks) {
             BlockLocation target = anchor.getRelative(b.vector(yaw));
-            if (!(blockRightClick(target, player, clickedFace) && blockBreakPretend(target, player)))
+            if (!blockRightClick(target, player, clickedFace))
                 return true;
+            targets.add(target);
         }
-        return false;
+        return blockBreakPretend(targets, player).cardinality() != targets.size();
     }
 
     /**
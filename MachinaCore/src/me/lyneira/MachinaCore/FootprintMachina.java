@@ -0,0 +1,28 @@
+package me.lyneira.MachinaCore;
+
+import java.util.Collection;
+
+/**
+ * A {@link Machina} that can tell MachinaCore which blocks its verify function
+ * depends on. Instead of verifying such a machina before every heartbeat,
+ * MachinaCore only verifies it after one of those blocks changed, after it
+ * moved, or after a number of heartbeats have passed without either.
+ * <p>
+ * A machina that changes its own blocks without moving should return its
+ * current anchor as the new anchor of its {@link HeartBeatEvent}, so its
+ * footprint is collected again.
+ * 
+ * @author Lyneira
+ */
+public interface FootprintMachina extends Machina {
+    /**
+     * Adds the location of every block that verify() reads for the machina at
+     * the given anchor to the given collection.
+     * 
+     * @param anchor
+     *            The anchor location to which the machina's lever is attached
+     * @param footprint
+     *            The collection to add the locations to
+     */
+    public void getFootprint(final BlockLocation anchor, final Collection<BlockLocation> footprint);
+}
@@ -182,6 +182,7 @@ public class Fuel {
             } else {
                 furnaceBlock.setTypeIdAndData(Material.FURNACE.getId(), direction.getYawData(), false);
             }
+            BlockAccess.invalidate();
 
             Inventory newInventory = ((Furnace) furnaceBlock.getState()).getInventory();
             newInventory.setContents(contents);
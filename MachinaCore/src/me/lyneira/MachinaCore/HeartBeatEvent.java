@@ -14,7 +14,8 @@ public final class HeartBeatEvent {
 
     /**
      * The new anchor location for the machina. A null value means the machina
-     * does not need to be moved.
+     * does not need to be moved. A {@link FootprintMachina} that changed its
+     * own blocks without moving may give its current anchor.
      */
     public final BlockLocation newAnchor;
 
@@ -0,0 +1,439 @@
+package me.lyneira.MachinaCore;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Hierarchical timing wheel that drives the heartbeats of all active machinae
+ * from a single repeating server task. Scheduling and expiring a task are
+ * constant time operations regardless of how many tasks are pending.
+ * <p>
+ * The root wheel has one slot per tick for the next 256 ticks. Each higher
+ * wheel covers 64 slots of the wheel below it, and its slots are cascaded down
+ * into the lower wheels as time catches up with them.
+ * <p>
+ * The total time spent on heartbeats in a single tick is limited by a
+ * configurable budget. Heartbeats that do not fit are deferred to the next
+ * tick, where they run before any newly due heartbeats so that every runner
+ * gets its turn.
+ * <p>
+ * Tasks that do not care about their exact phase can be scheduled with
+ * {@link #scheduleSpread(Task, int)}, which picks the least busy tick near the
+ * requested one. Tasks with the same period then end up spread out instead of
+ * all running on the same tick.
+ * 
+ * @author Lyneira
+ */
+final class HeartBeatScheduler implements Runnable {
+    private static final int rootBits = 8;
+    private static final int rootSize = 1 << rootBits;
+    private static final int rootMask = rootSize - 1;
+    private static final int levelBits = 6;
+    private static final int levelSize = 1 << levelBits;
+    private static final int levelMask = levelSize - 1;
+    private static final int levels = 3;
+
+    /**
+     * The longest delay that can be scheduled. Longer delays are clamped to
+     * this value.
+     */
+    static final int maxDelay = (1 << (rootBits + levels * levelBits)) - 1;
+
+    private final Head[] root = new Head[rootSize];
+    private final Head[][] wheels = new Head[levels][levelSize];
+    private final Head expired = new Head();
+    private final Head cascading = new Head();
+
+    /**
+     * The number of tasks in each slot of the root wheel.
+     */
+    private final int[] rootCount = new int[rootSize];
+
+    /**
+     * The tick that is being processed, or was processed last.
+     */
+    private long tick = 0;
+
+    /**
+     * The number of tasks currently scheduled.
+     */
+    private int size = 0;
+
+    /**
+     * The maximum time in nanoseconds to spend on heartbeats per tick. 0 means
+     * no limit.
+     */
+    private long budget = 20 * 1000000L;
+
+    /**
+     * The number of times a heartbeat was deferred to the next tick.
+     */
+    private long deferred = 0;
+
+    /**
+     * The total number of ticks by which heartbeats ran late.
+     */
+    private long lateness = 0;
+
+    /**
+     * The largest number of ticks a single heartbeat ran late.
+     */
+    private long maxLateness = 0;
+
+    /**
+     * Histogram of the number of heartbeats run per tick. Bucket 0 counts
+     * ticks without heartbeats, bucket n counts ticks with 2^(n-1) up to
+     * 2^n - 1 heartbeats.
+     */
+    private final long[] histogram = new long[Integer.SIZE];
+
+    /**
+     * The largest number of heartbeats run in a single tick.
+     */
+    private int maxPerTick = 0;
+
+    /**
+     * A task that can be scheduled on a {@link HeartBeatScheduler}. The links
+     * are stored in the task itself so that scheduling and cancelling never
+     * allocate.
+     */
+    static abstract class Task implements Runnable {
+        Task next;
+        Task prev;
+        long due;
+        /**
+         * The slot of the root wheel this task is in, or -1 if it is not in
+         * the root wheel.
+         */
+        int slot = -1;
+
+        /**
+         * @return True if this task is currently scheduled.
+         */
+        final boolean isScheduled() {
+            return next != null;
+        }
+    }
+
+    /**
+     * List head for a single slot of a wheel.
+     */
+    private static final class Head extends Task {
+        Head() {
+            clear();
+        }
+
+        void clear() {
+            next = this;
+            prev = this;
+        }
+
+        boolean isEmpty() {
+            return next == this;
+        }
+
+        public void run() {
+            // A list head is never run.
+        }
+    }
+
+    HeartBeatScheduler() {
+        for (int i = 0; i < rootSize; i++) {
+            root[i] = new Head();
+        }
+        for (int level = 0; level < levels; level++) {
+            for (int i = 0; i < levelSize; i++) {
+                wheels[level][i] = new Head();
+            }
+        }
+    }
+
+    /**
+     * Schedules the given task to run after the given number of ticks. A task
+     * that is already scheduled is moved to the new time.
+     * 
+     * @param task
+     *            The task to schedule
+     * @param delay
+     *            The delay in server ticks, at least 1.
+     */
+    void schedule(final Task task, int delay) {
+        if (task.isScheduled())
+            cancel(task);
+        if (delay < 1)
+            delay = 1;
+        else if (delay > maxDelay)
+            delay = maxDelay;
+        task.due = tick + delay;
+        insert(task);
+        size++;
+    }
+
+    /**
+     * Schedules the given task to run after at least the given number of
+     * ticks, but possibly up to twice as late, choosing the tick with the
+     * fewest scheduled tasks. A task that is already scheduled is moved to the
+     * new time.
+     * 
+     * @param task
+     *            The task to schedule
+     * @param delay
+     *            The minimum delay in server ticks, at least 1.
+     */
+    void scheduleSpread(final Task task, int delay) {
+        if (delay < 1)
+            delay = 1;
+        final int window = Math.min(delay, rootSize - delay);
+        int best = 0;
+        int bestCount = Integer.MAX_VALUE;
+        for (int offset = 0; offset < window; offset++) {
+            final int count = rootCount[(int) ((tick + delay + offset) & rootMask)];
+            if (count < bestCount) {
+                best = offset;
+                bestCount = count;
+                if (count == 0)
+                    break;
+            }
+        }
+        schedule(task, delay + best);
+    }
+
+    /**
+     * Removes the given task from the scheduler if it is scheduled.
+     * 
+     * @param task
+     *            The task to cancel
+     */
+    void cancel(final Task task) {
+        if (!task.isScheduled())
+            return;
+        remove(task);
+        size--;
+    }
+
+    /**
+     * Removes all scheduled tasks.
+     */
+    void clear() {
+        for (Head head : root) {
+            clear(head);
+        }
+        for (Head[] wheel : wheels) {
+            for (Head head : wheel) {
+                clear(head);
+            }
+        }
+        clear(expired);
+        Arrays.fill(rootCount, 0);
+        size = 0;
+    }
+
+    /**
+     * @return The number of tasks currently scheduled.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The tick that is being processed, or was processed last.
+     */
+    long currentTick() {
+        return tick;
+    }
+
+    /**
+     * @return The number of times a heartbeat was deferred to a later tick
+     *         because the budget was used up.
+     */
+    long deferred() {
+        return deferred;
+    }
+
+    /**
+     * @return The total number of ticks by which heartbeats ran late.
+     */
+    long lateness() {
+        return lateness;
+    }
+
+    /**
+     * @return The largest number of ticks a single heartbeat ran late.
+     */
+    long maxLateness() {
+        return maxLateness;
+    }
+
+    /**
+     * @return A copy of the histogram of heartbeats per tick. Bucket 0 counts
+     *         ticks without heartbeats, bucket n counts ticks with 2^(n-1) up
+     *         to 2^n - 1 heartbeats.
+     */
+    long[] histogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * @return The largest number of heartbeats run in a single tick.
+     */
+    int maxPerTick() {
+        return maxPerTick;
+    }
+
+    /**
+     * Advances the scheduler by one tick and runs every task that has become
+     * due, until the time budget for this tick is used up. At least one task is
+     * always run.
+     */
+    public void run() {
+        tick++;
+        final int index = (int) (tick & rootMask);
+        if (index == 0) {
+            for (int level = 0; level < levels; level++) {
+                int levelIndex = (int) ((tick >> (rootBits + level * levelBits)) & levelMask);
+                cascade(wheels[level][levelIndex]);
+                if (levelIndex != 0)
+                    break;
+            }
+        }
+
+        // Move the due tasks to a separate list first. Tasks that reschedule
+        // themselves while running may end up in the slot being processed.
+        // Tasks deferred from earlier ticks are still at the front of the
+        // list and will run first.
+        splice(root[index], expired);
+        final long deadline = System.nanoTime() + budget;
+        int ran = 0;
+
+        while (!expired.isEmpty()) {
+            Task task = expired.next;
+            remove(task);
+            size--;
+            ran++;
+            final long late = tick - task.due;
+            if (late > 0) {
+                lateness += late;
+                if (late > maxLateness)
+                    maxLateness = late;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                MachinaCore.log.log(Level.SEVERE, "MachinaCore: Exception while running a heartbeat", e);
+            }
+            if (budget > 0 && System.nanoTime() - deadline > 0)
+                break;
+        }
+
+        // The deferred tasks are no longer in a slot of the root wheel.
+        for (Task task = expired.next; task != expired; task = task.next) {
+            if (task.slot >= 0) {
+                rootCount[task.slot]--;
+                task.slot = -1;
+            }
+            deferred++;
+        }
+
+        histogram[Integer.SIZE - Integer.numberOfLeadingZeros(ran)]++;
+        if (ran > maxPerTick)
+            maxPerTick = ran;
+    }
+
+    /**
+     * Loads the heartbeat budget from the given configuration.
+     * 
+     * @param configuration
+     *            The configuration to load from
+     */
+    void loadConfiguration(ConfigurationSection configuration) {
+        budget = Math.max(configuration.getInt("heartbeat-budget", (int) (budget / 1000000L)), 0) * 1000000L;
+    }
+
+    /**
+     * Inserts a task into the wheel matching the distance to its due tick.
+     */
+    private final void insert(final Task task) {
+        final long delta = task.due - tick;
+        final Head head;
+        if (delta < rootSize) {
+            final int index = (int) (task.due & rootMask);
+            task.slot = index;
+            rootCount[index]++;
+            head = root[index];
+        } else {
+            int level = 0;
+            long limit = rootSize << levelBits;
+            while (delta >= limit && level < levels - 1) {
+                level++;
+                limit <<= levelBits;
+            }
+            head = wheels[level][(int) ((task.due >> (rootBits + level * levelBits)) & levelMask)];
+        }
+        append(head, task);
+    }
+
+    /**
+     * Reinserts all tasks in the given slot relative to the current tick.
+     */
+    private final void cascade(final Head head) {
+        if (head.isEmpty())
+            return;
+        splice(head, cascading);
+        while (!cascading.isEmpty()) {
+            Task task = cascading.next;
+            unlink(task);
+            insert(task);
+        }
+    }
+
+    private static final void append(final Head head, final Task task) {
+        Task last = head.prev;
+        task.prev = last;
+        task.next = head;
+        last.next = task;
+        head.prev = task;
+    }
+
+    /**
+     * Unlinks a task and updates the root wheel count if needed.
+     */
+    private final void remove(final Task task) {
+        if (task.slot >= 0) {
+            rootCount[task.slot]--;
+            task.slot = -1;
+        }
+        unlink(task);
+    }
+
+    private static final void unlink(final Task task) {
+        task.prev.next = task.next;
+        task.next.prev = task.prev;
+        task.next = null;
+        task.prev = null;
+    }
+
+    /**
+     * Moves the entire contents of one list to the end of another.
+     */
+    private static final void splice(final Head from, final Head to) {
+        if (from.isEmpty())
+            return;
+        Task first = from.next;
+        Task last = from.prev;
+        Task toLast = to.prev;
+        toLast.next = first;
+        first.prev = toLast;
+        last.next = to;
+        to.prev = last;
+        from.clear();
+    }
+
+    private static final void clear(final Head head) {
+        while (!head.isEmpty()) {
+            head.next.slot = -1;
+            unlink(head.next);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package me.lyneira.MachinaCore;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds with a fixed relative precision, in
+ * the style of an HDR histogram. Each power of two is divided into
+ * {@link #subBuckets} linear buckets, so any recorded value is reported within
+ * about 6% of its real value while the whole range of a long fits in less than
+ * a thousand counters.
+ * <p>
+ * Recording is lock-free and never allocates, so durations can be recorded on
+ * the main thread while a report is being written in the background.
+ * 
+ * @author Lyneira
+ */
+final class LatencyHistogram {
+    private static final int subBucketBits = 4;
+    private static final int subBuckets = 1 << subBucketBits;
+    private static final int subBucketMask = subBuckets - 1;
+    private static final int buckets = (Long.SIZE - subBucketBits) * subBuckets;
+
+    private final AtomicLongArray counts = new AtomicLongArray(buckets);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a single duration.
+     * 
+     * @param nanos
+     *            The duration in nanoseconds
+     */
+    final void record(final long nanos) {
+        if (nanos < 0)
+            return;
+        counts.incrementAndGet(index(nanos));
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return The number of recorded durations.
+     */
+    final long count() {
+        long count = 0;
+        for (int i = 0; i < buckets; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return The longest recorded duration in nanoseconds.
+     */
+    final long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns the duration below which the given fraction of all recorded
+     * durations fall. The result is the highest value of the bucket the
+     * percentile lies in, so it never underestimates.
+     * 
+     * @param fraction
+     *            The fraction between 0 and 1
+     * @return The duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    final long percentile(final double fraction) {
+        final long[] snapshot = new long[buckets];
+        long count = 0;
+        for (int i = 0; i < buckets; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0)
+            return 0;
+
+        final long target = Math.max((long) Math.ceil(count * fraction), 1);
+        long seen = 0;
+        for (int i = 0; i < buckets; i++) {
+            seen += snapshot[i];
+            if (seen >= target)
+                return Math.min(highestValue(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears all recorded durations.
+     */
+    final void reset() {
+        for (int i = 0; i < buckets; i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    /**
+     * Returns the bucket for the given value. Values below
+     * {@link #subBuckets} each have their own bucket, larger values are
+     * grouped by their highest {@link #subBucketBits} + 1 bits.
+     */
+    private static final int index(final long value) {
+        if (value < subBuckets)
+            return (int) value;
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - subBucketBits;
+        return ((shift + 1) << subBucketBits) + (int) ((value >> shift) & subBucketMask);
+    }
+
+    /**
+     * Returns the highest value that falls in the given bucket.
+     */
+    private static final long highestValue(final int index) {
+        if (index < subBuckets)
+            return index;
+        final int shift = (index >> subBucketBits) - 1;
+        final long lowest = (long) (subBuckets + (index & subBucketMask)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
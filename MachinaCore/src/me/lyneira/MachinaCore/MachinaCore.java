@@ -1,11 +1,17 @@
 package me.lyneira.MachinaCore;
 
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.PluginDescriptionFile;
@@ -22,10 +28,27 @@ public final class MachinaCore extends JavaPlugin {
     static MachinaCore plugin;
     static PluginManager pluginManager;
     /**
-     * This is a hashmap of the blueprint's class name to its blueprint. This
-     * prevents accidental double insertions by buggy code.
+     * The registered blueprints, indexed by the anchor types they can be
+     * detected at.
      */
-    private final Map<Class<?>, MachinaBlueprint> blueprints = new LinkedHashMap<Class<?>, MachinaBlueprint>();
+    private final BlueprintIndex blueprints = new BlueprintIndex();
+    /**
+     * Remembers failed detection attempts until the blocks around them change.
+     */
+    final DetectionCache detectionCache = new DetectionCache();
+    /**
+     * Drives the heartbeats of all active machinae from a single repeating
+     * task.
+     */
+    final HeartBeatScheduler heartBeatScheduler = new HeartBeatScheduler();
+    /**
+     * Saves and restores persistent machinae across restarts.
+     */
+    private MachinaSnapshot snapshot;
+    /**
+     * Reports the timings of all machina and blueprint classes.
+     */
+    private TimingsReport timingsReport;
 
     public final void onEnable() {
         plugin = this;
@@ -35,17 +58,75 @@ public final class MachinaCore extends JavaPlugin {
         // Set listener
         pluginManager = this.getServer().getPluginManager();
         pluginManager.registerEvents(new MachinaCoreListener(this), this);
+        getServer().getScheduler().scheduleSyncRepeatingTask(this, heartBeatScheduler, 1, 1);
 
         ConfigurationManager config = new ConfigurationManager(this);
         Fuel.loadConfiguration(config.getSection("fuels"));
         BlockData.loadBlockConfiguration(config.getSection("blocks"));
         BlockData.loadBreakTimeConfiguration(config.getSection("break-times"));
+        heartBeatScheduler.loadConfiguration(config.getAll());
+        detectionCache.loadConfiguration(config.getAll());
+        EventSimulator.protectionCache.loadConfiguration(config.getAll());
+        MachinaRunner.loadConfiguration(config.getAll());
+
+        snapshot = new MachinaSnapshot(this);
+        snapshot.loadConfiguration(config.getAll());
+        snapshot.load();
+        // Other plugins register their blueprints after MachinaCore is
+        // enabled, so wait for the first tick before restoring anything.
+        getServer().getScheduler().scheduleSyncDelayedTask(this, new Runnable() {
+            public void run() {
+                snapshot.startRestoring();
+            }
+        });
+        long interval = snapshot.getInterval();
+        if (interval > 0)
+            getServer().getScheduler().scheduleSyncRepeatingTask(this, snapshot, interval, interval);
+
+        timingsReport = new TimingsReport(this);
+        timingsReport.loadConfiguration(config.getAll());
+        interval = timingsReport.getInterval();
+        if (interval > 0)
+            getServer().getScheduler().scheduleAsyncRepeatingTask(this, timingsReport, interval, interval);
     }
 
     public final void onDisable() {
         PluginDescriptionFile pdf = getDescription();
         log.info(pdf.getName() + " is now disabled.");
-        MachinaRunner.deActivateAll();
+        Set<BlockLocation> saved = Collections.emptySet();
+        if (snapshot != null)
+            saved = snapshot.save(false);
+        MachinaRunner.deActivateAll(saved);
+        getServer().getScheduler().cancelTasks(this);
+        heartBeatScheduler.clear();
+        detectionCache.clear();
+        EventSimulator.protectionCache.clear();
+        if (timingsReport != null && timingsReport.getInterval() > 0)
+            timingsReport.run();
+    }
+
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!command.getName().equalsIgnoreCase("machinatimings"))
+            return false;
+
+        if (args.length > 0) {
+            if (!args[0].equalsIgnoreCase("reset"))
+                return false;
+            MachinaTimings.resetAll();
+            EventSimulator.protectionCache.resetCounters();
+            sender.sendMessage("Machina timings have been reset.");
+            return true;
+        }
+
+        if (!MachinaTimings.enabled)
+            sender.sendMessage("Machina timings are disabled in the configuration.");
+        sender.sendMessage(String.format("Heartbeats: %d deferred, %d ticks late in total, at most %d ticks late, at most %d per tick.",
+                getDeferredHeartBeats(), getHeartBeatLateness(), getMaxHeartBeatLateness(), getMaxHeartBeatsPerTick()));
+        sender.sendMessage(String.format("Protection checks: %d cached, %d fired.", getProtectionCacheHits(), getProtectionCacheMisses()));
+        for (String line : timingsReport.lines()) {
+            sender.sendMessage(line);
+        }
+        return true;
     }
 
     /**
@@ -66,14 +147,21 @@ public final class MachinaCore extends JavaPlugin {
         if (MachinaRunner.exists(location)) {
             // Machina exists, run onLever.
             MachinaRunner.onLever(location, player, item);
-        } else {
-            for (MachinaBlueprint i : blueprints.values()) {
-                Machina machina = i.detect(player, location, leverFace, item);
+        } else if (!detectionCache.isKnownFailure(blueprints, location, leverFace, player)) {
+            final int rejections = detectionCache.rejections();
+            for (BlueprintIndex.Entry i : blueprints.candidates(location.getTypeId())) {
+                if (!i.acceptsLeverFace(leverFace))
+                    continue;
+                Machina machina = detect(i.blueprint, player, location, leverFace, item);
                 if (machina != null) {
                     new MachinaRunner(this, machina, location, leverFace);
-                    break;
+                    return;
                 }
             }
+            // An item in hand can make a blueprint act on the structure
+            // instead of activating it, so that is no structural miss.
+            if ((item == null || item.getTypeId() == 0) && detectionCache.rejections() == rejections)
+                detectionCache.addFailure(blueprints, location, leverFace, player);
         }
     }
 
@@ -95,7 +183,7 @@ public final class MachinaCore extends JavaPlugin {
             return MachinaRunner.getMachina(location);
         } else {
             while (blueprint.hasNext()) {
-                Machina machina = blueprint.next().detect(player, location, null, null);
+                Machina machina = detect(blueprint.next(), player, location, null, null);
                 if (machina != null) {
                     new MachinaRunner(this, machina, location, null);
                     return machina;
@@ -105,6 +193,174 @@ public final class MachinaCore extends JavaPlugin {
         return null;
     }
 
+    /**
+     * Detects whether a machina is present in the given location. If not,
+     * attempts to detect and activate one of the blueprints in the given index
+     * that can be anchored at the location. Null is returned if a machina
+     * could not be detected.
+     * 
+     * @param index
+     *            The blueprints to detect for
+     * @param player
+     *            The player to activate the machina for
+     * @param location
+     *            The location to check at
+     * @return The machina detected, or null if none was found.
+     */
+    public Machina detectMachina(BlueprintIndex index, Player player, BlockLocation location) {
+        if (MachinaRunner.exists(location))
+            return MachinaRunner.getMachina(location);
+        if (detectionCache.isKnownFailure(index, location, null, player))
+            return null;
+
+        final int rejections = detectionCache.rejections();
+        for (BlueprintIndex.Entry i : index.candidates(location.getTypeId())) {
+            Machina machina = detect(i.blueprint, player, location, null, null);
+            if (machina != null) {
+                new MachinaRunner(this, machina, location, null);
+                return machina;
+            }
+        }
+        if (detectionCache.rejections() == rejections)
+            detectionCache.addFailure(index, location, null, player);
+        return null;
+    }
+
+    /**
+     * Runs the detect function of the given blueprint and records how long it
+     * took.
+     */
+    private static final Machina detect(MachinaBlueprint blueprint, Player player, BlockLocation location, BlockFace leverFace, ItemStack item) {
+        final long start = MachinaTimings.start();
+        final Machina machina = blueprint.detect(player, location, leverFace, item);
+        if (start != 0)
+            MachinaTimings.stop(MachinaTimings.of(blueprint.getClass()).detect, start);
+        return machina;
+    }
+
+    /**
+     * Notifies detection and running machinae that the given block has
+     * changed.
+     * 
+     * @param block
+     *            The block that changed
+     */
+    final void notifyBlockChange(Block block) {
+        final World world = block.getWorld();
+        final int x = block.getX();
+        final int z = block.getZ();
+        BlockAccess.invalidate();
+        detectionCache.blockChanged(world, x, z);
+        MachinaRunner.notifyBlockChange(world, x, block.getY(), z);
+    }
+
+    /**
+     * Restores saved machinae near a chunk that was just loaded.
+     * 
+     * @param chunk
+     *            The chunk that was loaded
+     */
+    final void notifyChunkLoad(Chunk chunk) {
+        detectionCache.chunkChanged(chunk.getWorld(), chunk.getX(), chunk.getZ());
+        MachinaRunner.notifyChunkLoad(chunk);
+        if (snapshot != null)
+            snapshot.notifyChunkLoad(chunk);
+    }
+
+    /**
+     * Restores saved machinae of a player who just joined.
+     * 
+     * @param player
+     *            The player who joined
+     */
+    final void notifyPlayerJoin(Player player) {
+        if (snapshot != null)
+            snapshot.notifyPlayerJoin(player);
+    }
+
+    /**
+     * Returns the registered blueprint with the given class name if it can
+     * restore saved machinae.
+     * 
+     * @param className
+     *            The class name of the blueprint
+     * @return The blueprint, or null if none was found.
+     */
+    final PersistentBlueprint getPersistentBlueprint(String className) {
+        for (MachinaBlueprint i : blueprints.blueprints()) {
+            if (i instanceof PersistentBlueprint && i.getClass().getName().equals(className))
+                return (PersistentBlueprint) i;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of heartbeats that were deferred to a later tick
+     * because the per-tick heartbeat budget was used up.
+     * 
+     * @return The number of deferred heartbeats
+     */
+    public long getDeferredHeartBeats() {
+        return heartBeatScheduler.deferred();
+    }
+
+    /**
+     * Returns the total number of ticks by which deferred heartbeats ran late.
+     * 
+     * @return The total lateness in ticks
+     */
+    public long getHeartBeatLateness() {
+        return heartBeatScheduler.lateness();
+    }
+
+    /**
+     * Returns the largest number of ticks a single heartbeat ran late.
+     * 
+     * @return The maximum lateness in ticks
+     */
+    public long getMaxHeartBeatLateness() {
+        return heartBeatScheduler.maxLateness();
+    }
+
+    /**
+     * Returns a histogram of the number of heartbeats run per tick. Bucket 0
+     * counts ticks without heartbeats, bucket n counts ticks with 2^(n-1) up
+     * to 2^n - 1 heartbeats.
+     * 
+     * @return A new array containing the histogram
+     */
+    public long[] getHeartBeatHistogram() {
+        return heartBeatScheduler.histogram();
+    }
+
+    /**
+     * Returns the largest number of heartbeats run in a single tick.
+     * 
+     * @return The maximum number of heartbeats per tick
+     */
+    public int getMaxHeartBeatsPerTick() {
+        return heartBeatScheduler.maxPerTick();
+    }
+
+    /**
+     * Returns the number of protection checks that were answered from the
+     * protection cache instead of firing an event.
+     * 
+     * @return The number of cache hits
+     */
+    public long getProtectionCacheHits() {
+        return EventSimulator.protectionCache.hits();
+    }
+
+    /**
+     * Returns the number of protection checks that had to fire an event.
+     * 
+     * @return The number of cache misses
+     */
+    public long getProtectionCacheMisses() {
+        return EventSimulator.protectionCache.misses();
+    }
+
     /**
      * Returns the machina present at this location, or null if none exists.
      * 
@@ -115,6 +371,20 @@ public final class MachinaCore extends JavaPlugin {
         return MachinaRunner.getMachina(location);
     }
 
+    /**
+     * Returns all machinae whose anchor lies within the given radius of the
+     * given location.
+     * 
+     * @param center
+     *            The location to search around
+     * @param radius
+     *            The maximum distance from the center in blocks
+     * @return A list of machinae, which is empty if none were found.
+     */
+    public List<Machina> getMachinaeWithin(BlockLocation center, int radius) {
+        return MachinaRunner.getMachinaeWithin(center, radius);
+    }
+
     /**
      * Returns true if a machina exists at this location
      * 
@@ -127,13 +397,15 @@ public final class MachinaCore extends JavaPlugin {
 
     /**
      * Registers a blueprint with MachinaCore. When a lever is rightclicked by a
-     * player, this blueprint's detect function will be run.
+     * player, this blueprint's detect function will be run. An
+     * {@link AnchoredBlueprint} is only run for the anchors and lever faces it
+     * declares.
      * 
      * @param blueprint
      *            The blueprint to register
      */
     public final void registerBlueprint(MachinaBlueprint blueprint) {
-        blueprints.put(blueprint.getClass(), blueprint);
+        blueprints.add(blueprint);
     }
 
     /**
@@ -143,6 +415,17 @@ public final class MachinaCore extends JavaPlugin {
      *            The blueprint to unregister
      */
     public final void unRegisterBlueprint(MachinaBlueprint blueprint) {
-        blueprints.remove((blueprint.getClass()));
+        blueprints.remove(blueprint);
+    }
+
+    /**
+     * Tells MachinaCore that a blueprint found its machina during detection
+     * but refused to activate it, for example because the player lacks
+     * permission. The attempt is then not remembered as a failure, so the
+     * player is told why every time.
+     */
+    public static final void rejectDetection() {
+        if (plugin != null)
+            plugin.detectionCache.reject();
     }
 }
@@ -8,8 +8,21 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.BlockSpreadEvent;
+import org.bukkit.event.block.SignChangeEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.material.Lever;
 
@@ -57,6 +70,159 @@ final class MachinaCoreListener implements Listener {
         MachinaRunner.notifyChunkUnload(event.getChunk());
     }
 
+    /**
+     * Notifies MachinaRunners and saved machinae of a chunk load.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void chunkLoad(ChunkLoadEvent event) {
+        plugin.notifyChunkLoad(event.getChunk());
+    }
+
+    /**
+     * Notifies detection and running machinae of a placed block.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void blockPlaced(BlockPlaceEvent event) {
+        plugin.notifyBlockChange(event.getBlock());
+        if (!(event instanceof ArtificialBlockPlaceEvent))
+            invalidateProtection(event.getBlock());
+    }
+
+    /**
+     * Notifies detection and running machinae of a broken block.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void blockBroken(BlockBreakEvent event) {
+        plugin.notifyBlockChange(event.getBlock());
+        if (!(event instanceof ArtificialBlockBreakEvent))
+            invalidateProtection(event.getBlock());
+    }
+
+    /**
+     * Forgets protection verdicts near a changed sign, since some protection
+     * plugins are configured with signs.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void signChange(SignChangeEvent event) {
+        invalidateProtection(event.getBlock());
+    }
+
+    /**
+     * Restores saved machinae that were waiting for a player to join.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void playerJoin(PlayerJoinEvent event) {
+        plugin.notifyPlayerJoin(event.getPlayer());
+    }
+
+    /**
+     * Forgets the protection verdicts of a player who logs out.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void playerQuit(PlayerQuitEvent event) {
+        EventSimulator.invalidateProtection(event.getPlayer());
+    }
+
+    /**
+     * Forgets protection verdicts near a block a player changed, which could
+     * be a block that protects an area or a container.
+     */
+    private static void invalidateProtection(Block block) {
+        EventSimulator.invalidateProtection(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Notifies detection and running machinae of a block that liquid flows
+     * into.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void blockFromTo(BlockFromToEvent event) {
+        plugin.notifyBlockChange(event.getToBlock());
+    }
+
+    /**
+     * Notifies detection and running machinae of a block destroyed by fire.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void blockBurn(BlockBurnEvent event) {
+        plugin.notifyBlockChange(event.getBlock());
+    }
+
+    /**
+     * Notifies detection and running machinae of a block that melted or
+     * faded away.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void blockFade(BlockFadeEvent event) {
+        plugin.notifyBlockChange(event.getBlock());
+    }
+
+    /**
+     * Notifies detection and running machinae of a block formed by the
+     * world, like snow or ice.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void blockForm(BlockFormEvent event) {
+        plugin.notifyBlockChange(event.getBlock());
+    }
+
+    /**
+     * Notifies detection and running machinae of a block that spread, like
+     * fire or grass.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void blockSpread(BlockSpreadEvent event) {
+        plugin.notifyBlockChange(event.getBlock());
+    }
+
+    /**
+     * Notifies detection and running machinae of a block changed by an
+     * entity, like falling sand landing or an enderman.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void entityChangeBlock(EntityChangeBlockEvent event) {
+        plugin.notifyBlockChange(event.getBlock());
+    }
+
+    /**
+     * Notifies detection and running machinae of the blocks pushed by a
+     * piston.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void pistonExtend(BlockPistonExtendEvent event) {
+        BlockFace direction = event.getDirection();
+        Block piston = event.getBlock();
+        plugin.notifyBlockChange(piston);
+        plugin.notifyBlockChange(piston.getRelative(direction));
+        for (Block block : event.getBlocks()) {
+            plugin.notifyBlockChange(block);
+            plugin.notifyBlockChange(block.getRelative(direction));
+        }
+    }
+
+    /**
+     * Notifies detection and running machinae of the blocks pulled by a sticky
+     * piston.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void pistonRetract(BlockPistonRetractEvent event) {
+        BlockFace direction = event.getDirection();
+        Block piston = event.getBlock();
+        plugin.notifyBlockChange(piston.getRelative(direction, 1));
+        plugin.notifyBlockChange(piston.getRelative(direction, 2));
+    }
+
+    /**
+     * Notifies detection and running machinae of the blocks destroyed by an
+     * explosion.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void entityExplode(EntityExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            plugin.notifyBlockChange(block);
+        }
+    }
+
     /**
      * Collects the cancelled result from a pretend blockplace event by
      * EventSimulator and cancels the event afterward.
@@ -65,11 +231,8 @@ final class MachinaCoreListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGHEST)
     public void blockPlace(BlockPlaceEvent event) {
-        if (event == EventSimulator.pretendEvent) {
-            EventSimulator.pretendEventCancelled = event.isCancelled();
-            EventSimulator.pretendEvent = null;
+        if (event instanceof ArtificialBlockPlaceEvent && SimulationContext.get().collect(event, event.isCancelled()))
             event.setCancelled(true);
-        }
     }
 
     /**
@@ -80,10 +243,7 @@ final class MachinaCoreListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGHEST)
     public void blockBreak(BlockBreakEvent event) {
-        if (event == EventSimulator.pretendEvent) {
-            EventSimulator.pretendEventCancelled = event.isCancelled();
-            EventSimulator.pretendEvent = null;
+        if (event instanceof ArtificialBlockBreakEvent && SimulationContext.get().collect(event, event.isCancelled()))
             event.setCancelled(true);
-        }
     }
 }
@@ -1,11 +1,16 @@
 package me.lyneira.MachinaCore;
 
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.bukkit.Chunk;
+import org.bukkit.World;
 import org.bukkit.block.BlockFace;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
@@ -15,18 +20,65 @@ import org.bukkit.inventory.ItemStack;
  * 
  * @author Lyneira
  */
-class MachinaRunner implements Runnable {
+class MachinaRunner extends HeartBeatScheduler.Task {
     /**
-     * A static Map of all existing MachinaRunner instances
+     * Index of all existing MachinaRunner instances by their anchor.
      */
-    private static final Map<BlockLocation, MachinaRunner> machinae = new HashMap<BlockLocation, MachinaRunner>();
+    private static final BlockIndex<MachinaRunner> machinae = new BlockIndex<MachinaRunner>();
+    /**
+     * Index of all existing MachinaRunner instances by the chunk their anchor
+     * is in.
+     */
+    private static final ChunkIndex<MachinaRunner> chunkIndex = new ChunkIndex<MachinaRunner>();
     private static final int chunkUnloadDistance = 1;
+    /**
+     * The MachinaRunners of all {@link FootprintMachina} instances by the
+     * locations their verify function depends on.
+     */
+    private static final BlockIndex<MachinaRunner[]> footprints = new BlockIndex<MachinaRunner[]>();
+    /**
+     * The number of heartbeats after which a {@link FootprintMachina} is
+     * verified even if none of its blocks reported a change. Changes made
+     * without an event, like those by world editors, are caught this way.
+     */
+    private static int verifyInterval = 20;
 
     private final MachinaCore plugin;
     private final Machina machina;
+    private final MachinaTimings timings;
     private BlockLocation anchor;
 
     private boolean active = true;
+    /**
+     * True while the machina is parked because chunks near its anchor are not
+     * loaded.
+     */
+    private boolean suspended = false;
+    /**
+     * The delay returned by the last heartbeat.
+     */
+    private int period = 0;
+    /**
+     * The locations this runner is registered at in {@link #footprints}. The
+     * list is refilled in place whenever the footprint is collected again.
+     */
+    private final List<BlockLocation> footprint = new ArrayList<BlockLocation>();
+    /**
+     * The value registered in {@link #footprints} at locations where this is
+     * the only runner, shared so registering does not allocate an array per
+     * location.
+     */
+    private final MachinaRunner[] alone = { this };
+    /**
+     * True if the machina must be verified before its next heartbeat.
+     */
+    private boolean dirty = true;
+    /**
+     * True if the footprint must be collected again after the next successful
+     * verify.
+     */
+    private boolean footprintStale = true;
+    private int heartBeatsSinceVerify = 0;
 
     /**
      * Constructs a MachinaRunner which will immediately schedule the given
@@ -42,8 +94,11 @@ class MachinaRunner implements Runnable {
         this.plugin = plugin;
         this.machina = machina;
         this.anchor = anchor;
+        timings = MachinaTimings.of(machina.getClass());
+        timings.active.incrementAndGet();
         machinae.put(anchor, this);
-        plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, this, 1);
+        chunkIndex.add(anchor, this);
+        plugin.heartBeatScheduler.schedule(this, 1);
     }
 
     /**
@@ -52,23 +107,157 @@ class MachinaRunner implements Runnable {
     public void run() {
         if (!active)
             return;
-        if (machina.verify(anchor)) {
+        BlockAccess.begin();
+        try {
+            beat();
+        } finally {
+            BlockAccess.end();
+        }
+    }
+
+    /**
+     * Verifies the machina if needed and runs its heartbeat.
+     */
+    private final void beat() {
+        if (!needsVerify() || verify()) {
+            final long start = MachinaTimings.start();
             HeartBeatEvent event = machina.heartBeat(anchor);
+            MachinaTimings.stop(timings.heartBeat, start);
             if (event == null || event.delay <= 0) {
                 deActivate();
             } else {
                 if (event.newAnchor != null) {
                     machinae.remove(anchor);
+                    chunkIndex.move(anchor, event.newAnchor, this);
                     anchor = event.newAnchor;
                     machinae.put(anchor, this);
+                    dirty = true;
+                    footprintStale = true;
+                }
+                if (event.delay != period && machina instanceof PhaseTolerant) {
+                    plugin.heartBeatScheduler.scheduleSpread(this, event.delay);
+                } else {
+                    plugin.heartBeatScheduler.schedule(this, event.delay);
                 }
-                plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, this, event.delay);
+                period = event.delay;
             }
         } else {
             deActivate();
         }
     }
 
+    /**
+     * Returns whether the machina must be verified before its next heartbeat.
+     */
+    private final boolean needsVerify() {
+        if (dirty || !(machina instanceof FootprintMachina))
+            return true;
+        return ++heartBeatsSinceVerify >= verifyInterval;
+    }
+
+    /**
+     * Verifies the machina and records how long it took. Registers the
+     * footprint of the machina again if it has changed.
+     * 
+     * @return True if the machina is still intact.
+     */
+    private final boolean verify() {
+        final long start = MachinaTimings.start();
+        final boolean result = machina.verify(anchor);
+        MachinaTimings.stop(timings.verify, start);
+        if (result && machina instanceof FootprintMachina) {
+            if (footprintStale) {
+                removeFootprint();
+                ((FootprintMachina) machina).getFootprint(anchor, footprint);
+                addFootprint();
+                footprintStale = false;
+            }
+            dirty = false;
+            heartBeatsSinceVerify = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Registers this runner at the locations in its footprint.
+     */
+    private final void addFootprint() {
+        for (BlockLocation location : footprint) {
+            MachinaRunner[] runners = footprints.get(location);
+            if (runners == null) {
+                runners = alone;
+            } else {
+                runners = Arrays.copyOf(runners, runners.length + 1);
+                runners[runners.length - 1] = this;
+            }
+            footprints.put(location, runners);
+        }
+    }
+
+    /**
+     * Removes this runner from all locations it is registered at and empties
+     * its footprint.
+     */
+    private final void removeFootprint() {
+        for (BlockLocation location : footprint) {
+            MachinaRunner[] runners = footprints.get(location);
+            if (runners == null)
+                continue;
+            if (runners.length == 1) {
+                if (runners[0] == this)
+                    footprints.remove(location);
+                continue;
+            }
+            for (int i = 0; i < runners.length; i++) {
+                if (runners[i] == this) {
+                    MachinaRunner[] remaining;
+                    if (runners.length == 2) {
+                        remaining = runners[1 - i].alone;
+                    } else {
+                        remaining = new MachinaRunner[runners.length - 1];
+                        System.arraycopy(runners, 0, remaining, 0, i);
+                        System.arraycopy(runners, i + 1, remaining, i, remaining.length - i);
+                    }
+                    footprints.put(location, remaining);
+                    break;
+                }
+            }
+        }
+        footprint.clear();
+    }
+
+    /**
+     * Marks every machina that depends on the block at the given location for
+     * verification before its next heartbeat.
+     * 
+     * @param world
+     *            The world of the block
+     * @param x
+     *            The x-coordinate of the block
+     * @param y
+     *            The y-coordinate of the block
+     * @param z
+     *            The z-coordinate of the block
+     */
+    static final void notifyBlockChange(final World world, final int x, final int y, final int z) {
+        MachinaRunner[] runners = footprints.get(world, x, y, z);
+        if (runners == null)
+            return;
+        for (MachinaRunner machinaRunner : runners) {
+            machinaRunner.dirty = true;
+        }
+    }
+
+    /**
+     * Loads the verify interval from the given configuration.
+     * 
+     * @param configuration
+     *            The configuration to load from
+     */
+    static final void loadConfiguration(final ConfigurationSection configuration) {
+        verifyInterval = Math.max(configuration.getInt("verify-interval", verifyInterval), 1);
+    }
+
     /**
      * Returns whether a machina anchor exists for the given
      * {@link BlockLocation}
@@ -78,7 +267,7 @@ class MachinaRunner implements Runnable {
      * @return True if a machina anchor exists at this location
      */
     static final boolean exists(final BlockLocation location) {
-        return machinae.containsKey(location);
+        return machinae.contains(location);
     }
 
     /**
@@ -92,6 +281,50 @@ class MachinaRunner implements Runnable {
         return machinae.get(location).machina;
     }
 
+    /**
+     * Returns all machinae whose anchor lies within the given radius of the
+     * given {@link BlockLocation}
+     * 
+     * @param center
+     *            The location to search around
+     * @param radius
+     *            The maximum distance from the center in blocks
+     * @return A list of machinae, which is empty if none were found.
+     */
+    static final List<Machina> getMachinaeWithin(final BlockLocation center, final int radius) {
+        List<MachinaRunner> candidates = new ArrayList<MachinaRunner>();
+        chunkIndex.collect(center.getWorld(), (center.x - radius) >> 4, (center.z - radius) >> 4, (center.x + radius) >> 4, (center.z + radius) >> 4,
+                candidates);
+
+        List<Machina> result = new ArrayList<Machina>(candidates.size());
+        final long radiusSquared = (long) radius * radius;
+        for (MachinaRunner machinaRunner : candidates) {
+            long dx = machinaRunner.anchor.x - center.x;
+            long dy = machinaRunner.anchor.y - center.y;
+            long dz = machinaRunner.anchor.z - center.z;
+            if (dx * dx + dy * dy + dz * dz <= radiusSquared)
+                result.add(machinaRunner.machina);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the anchors of all existing machinae that can be saved, mapped
+     * to their machina.
+     * 
+     * @return A new map of anchors to persistent machinae
+     */
+    static final Map<BlockLocation, PersistentMachina> getPersistent() {
+        List<MachinaRunner> runners = new ArrayList<MachinaRunner>();
+        machinae.collectAll(runners);
+        Map<BlockLocation, PersistentMachina> result = new LinkedHashMap<BlockLocation, PersistentMachina>();
+        for (MachinaRunner machinaRunner : runners) {
+            if (machinaRunner.active && machinaRunner.machina instanceof PersistentMachina)
+                result.put(machinaRunner.anchor, (PersistentMachina) machinaRunner.machina);
+        }
+        return result;
+    }
+
     /**
      * Runs the machina's onLever function, and deactivates it if it returns
      * false.
@@ -107,8 +340,23 @@ class MachinaRunner implements Runnable {
         if (machinaRunner == null || (!machinaRunner.active))
             return;
 
-        if (!machinaRunner.machina.verify(location) || !machinaRunner.machina.onLever(location, player, item)) {
+        if (machinaRunner.suspended) {
+            // Resuming verifies the machina already.
+            if (!isSurroundingLoaded(machinaRunner.anchor) || !machinaRunner.resume())
+                return;
+        } else if (!machinaRunner.verify()) {
+            machinaRunner.deActivate();
+            return;
+        }
+        final long start = MachinaTimings.start();
+        final boolean result = machinaRunner.machina.onLever(location, player, item);
+        MachinaTimings.stop(machinaRunner.timings.onLever, start);
+        if (!result) {
             machinaRunner.deActivate();
+        } else {
+            // The machina may have changed its own blocks.
+            machinaRunner.dirty = true;
+            machinaRunner.footprintStale = true;
         }
     }
 
@@ -128,12 +376,20 @@ class MachinaRunner implements Runnable {
 
     /**
      * Deactivates all MachinaRunners
+     * 
+     * @param saved
+     *            The anchors of the machinae whose state was written to the
+     *            snapshot
      */
-    static final void deActivateAll() {
-        for (Iterator<MachinaRunner>it = machinae.values().iterator(); it.hasNext();) {
-            it.next().deActivateSafely();
-            it.remove();
+    static final void deActivateAll(final Set<BlockLocation> saved) {
+        List<MachinaRunner> runners = new ArrayList<MachinaRunner>();
+        machinae.collectAll(runners);
+        for (MachinaRunner machinaRunner : runners) {
+            machinaRunner.deActivateSafely(saved.contains(machinaRunner.anchor));
         }
+        machinae.clear();
+        chunkIndex.clear();
+        footprints.clear();
     }
 
     /**
@@ -144,43 +400,128 @@ class MachinaRunner implements Runnable {
             return;
 
         active = false;
+        timings.active.decrementAndGet();
         machinae.remove(anchor);
+        chunkIndex.remove(anchor, this);
+        removeFootprint();
+        plugin.heartBeatScheduler.cancel(this);
+        // The owner may now be able to activate another machina.
+        if (machina instanceof PersistentMachina)
+            plugin.detectionCache.invalidate(((PersistentMachina) machina).getOwner());
         machina.onDeActivate(anchor);
     }
 
     /**
-     * Deactivates this MachinaRunner without modifying the machinae hashmap.
+     * Deactivates this MachinaRunner without modifying the machinae index.
      * Intended for use with an iteration over the hashmap.
+     * <p>
+     * A suspended machina whose state was saved is left as it is. It sits
+     * next to an unloaded chunk, so writing its blocks would load chunks while
+     * shutting down, and it is restored from the snapshot anyway. Any other
+     * machina is cleaned up even if that loads a chunk.
+     * 
+     * @param saved
+     *            Whether the state of the machina was written to the snapshot
      */
-    private final void deActivateSafely() {
+    private final void deActivateSafely(final boolean saved) {
         if (!active)
             return;
 
         active = false;
-        machina.onDeActivate(anchor);
+        timings.active.decrementAndGet();
+        plugin.heartBeatScheduler.cancel(this);
+        if (!(suspended && saved))
+            machina.onDeActivate(anchor);
+    }
+
+    /**
+     * Suspends this MachinaRunner. The machina keeps its state and its anchor,
+     * but receives no heartbeats until it is resumed.
+     */
+    private final void suspend() {
+        if (!active || suspended)
+            return;
+
+        suspended = true;
+        plugin.heartBeatScheduler.cancel(this);
+    }
+
+    /**
+     * Resumes this MachinaRunner after verifying that the machina is still
+     * intact. Deactivates the machina if it is not.
+     * 
+     * @return True if the machina was resumed.
+     */
+    private final boolean resume() {
+        if (!active)
+            return false;
+
+        suspended = false;
+        if (!verify()) {
+            deActivate();
+            return false;
+        }
+        plugin.heartBeatScheduler.schedule(this, 1);
+        return true;
     }
 
     /**
-     * Deactivates all machina in or near an unloaded chunk.
+     * Returns true if all chunks within {@link #chunkUnloadDistance} of the
+     * given location are loaded.
+     * 
+     * @param location
+     *            The location to check around
+     * @return True if all surrounding chunks are loaded
+     */
+    static final boolean isSurroundingLoaded(final BlockLocation location) {
+        final World world = location.getWorld();
+        final int x = location.x >> 4;
+        final int z = location.z >> 4;
+        for (int i = x - chunkUnloadDistance; i <= x + chunkUnloadDistance; i++) {
+            for (int j = z - chunkUnloadDistance; j <= z + chunkUnloadDistance; j++) {
+                if (!world.isChunkLoaded(i, j))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Suspends all machina in or near an unloaded chunk.
      * 
      * @param chunk
      *            The chunk that is being unloaded
      */
     static final void notifyChunkUnload(Chunk chunk) {
-        int x = chunk.getX();
-        int z = chunk.getZ();
+        for (MachinaRunner machinaRunner : getNearby(chunk)) {
+            machinaRunner.suspend();
+        }
+    }
 
-        for (Iterator<MachinaRunner> it = machinae.values().iterator(); it.hasNext();) {
-            MachinaRunner machinaRunner = it.next();
-            Chunk machinaChunk = machinaRunner.anchor.getBlock().getChunk();
+    /**
+     * Resumes all suspended machina near a loaded chunk, if all chunks around
+     * them are loaded again.
+     * 
+     * @param chunk
+     *            The chunk that was loaded
+     */
+    static final void notifyChunkLoad(Chunk chunk) {
+        for (MachinaRunner machinaRunner : getNearby(chunk)) {
+            if (machinaRunner.suspended && isSurroundingLoaded(machinaRunner.anchor))
+                machinaRunner.resume();
+        }
+    }
 
-            int xDistance = Math.abs(x - machinaChunk.getX());
-            int zDistance = Math.abs(z - machinaChunk.getZ());
+    /**
+     * Returns all MachinaRunners anchored within {@link #chunkUnloadDistance}
+     * of the given chunk.
+     */
+    private static final List<MachinaRunner> getNearby(Chunk chunk) {
+        int x = chunk.getX();
+        int z = chunk.getZ();
 
-            if (xDistance <= chunkUnloadDistance && zDistance <= chunkUnloadDistance) {
-                machinaRunner.deActivateSafely();
-                it.remove();
-            }
-        }
+        List<MachinaRunner> nearby = new ArrayList<MachinaRunner>();
+        chunkIndex.collect(chunk.getWorld(), x - chunkUnloadDistance, z - chunkUnloadDistance, x + chunkUnloadDistance, z + chunkUnloadDistance, nearby);
+        return nearby;
     }
 }
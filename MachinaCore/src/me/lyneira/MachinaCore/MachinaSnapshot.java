@@ -0,0 +1,359 @@
+package me.lyneira.MachinaCore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+/**
+ * Saves the state of all active {@link PersistentMachina} instances to disk,
+ * and restores them once their chunks are loaded after a restart. A machina
+ * is only restored while its owner is online, so machinae near the spawn or of
+ * players who are offline wait until their owner joins.
+ * 
+ * @author Lyneira
+ */
+final class MachinaSnapshot implements Runnable {
+    private static final int version = 2;
+    private static final String fileName = "machinae.dat";
+
+    private final MachinaCore plugin;
+    private final File file;
+
+    /**
+     * Saved machinae waiting for their chunks to load or their owner to join.
+     */
+    private final ChunkIndex<Entry> pending = new ChunkIndex<Entry>();
+
+    /**
+     * Saved machinae in worlds that are not loaded or of blueprints that are
+     * not registered. These are kept so that they are written to the next
+     * snapshot again.
+     */
+    private final List<Entry> unresolved = new ArrayList<Entry>();
+
+    /**
+     * Whether restoring has started. Blueprints are registered by other
+     * plugins, so nothing can be restored before they are all enabled.
+     */
+    private boolean restoring = false;
+
+    /**
+     * The number of seconds between snapshots while the server is running. 0
+     * means snapshots are only written at shutdown.
+     */
+    private int interval = 300;
+
+    /**
+     * A saved machina.
+     */
+    private static final class Entry {
+        final String blueprint;
+        final String owner;
+        final String world;
+        final int x;
+        final int y;
+        final int z;
+        final byte[] data;
+        BlockLocation anchor;
+
+        Entry(String blueprint, String owner, String world, int x, int y, int z, byte[] data) {
+            this.blueprint = blueprint;
+            this.owner = owner;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.data = data;
+        }
+    }
+
+    MachinaSnapshot(final MachinaCore plugin) {
+        this.plugin = plugin;
+        file = new File(plugin.getDataFolder(), fileName);
+    }
+
+    /**
+     * Writes a snapshot in the background. Used for the periodic snapshot.
+     */
+    public void run() {
+        save(true);
+    }
+
+    /**
+     * @return The number of server ticks between periodic snapshots, or 0 if
+     *         periodic snapshots are disabled.
+     */
+    long getInterval() {
+        return interval * 20L;
+    }
+
+    /**
+     * Reads the snapshot written by the previous run, if any.
+     */
+    void load() {
+        if (!file.exists())
+            return;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+            if (in.readInt() != version) {
+                MachinaCore.log.warning("MachinaCore: Ignoring " + fileName + " written by an incompatible version.");
+                return;
+            }
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String blueprint = in.readUTF();
+                String owner = in.readUTF();
+                String world = in.readUTF();
+                int x = in.readInt();
+                int y = in.readInt();
+                int z = in.readInt();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                add(new Entry(blueprint, owner, world, x, y, z, data));
+            }
+        } catch (IOException e) {
+            MachinaCore.log.log(Level.WARNING, "MachinaCore: Could not read " + fileName, e);
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Starts restoring saved machinae. Machinae in chunks that are already
+     * loaded are restored immediately, the rest when their chunks load.
+     */
+    void startRestoring() {
+        restoring = true;
+        List<Entry> entries = new ArrayList<Entry>();
+        pending.collectAll(entries);
+        for (Entry entry : entries) {
+            if (MachinaRunner.isSurroundingLoaded(entry.anchor))
+                restore(entry);
+        }
+    }
+
+    /**
+     * Restores saved machinae near a loaded chunk, if all chunks around them
+     * are loaded.
+     * 
+     * @param chunk
+     *            The chunk that was loaded
+     */
+    void notifyChunkLoad(Chunk chunk) {
+        if (!restoring)
+            return;
+
+        int x = chunk.getX();
+        int z = chunk.getZ();
+        List<Entry> nearby = new ArrayList<Entry>();
+        pending.collect(chunk.getWorld(), x - 1, z - 1, x + 1, z + 1, nearby);
+        for (Entry entry : nearby) {
+            if (MachinaRunner.isSurroundingLoaded(entry.anchor))
+                restore(entry);
+        }
+    }
+
+    /**
+     * Restores the saved machinae of a player who joined, if all chunks
+     * around them are loaded.
+     * 
+     * @param player
+     *            The player who joined
+     */
+    void notifyPlayerJoin(Player player) {
+        if (!restoring)
+            return;
+
+        List<Entry> entries = new ArrayList<Entry>();
+        pending.collectAll(entries);
+        for (Entry entry : entries) {
+            if (entry.owner.equalsIgnoreCase(player.getName()) && MachinaRunner.isSurroundingLoaded(entry.anchor))
+                restore(entry);
+        }
+    }
+
+    /**
+     * Writes the state of all active persistent machinae to disk, along with
+     * saved machinae that have not been restored yet.
+     * 
+     * @param background
+     *            Whether to write the file in the background.
+     * @return The anchors of the active machinae whose state is in the
+     *         snapshot. Empty if the snapshot could not be written.
+     */
+    Set<BlockLocation> save(final boolean background) {
+        final Set<BlockLocation> saved = new HashSet<BlockLocation>();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final List<Entry> entries = new ArrayList<Entry>();
+        pending.collectAll(entries);
+        entries.addAll(unresolved);
+        try {
+            final ByteArrayOutputStream machinaBytes = new ByteArrayOutputStream();
+            final DataOutputStream machinaOut = new DataOutputStream(machinaBytes);
+            for (Map.Entry<BlockLocation, PersistentMachina> i : MachinaRunner.getPersistent().entrySet()) {
+                BlockLocation anchor = i.getKey();
+                PersistentMachina machina = i.getValue();
+                machinaBytes.reset();
+                try {
+                    machina.save(machinaOut);
+                } catch (RuntimeException e) {
+                    MachinaCore.log.log(Level.WARNING, "MachinaCore: Could not save machina at " + anchor, e);
+                    continue;
+                }
+                entries.add(new Entry(machina.getBlueprint().getClass().getName(), machina.getOwner(), anchor.getWorld().getName(), anchor.x, anchor.y,
+                        anchor.z, machinaBytes.toByteArray()));
+                saved.add(anchor);
+            }
+
+            out.writeInt(version);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeUTF(entry.blueprint);
+                out.writeUTF(entry.owner);
+                out.writeUTF(entry.world);
+                out.writeInt(entry.x);
+                out.writeInt(entry.y);
+                out.writeInt(entry.z);
+                out.writeInt(entry.data.length);
+                out.write(entry.data);
+            }
+        } catch (IOException e) {
+            MachinaCore.log.log(Level.WARNING, "MachinaCore: Could not save active machinae", e);
+            return Collections.emptySet();
+        }
+
+        final byte[] snapshot = bytes.toByteArray();
+        if (background) {
+            plugin.getServer().getScheduler().scheduleAsyncDelayedTask(plugin, new Runnable() {
+                public void run() {
+                    write(snapshot);
+                }
+            });
+        } else if (!write(snapshot)) {
+            return Collections.emptySet();
+        }
+        return saved;
+    }
+
+    /**
+     * Loads the snapshot configuration.
+     * 
+     * @param configuration
+     *            The configuration to load from
+     */
+    void loadConfiguration(ConfigurationSection configuration) {
+        interval = Math.max(configuration.getInt("snapshot-interval", interval), 0);
+    }
+
+    /**
+     * Writes the given snapshot to a temporary file and replaces the old
+     * snapshot with it.
+     * 
+     * @return True if the snapshot was written.
+     */
+    private synchronized boolean write(final byte[] snapshot) {
+        final File temp = new File(file.getParentFile(), fileName + ".tmp");
+        BufferedOutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temp)));
+            out.write(snapshot);
+            out.close();
+            out = null;
+            if (file.exists() && !file.delete())
+                throw new IOException("Could not delete " + file);
+            if (!temp.renameTo(file))
+                throw new IOException("Could not rename " + temp + " to " + file);
+            return true;
+        } catch (IOException e) {
+            MachinaCore.log.log(Level.WARNING, "MachinaCore: Could not write " + fileName, e);
+            return false;
+        } finally {
+            close(out);
+        }
+    }
+
+    /**
+     * Adds a saved machina to the pending index, or to the unresolved list if
+     * its world is not loaded.
+     */
+    private void add(Entry entry) {
+        World world = plugin.getServer().getWorld(entry.world);
+        if (world == null) {
+            unresolved.add(entry);
+            return;
+        }
+        entry.anchor = new BlockLocation(world, entry.x, entry.y, entry.z);
+        pending.add(entry.anchor, entry);
+    }
+
+    /**
+     * Restores a saved machina and starts it. If its owner is not online or
+     * its blueprint cannot restore it at this time, the machina stays pending.
+     * If its blueprint is not registered, it is kept for the next snapshot.
+     */
+    private void restore(Entry entry) {
+        if (plugin.getServer().getPlayerExact(entry.owner) == null)
+            return;
+        if (MachinaRunner.exists(entry.anchor)) {
+            pending.remove(entry.anchor, entry);
+            return;
+        }
+
+        PersistentBlueprint blueprint = plugin.getPersistentBlueprint(entry.blueprint);
+        if (blueprint == null) {
+            MachinaCore.log.warning("MachinaCore: Could not restore machina at " + entry.anchor + ", " + entry.blueprint + " is not registered.");
+            pending.remove(entry.anchor, entry);
+            unresolved.add(entry);
+            return;
+        }
+
+        try {
+            Machina machina = blueprint.restore(entry.anchor, new DataInputStream(new ByteArrayInputStream(entry.data)));
+            if (machina == null)
+                return;
+            pending.remove(entry.anchor, entry);
+            new MachinaRunner(plugin, machina, entry.anchor, null);
+        } catch (IOException e) {
+            pending.remove(entry.anchor, entry);
+            MachinaCore.log.log(Level.WARNING, "MachinaCore: Could not restore machina at " + entry.anchor, e);
+        } catch (RuntimeException e) {
+            pending.remove(entry.anchor, entry);
+            MachinaCore.log.log(Level.WARNING, "MachinaCore: Could not restore machina at " + entry.anchor, e);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null)
+            return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to do.
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package me.lyneira.MachinaCore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timings of the calls MachinaCore makes into a single {@link Machina} or
+ * {@link MachinaBlueprint} class. Machina classes record verify, heartBeat and
+ * onLever, blueprint classes record detect.
+ * 
+ * @author Lyneira
+ */
+final class MachinaTimings {
+    private static final ConcurrentHashMap<Class<?>, MachinaTimings> timings = new ConcurrentHashMap<Class<?>, MachinaTimings>();
+
+    /**
+     * Whether timings are recorded. Reading the clock is the only real cost, so
+     * this is normally left on.
+     */
+    static boolean enabled = true;
+
+    final String name;
+    final LatencyHistogram verify = new LatencyHistogram();
+    final LatencyHistogram heartBeat = new LatencyHistogram();
+    final LatencyHistogram onLever = new LatencyHistogram();
+    final LatencyHistogram detect = new LatencyHistogram();
+    /**
+     * The number of active machinae of this class.
+     */
+    final AtomicInteger active = new AtomicInteger();
+
+    private MachinaTimings(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the timings for the given class, creating them if needed.
+     * 
+     * @param type
+     *            The machina or blueprint class
+     * @return The timings for the class
+     */
+    static final MachinaTimings of(final Class<?> type) {
+        MachinaTimings result = timings.get(type);
+        if (result == null) {
+            result = new MachinaTimings(type.getName());
+            MachinaTimings existing = timings.putIfAbsent(type, result);
+            if (existing != null)
+                result = existing;
+        }
+        return result;
+    }
+
+    /**
+     * @return A new list of the timings of all classes seen so far.
+     */
+    static final List<MachinaTimings> all() {
+        return new ArrayList<MachinaTimings>(timings.values());
+    }
+
+    /**
+     * Clears the recorded durations of all classes. Active counts are kept.
+     */
+    static final void resetAll() {
+        for (MachinaTimings i : timings.values()) {
+            i.verify.reset();
+            i.heartBeat.reset();
+            i.onLever.reset();
+            i.detect.reset();
+        }
+    }
+
+    /**
+     * @return The current time in nanoseconds, or 0 if timings are disabled.
+     */
+    static final long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time passed since the given start time in the given
+     * histogram.
+     * 
+     * @param histogram
+     *            The histogram to record in
+     * @param start
+     *            A time returned by {@link #start()}
+     */
+    static final void stop(final LatencyHistogram histogram, final long start) {
+        if (start != 0)
+            histogram.record(System.nanoTime() - start);
+    }
+}
@@ -1,8 +1,16 @@
 package me.lyneira.MachinaCore;
 
-import java.util.EnumMap;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.logging.Level;
+
+import me.lyneira.util.LongHashSet;
 
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
@@ -13,15 +21,27 @@ import org.bukkit.inventory.ItemStack;
  * 
  * @author Lyneira
  */
-public abstract class Movable implements Machina {
+public abstract class Movable implements FootprintMachina {
     protected final MovableBlueprint blueprint;
     private final List<Integer> modules;
     private final int moduleCount;
 
+    private final UnifiedBlueprint unified;
     private final BlueprintBlock[] unifiedBlueprint;
-    private final BlockVector[] unifiedVectors;
     private final int size;
-    private final Map<BlockFace, BlueprintDifference> differences = new EnumMap<BlockFace, BlueprintDifference>(BlockFace.class);
+    /**
+     * The unified blueprint at the current yaw.
+     */
+    private UnifiedBlueprint.Orientation orientation;
+    private BlockVector[] unifiedVectors;
+    /**
+     * Reused by the collision checks so that they allocate nothing.
+     */
+    private final BlockCursor cursor = new BlockCursor();
+    /**
+     * Collects the block changes of a move so they are applied together.
+     */
+    private final BlockChangeBatch batch = new BlockChangeBatch();
 
     protected BlockRotation yaw;
     protected Player player;
@@ -31,22 +51,36 @@ public abstract class Movable implements Machina {
      * have these preserved.
      */
     private final class MoveData {
-        byte[] data;
-        ItemStack[][] inventories;
+        final int moduleIndex;
+        /**
+         * Buffers that are filled in place on every move.
+         */
+        final byte[] data;
+        final ItemStack[][] inventories;
+
+        MoveData(final int moduleIndex) {
+            this.moduleIndex = moduleIndex;
+            data = new byte[blueprint.dataCount(moduleIndex)];
+            inventories = new ItemStack[blueprint.inventoryCount(moduleIndex)][];
+        }
 
-        void get(BlockLocation anchor, int moduleIndex) {
+        void get(BlockLocation anchor) {
             // * Copy data bytes for blocks that need it.
-            data = blueprint.getBlockData(anchor, yaw, moduleIndex);
-            // * Copy inventory contents (as array) for blocks with inventory,
-            // and clear those inventories.
-            inventories = blueprint.getBlockInventories(anchor, yaw, moduleIndex);
+            blueprint.getBlockData(anchor, yaw, moduleIndex, data);
+            // * Copy inventory contents for blocks with inventory, and clear
+            // those inventories.
+            blueprint.getBlockInventories(anchor, yaw, moduleIndex, inventories);
         }
 
-        void put(BlockLocation anchor, int moduleIndex) {
+        void put(BlockLocation anchor) {
             // * Set data for blocks that need it.
             blueprint.setBlockData(anchor, data, yaw, moduleIndex);
             // * Copy inventory contents into blocks that need it.
             blueprint.setBlockInventories(anchor, inventories, yaw, moduleIndex);
+            // * Let go of the items until the next move.
+            for (ItemStack[] contents : inventories) {
+                Arrays.fill(contents, null);
+            }
         }
     }
 
@@ -61,23 +95,26 @@ public abstract class Movable implements Machina {
         moduleCount = moduleIndices.size();
         moveData = new MoveData[moduleCount];
         for (int i = 0; i < moduleCount; i++) {
-            moveData[i] = new MoveData();
+            moveData[i] = new MoveData(moduleIndices.get(i));
         }
 
-        unifiedBlueprint = blueprint.unifyBlueprint(moduleIndices);
-        size = this.unifiedBlueprint.length;
-        unifiedVectors = new BlockVector[size];
-        blueprint.unifyVectors(moduleIndices, yaw, unifiedVectors);
+        unified = blueprint.unified(moduleIndices);
+        unifiedBlueprint = unified.blueprint;
+        size = unified.size;
+        orientation = unified.orientation(yaw);
+        unifiedVectors = orientation.vectors;
     }
 
     @Override
     public boolean verify(final BlockLocation anchor) {
+        return orientation.kernel.match(anchor);
+    }
+
+    @Override
+    public void getFootprint(final BlockLocation anchor, final Collection<BlockLocation> footprint) {
         for (int i = 0; i < size; i++) {
-            if (anchor.getRelative(unifiedVectors[i]).getTypeId() != unifiedBlueprint[i].typeId) {
-                return false;
-            }
+            footprint.add(anchor.getRelative(unifiedVectors[i]));
         }
-        return true;
     }
 
     /**
@@ -89,12 +126,7 @@ public abstract class Movable implements Machina {
      * @return A {@link BlueprintDifference} for this direction
      */
     private BlueprintDifference getDifference(final BlockFace face) {
-        BlueprintDifference result = differences.get(face);
-        if (result == null) {
-            result = new BlueprintDifference(unifiedBlueprint, unifiedVectors, size, face);
-            differences.put(face, result);
-        }
-        return result;
+        return orientation.difference(face);
     }
 
     /**
@@ -110,14 +142,44 @@ public abstract class Movable implements Machina {
      * @return True if a collision would happen
      */
     protected boolean detectCollision(final BlockLocation oldAnchor, final BlockFace face) {
+        final BlockCursor cursor = this.cursor.set(oldAnchor);
         for (BlockVector i : getDifference(face).plus) {
-            if (!oldAnchor.getRelative(i).isEmptyForCollision()) {
+            if (!cursor.at(i).isEmptyForCollision()) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * Determines how far this movable could move in the direction of the given
+     * face, up to the given number of blocks, without colliding. The whole
+     * path is checked in a single pass: every block the movable would move
+     * into along the way is a shifted copy of the difference for a single
+     * step.
+     * 
+     * @param oldAnchor
+     *            The anchor before the move.
+     * @param face
+     *            The direction to move in.
+     * @param steps
+     *            The maximum number of blocks to move.
+     * @return The number of blocks the movable can move, which is 0 if even
+     *         the first step would collide.
+     */
+    protected int detectCollisionSwept(final BlockLocation oldAnchor, final BlockFace face, final int steps) {
+        final BlockVector[] plus = getDifference(face).plus;
+        final BlockCursor cursor = this.cursor.set(oldAnchor);
+        for (int step = 0; step < steps; step++) {
+            for (BlockVector i : plus) {
+                if (!cursor.at(i).move(face, step).isEmptyForCollision()) {
+                    return step;
+                }
+            }
+        }
+        return steps;
+    }
+
     /**
      * Detects whether a collision would happen if this movable were to teleport
      * to the given location. This function assumes both locations are in the
@@ -147,9 +209,13 @@ public abstract class Movable implements Machina {
      * @return True if a collision would happen
      */
     protected boolean detectCollisionTeleport(final BlockLocation oldAnchor, final BlockVector teleportBy) {
-        BlockVector[] teleportDifference = BlueprintDifference.teleportDifference(unifiedVectors, size, teleportBy);
-        for (BlockVector i : teleportDifference) {
-            if (!oldAnchor.getRelative(i).isEmptyForCollision()) {
+        final LongHashSet occupied = orientation.occupied;
+        final BlockCursor cursor = this.cursor.set(oldAnchor);
+        for (BlockVector i : unifiedVectors) {
+            // Blocks of the movable itself will be moved out of the way.
+            if (occupied.contains(BlockLocation.pack(i.x + teleportBy.x, i.y + teleportBy.y, i.z + teleportBy.z)))
+                continue;
+            if (!cursor.at(i).move(teleportBy).isEmptyForCollision()) {
                 return true;
             }
         }
@@ -168,9 +234,9 @@ public abstract class Movable implements Machina {
      * @return True if a collision would happen
      */
     protected boolean detectCollisionRotate(final BlockLocation anchor, final BlockRotation rotateBy) {
-        BlockVector[] rotateDifference = BlueprintDifference.rotateDifference(unifiedVectors, size, rotateBy);
-        for (BlockVector i : rotateDifference) {
-            if (!anchor.getRelative(i).isEmptyForCollision()) {
+        final BlockCursor cursor = this.cursor.set(anchor);
+        for (BlockVector i : orientation.rotateDifference(rotateBy)) {
+            if (!cursor.at(i).isEmptyForCollision()) {
                 return true;
             }
         }
@@ -178,22 +244,21 @@ public abstract class Movable implements Machina {
     }
 
     /**
-     * Places all blocks of this movable in relation to the given new anchor.
-     * Starts from the end of the array so that attached blocks on the front are
-     * placed last.
+     * Adds all blocks of this movable in relation to the given new anchor to
+     * the move batch. The batch takes care of placing attached blocks last.
      * 
      * @param newAnchor
      *            {@link BlockLocation} of the new anchor
      */
     protected void put(final BlockLocation newAnchor) {
         for (int i = size - 1; i >= 0; i--) {
-            newAnchor.getRelative(unifiedVectors[i]).setTypeId(unifiedBlueprint[i].typeId);
+            batch.setTypeId(newAnchor.getRelative(unifiedVectors[i]), unifiedBlueprint[i].typeId);
         }
     }
 
     /**
-     * Clears the blocks that should become empty after the movable has moved in
-     * the direction of the given face.
+     * Adds the blocks that should become empty after the movable has moved in
+     * the direction of the given face to the move batch.
      * 
      * @param oldAnchor
      *            {@link BlockLocation} of the anchor to clear behind. This must
@@ -202,20 +267,25 @@ public abstract class Movable implements Machina {
      *            The direction to move in.
      */
     protected void clearBehind(final BlockLocation oldAnchor, final BlockFace face) {
-        for (BlockVector i : getDifference(face).minus) {
-            oldAnchor.getRelative(i).setEmpty();
+        final BlueprintDifference difference = getDifference(face);
+        final BlockVector[] minus = difference.minus;
+        for (int i = 0; i < minus.length; i++) {
+            // Blocks that keep their data get it back from the move data if
+            // the move fails.
+            batch.setEmpty(oldAnchor.getRelative(minus[i]), difference.minusTypeIds[i], (byte) 0);
         }
     }
 
     /**
-     * Clears all blocks this movable is made up of.
+     * Adds all blocks this movable is made up of to the move batch to be
+     * cleared.
      * 
      * @param anchor
      *            {@link BlockLocation} of the anchor to clear around.
      */
     protected void clearFull(final BlockLocation anchor) {
-        for (BlockVector i : unifiedVectors) {
-            anchor.getRelative(i).setEmpty();
+        for (int i = 0; i < size; i++) {
+            batch.setEmpty(anchor.getRelative(unifiedVectors[i]), unifiedBlueprint[i].typeId, (byte) 0);
         }
     }
 
@@ -233,20 +303,46 @@ public abstract class Movable implements Machina {
         BlockLocation newAnchor = oldAnchor.getRelative(face);
 
         for (int i = 0; i < moduleCount; i++) {
-            moveData[i].get(oldAnchor, modules.get(i));
+            moveData[i].get(oldAnchor);
         }
 
         // Destroy the negative difference, with attachables included first
+        batch.reset();
         clearBehind(oldAnchor, face);
         // Put new blocks, attachables last
         put(newAnchor);
+        apply(oldAnchor);
 
         for (int i = 0; i < moduleCount; i++) {
-            moveData[i].put(newAnchor, modules.get(i));
+            moveData[i].put(newAnchor);
         }
         return newAnchor;
     }
 
+    /**
+     * Moves the machina the given number of blocks in the direction of the
+     * given {@link BlockFace}. A single step is done with
+     * {@link #moveByFace(BlockLocation, BlockFace)}, any further distance
+     * with a single {@link #teleport(BlockLocation, BlockLocation)}. The
+     * caller should have checked the path with
+     * {@link #detectCollisionSwept(BlockLocation, BlockFace, int)}.
+     * 
+     * @param oldAnchor
+     *            The current anchor
+     * @param face
+     *            The direction to move in
+     * @param steps
+     *            The number of blocks to move
+     * @return The new anchor
+     */
+    protected BlockLocation moveBy(final BlockLocation oldAnchor, final BlockFace face, final int steps) {
+        if (steps == 1)
+            return moveByFace(oldAnchor, face);
+        BlockLocation newAnchor = oldAnchor.getRelative(face, steps);
+        teleport(oldAnchor, newAnchor);
+        return newAnchor;
+    }
+
     /**
      * Teleports the machina at oldAnchor to newAnchor.
      * 
@@ -257,16 +353,50 @@ public abstract class Movable implements Machina {
      */
     protected void teleport(final BlockLocation oldAnchor, final BlockLocation newAnchor) {
         for (int i = 0; i < moduleCount; i++) {
-            moveData[i].get(oldAnchor, modules.get(i));
+            moveData[i].get(oldAnchor);
         }
 
         // Destroy the entire machina, with attachables included first
+        batch.reset();
         clearFull(oldAnchor);
         // Put new blocks, attachables last
         put(newAnchor);
+        apply(oldAnchor);
 
         for (int i = 0; i < moduleCount; i++) {
-            moveData[i].put(newAnchor, modules.get(i));
+            moveData[i].put(newAnchor);
+        }
+    }
+
+    /**
+     * Applies the move batch. If it fails, the batch rolls back the blocks
+     * and the data and inventories taken from them are put back at the old
+     * anchor before the exception is passed on.
+     * 
+     * @param oldAnchor
+     *            The anchor before the move
+     */
+    private void apply(final BlockLocation oldAnchor) {
+        try {
+            batch.apply();
+        } catch (RuntimeException e) {
+            restoreMoveData(oldAnchor);
+            throw e;
+        }
+    }
+
+    /**
+     * Puts the data and inventories taken for a failed move back at the given
+     * anchor. Failing to do so is logged, so that the original exception is
+     * the one passed on.
+     */
+    private void restoreMoveData(final BlockLocation anchor) {
+        try {
+            for (int i = 0; i < moduleCount; i++) {
+                moveData[i].put(anchor);
+            }
+        } catch (RuntimeException e) {
+            MachinaCore.log.log(Level.SEVERE, "MachinaCore: Could not restore the contents of a machina at " + anchor, e);
         }
     }
 
@@ -284,23 +414,35 @@ public abstract class Movable implements Machina {
         }
 
         for (int i = 0; i < moduleCount; i++) {
-            moveData[i].get(anchor, modules.get(i));
+            moveData[i].get(anchor);
         }
 
         // * Destroy the negative difference, with attachables included
         // first
+        batch.reset();
         clearFull(anchor);
 
+        final UnifiedBlueprint.Orientation previous = orientation;
         yaw = yaw.add(rotateBy);
-        // Re-initialize the vectors, also clear the differences since they are only valid for a given yaw.
-        blueprint.unifyVectors(modules, yaw, unifiedVectors);
-        differences.clear();
+        // Switch to the vectors and differences for the new yaw.
+        orientation = unified.orientation(yaw);
+        unifiedVectors = orientation.vectors;
 
         // * Put new blocks, attachables last
         put(anchor);
+        try {
+            batch.apply();
+        } catch (RuntimeException e) {
+            // The batch rolled back the blocks, so go back to the old yaw.
+            yaw = previous.yaw;
+            orientation = previous;
+            unifiedVectors = previous.vectors;
+            restoreMoveData(anchor);
+            throw e;
+        }
 
         for (int i = 0; i < moduleCount; i++) {
-            moveData[i].put(anchor, modules.get(i));
+            moveData[i].put(anchor);
         }
     }
 
@@ -325,6 +467,36 @@ public abstract class Movable implements Machina {
         return EventSimulator.blockPlacePretend(target, block.typeId, placedAgainst, player);
     }
 
+    /**
+     * Checks {@link #canMove(BlockLocation, BlueprintBlock)} for every
+     * position the given block passes on a move of the given number of steps,
+     * so that a move of several blocks cannot hop over a protected strip. The
+     * positions are checked with a single bulk check.
+     * 
+     * @param anchor
+     *            The anchor before the move
+     * @param face
+     *            The direction to move in
+     * @param steps
+     *            The number of blocks to move
+     * @param block
+     *            The block of the blueprint to check, usually the head
+     * @return The number of steps that can be made before the first position
+     *         protection plugins deny, 0 if the first step is denied.
+     */
+    protected int canMoveSwept(final BlockLocation anchor, final BlockFace face, final int steps, final BlueprintBlock block) {
+        if (steps <= 1)
+            return steps == 1 && canMove(anchor.getRelative(face), block) ? 1 : 0;
+
+        final BlockVector vector = block.vector(yaw);
+        final List<BlockLocation> targets = new ArrayList<BlockLocation>(steps);
+        for (int i = 1; i <= steps; i++) {
+            targets.add(anchor.getRelative(face, i).getRelative(vector));
+        }
+        final BitSet allowed = EventSimulator.blockPlacePretend(targets, block.typeId, yaw.getOpposite().getYawFace(), player);
+        return Math.min(allowed.nextClearBit(0), steps);
+    }
+
     /**
      * Simulates a block place event on behalf of the player who started the
      * machina. Returns true if the player could build the new block.
@@ -341,6 +513,71 @@ public abstract class Movable implements Machina {
         return EventSimulator.blockPlace(target, typeId, data, placedAgainst, player);
     }
 
+    /**
+     * @return The name of the player who activated this movable.
+     */
+    public String getOwner() {
+        return player.getName();
+    }
+
+    /**
+     * Writes the state shared by all movables: the yaw, the active modules and
+     * the player who activated it. Subclasses implementing
+     * {@link PersistentMachina} should call this before writing their own
+     * state, and read it back with {@link #loadState(DataInput)}.
+     * 
+     * @param out
+     *            The output to write to
+     * @throws IOException
+     */
+    protected void save(final DataOutput out) throws IOException {
+        out.writeByte(yaw.ordinal());
+        out.writeByte(moduleCount);
+        for (int i = 0; i < moduleCount; i++) {
+            out.writeShort(modules.get(i));
+        }
+        out.writeUTF(player.getName());
+    }
+
+    /**
+     * The state shared by all movables, as read by
+     * {@link Movable#loadState(DataInput)}.
+     */
+    protected static final class SavedState {
+        public final BlockRotation yaw;
+        public final List<Integer> modules;
+        /**
+         * The player who activated the movable, or null if that player is not
+         * online.
+         */
+        public final Player player;
+
+        private SavedState(final BlockRotation yaw, final List<Integer> modules, final Player player) {
+            this.yaw = yaw;
+            this.modules = modules;
+            this.player = player;
+        }
+    }
+
+    /**
+     * Reads the state written by {@link #save(DataOutput)}.
+     * 
+     * @param in
+     *            The input to read from
+     * @return The saved state
+     * @throws IOException
+     */
+    protected static SavedState loadState(final DataInput in) throws IOException {
+        BlockRotation yaw = BlockRotation.values()[in.readByte()];
+        int moduleCount = in.readByte();
+        List<Integer> modules = new ArrayList<Integer>(moduleCount);
+        for (int i = 0; i < moduleCount; i++) {
+            modules.add((int) in.readShort());
+        }
+        Player player = MachinaCore.plugin.getServer().getPlayerExact(in.readUTF());
+        return new SavedState(yaw, modules, player);
+    }
+
     /**
      * Checks if the given module id is active for this machina.
      * 
@@ -1,7 +1,9 @@
 package me.lyneira.MachinaCore;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.bukkit.inventory.ItemStack;
 
@@ -12,6 +14,10 @@ import org.bukkit.inventory.ItemStack;
  */
 public abstract class MovableBlueprint implements MachinaBlueprint {
     private final List<BlueprintModule> modules;
+    /**
+     * Unified blueprints shared by all movables with the same modules.
+     */
+    private final Map<List<Integer>, UnifiedBlueprint> unified = new HashMap<List<Integer>, UnifiedBlueprint>();
 
     /**
      * Constructs a new MovableBlueprint using the given
@@ -58,6 +64,23 @@ public abstract class MovableBlueprint implements MachinaBlueprint {
         return modules.get(module).getBlockData(anchor, yaw);
     }
 
+    /**
+     * Copies the block data for this blueprint into the given array, which
+     * must hold at least {@link #dataCount(int)} bytes.
+     * 
+     * @param anchor
+     *            The anchor for which to grab data from the blocks
+     * @param yaw
+     *            {@link BlockRotation} of the blueprint
+     * @param module
+     *            The module to get data from.
+     * @param data
+     *            The array to copy the data into
+     */
+    public void getBlockData(final BlockLocation anchor, final BlockRotation yaw, final int module, final byte[] data) {
+        modules.get(module).getBlockData(anchor, yaw, data);
+    }
+
     /**
      * Sets the data for the blocks around anchor using the given data byte
      * array.
@@ -92,6 +115,50 @@ public abstract class MovableBlueprint implements MachinaBlueprint {
         return modules.get(module).getBlockInventories(anchor, yaw);
     }
 
+    /**
+     * Moves the contents of the inventories in this blueprint into the given
+     * slot buffers, which must hold at least {@link #inventoryCount(int)}
+     * entries. Slot buffers of the right size are filled in place, so the
+     * same buffers can be used for every move. The inventories are cleared
+     * in the process.
+     * 
+     * @param anchor
+     *            The anchor for which to grab inventory from the blocks
+     * @param yaw
+     *            {@link BlockRotation} of the blueprint
+     * @param module
+     *            The module to grab inventory for.
+     * @param inventories
+     *            The slot buffers to move the contents into
+     */
+    public void getBlockInventories(final BlockLocation anchor, final BlockRotation yaw, final int module, final ItemStack[][] inventories) {
+        modules.get(module).getBlockInventories(anchor, yaw, inventories);
+    }
+
+    /**
+     * Returns the number of blocks in the given module whose data is copied
+     * during a move.
+     * 
+     * @param module
+     *            The module
+     * @return The number of data blocks
+     */
+    public int dataCount(final int module) {
+        return modules.get(module).dataCount();
+    }
+
+    /**
+     * Returns the number of blocks in the given module whose inventory is
+     * copied during a move.
+     * 
+     * @param module
+     *            The module
+     * @return The number of inventory blocks
+     */
+    public int inventoryCount(final int module) {
+        return modules.get(module).inventoryCount();
+    }
+
     /**
      * Sets the inventory for the blocks around the anchor using the given array
      * of inventories
@@ -109,6 +176,23 @@ public abstract class MovableBlueprint implements MachinaBlueprint {
         modules.get(module).setBlockInventories(anchor, inventories, yaw);
     }
 
+    /**
+     * Returns the {@link UnifiedBlueprint} for the given moduleIndices,
+     * creating it the first time these modules are asked for.
+     * 
+     * @param moduleIndices
+     *            The indices of the modules to unify
+     * @return The shared unified blueprint
+     */
+    final UnifiedBlueprint unified(final List<Integer> moduleIndices) {
+        UnifiedBlueprint result = unified.get(moduleIndices);
+        if (result == null) {
+            result = new UnifiedBlueprint(this, moduleIndices);
+            unified.put(new ArrayList<Integer>(moduleIndices), result);
+        }
+        return result;
+    }
+
     /**
      * Unifies the {@link BlueprintBlock}s for the given moduleIndices into a
      * new array and returns it.
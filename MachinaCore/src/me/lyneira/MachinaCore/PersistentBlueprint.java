@@ -0,0 +1,28 @@
+package me.lyneira.MachinaCore;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Represents a blueprint that can restore a {@link PersistentMachina} from
+ * saved state.
+ * 
+ * @author Lyneira
+ */
+public interface PersistentBlueprint extends MachinaBlueprint {
+    /**
+     * Function that is called to restore a machina at the given BlockLocation
+     * from the state written by {@link PersistentMachina#save}. Unlike detect,
+     * this function should not search for the machina. It should only check
+     * that the restored machina is intact, and return null if it is not or if
+     * it cannot be restored at this time.
+     * 
+     * @param anchor
+     *            The anchor location of the machina
+     * @param in
+     *            The saved state of the machina
+     * @return The restored Machina if successful, null otherwise.
+     * @throws IOException
+     */
+    public Machina restore(final BlockLocation anchor, final DataInput in) throws IOException;
+}
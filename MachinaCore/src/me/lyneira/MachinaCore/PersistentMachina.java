@@ -0,0 +1,39 @@
+package me.lyneira.MachinaCore;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Represents a {@link Machina} that can be kept running across server
+ * restarts. When the server shuts down, MachinaCore saves the state of every
+ * persistent machina, and restores it through the machina's
+ * {@link PersistentBlueprint} when its chunks are loaded again.
+ * 
+ * @author Lyneira
+ */
+public interface PersistentMachina extends Machina {
+    /**
+     * Returns the blueprint that can restore this machina from the state
+     * written by {@link #save(DataOutput)}.
+     * 
+     * @return The blueprint for this machina.
+     */
+    public PersistentBlueprint getBlueprint();
+
+    /**
+     * Returns the name of the player this machina runs for. A saved machina
+     * is only restored while this player is online.
+     * 
+     * @return The name of the owner of this machina.
+     */
+    public String getOwner();
+
+    /**
+     * Writes everything needed to restore this machina without detecting it.
+     * 
+     * @param out
+     *            The output to write to
+     * @throws IOException
+     */
+    public void save(final DataOutput out) throws IOException;
+}
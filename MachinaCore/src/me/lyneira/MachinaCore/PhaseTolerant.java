@@ -0,0 +1,13 @@
+package me.lyneira.MachinaCore;
+
+/**
+ * Marker interface for a {@link Machina} that does not depend on the exact
+ * tick its heartbeats happen on. When the delay returned by its heartbeat
+ * changes, MachinaCore may delay the next heartbeat by up to the same amount
+ * again, to spread machinae with the same delay over different ticks. After
+ * that, heartbeats follow the returned delay exactly.
+ * 
+ * @author Lyneira
+ */
+public interface PhaseTolerant extends Machina {
+}
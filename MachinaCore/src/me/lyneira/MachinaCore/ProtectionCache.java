@@ -0,0 +1,327 @@
+package me.lyneira.MachinaCore;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+/**
+ * Remembers the verdicts of protection plugins on the events simulated by
+ * {@link EventSimulator}, so that a drill stuck against a claimed area asks
+ * them once per cell instead of once per block and heartbeat.
+ * <p>
+ * A verdict applies to a single player, world, action and block type. A
+ * denial covers a cubic cell of {@link #cellSize} blocks, which at worst stops
+ * a machina a little before the edge of a protected area. An allowed change
+ * only covers its own block, since protected areas do not line up with cells
+ * and an allowed block next to one would otherwise let a machina into it.
+ * Servers can choose to let allowed changes cover the cell as well.
+ * <p>
+ * Verdicts expire after a configurable time, and are forgotten earlier when a
+ * player places or breaks a block in their cell, changes a sign in it or logs
+ * out. Protection plugins can change their minds for other reasons, which is
+ * what the invalidation functions in {@link EventSimulator} are for.
+ * 
+ * @author Lyneira
+ */
+final class ProtectionCache {
+    /**
+     * Placing a block.
+     */
+    static final int place = 0;
+    /**
+     * Breaking a block.
+     */
+    static final int breakBlock = 1;
+
+    /**
+     * The time in milliseconds a verdict is remembered. 0 disables the cache.
+     */
+    private long ttl = 5000;
+    /**
+     * Whether an allowed verdict may also stand in for a real, non-pretend
+     * event. Off by default, since logging plugins record those events.
+     */
+    private boolean skipEvents = false;
+    private int cellSize = 16;
+    private int cellShift = 4;
+    /**
+     * Whether an allowed change covers its cell, like a denial does, instead
+     * of only its own block. Off by default, see the class description.
+     */
+    private boolean shareAllowed = false;
+    private int allowShift = 0;
+    private long nextPurge = 0;
+    private long hits = 0;
+    private long misses = 0;
+    /**
+     * Denials, keyed by cell.
+     */
+    private final Map<Key, Verdict> denials = new HashMap<Key, Verdict>();
+    /**
+     * Allowed changes, keyed by block unless {@link #shareAllowed} is set.
+     */
+    private final Map<Key, Verdict> allowances = new HashMap<Key, Verdict>();
+    /**
+     * Reused for lookups so that a hit does not allocate.
+     */
+    private final Key probe = new Key();
+
+    /**
+     * Identifies the question a verdict answers. The coordinates are those of
+     * the cell or block the verdict covers.
+     */
+    private static final class Key {
+        Player player;
+        World world;
+        int cellX;
+        int cellY;
+        int cellZ;
+        int action;
+        int typeId;
+
+        final Key set(Player player, World world, int cellX, int cellY, int cellZ, int action, int typeId) {
+            this.player = player;
+            this.world = world;
+            this.cellX = cellX;
+            this.cellY = cellY;
+            this.cellZ = cellZ;
+            this.action = action;
+            this.typeId = typeId;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(player);
+            result = result * 31 + cellX;
+            result = result * 31 + cellY;
+            result = result * 31 + cellZ;
+            result = result * 31 + action;
+            return result * 31 + typeId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return player == other.player && world == other.world && cellX == other.cellX && cellY == other.cellY && cellZ == other.cellZ
+                    && action == other.action && typeId == other.typeId;
+        }
+    }
+
+    /**
+     * A remembered verdict.
+     */
+    private static final class Verdict {
+        final boolean allowed;
+        final long expires;
+
+        Verdict(boolean allowed, long expires) {
+            this.allowed = allowed;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Loads the time to live, cell size and whether allowed changes cover a
+     * cell from the given configuration.
+     * 
+     * @param configuration
+     *            The configuration to load from
+     */
+    void loadConfiguration(ConfigurationSection configuration) {
+        ttl = Math.max(configuration.getLong("protection-cache-ttl", ttl / 1000), 0) * 1000;
+        skipEvents = configuration.getBoolean("protection-cache-skip-events", skipEvents);
+        // Round down to a power of two so that cells can be found by shifting.
+        int size = Math.max(configuration.getInt("protection-cache-cell-size", cellSize), 1);
+        cellShift = 31 - Integer.numberOfLeadingZeros(size);
+        cellSize = 1 << cellShift;
+        shareAllowed = configuration.getBoolean("protection-cache-share-allowed", shareAllowed);
+        allowShift = shareAllowed ? cellShift : 0;
+        clear();
+    }
+
+    /**
+     * Returns the remembered verdict for the given question.
+     * 
+     * @param player
+     *            The player the event is simulated for
+     * @param target
+     *            The block the event is about
+     * @param action
+     *            {@link #place} or {@link #breakBlock}
+     * @param typeId
+     *            The type id being placed or broken
+     * @param pretend
+     *            False if the caller would fire a real event
+     * @return {@link Boolean#TRUE} or {@link Boolean#FALSE} if a verdict is
+     *         known, null if the event must be fired.
+     */
+    Boolean get(Player player, BlockLocation target, int action, int typeId, boolean pretend) {
+        if (ttl == 0)
+            return null;
+        final long now = System.currentTimeMillis();
+        Verdict verdict = lookup(denials, player, target, cellShift, action, typeId, now);
+        if (verdict == null)
+            verdict = lookup(allowances, player, target, allowShift, action, typeId, now);
+        if (verdict == null || (verdict.allowed && !pretend && !skipEvents)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return verdict.allowed ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    /**
+     * Remembers the verdict of protection plugins on the given question.
+     * 
+     * @param player
+     *            The player the event was simulated for
+     * @param target
+     *            The block the event was about
+     * @param action
+     *            {@link #place} or {@link #breakBlock}
+     * @param typeId
+     *            The type id being placed or broken
+     * @param allowed
+     *            Whether the event was allowed
+     */
+    void put(Player player, BlockLocation target, int action, int typeId, boolean allowed) {
+        if (ttl == 0)
+            return;
+        final long now = System.currentTimeMillis();
+        if (now >= nextPurge) {
+            purge(now);
+            nextPurge = now + ttl;
+        }
+        final int shift = allowed ? allowShift : cellShift;
+        final Key key = new Key().set(player, target.getWorld(), target.x >> shift, target.y >> shift, target.z >> shift, action, typeId);
+        (allowed ? allowances : denials).put(key, new Verdict(allowed, now + ttl));
+    }
+
+    /**
+     * Returns the verdict in the given map for the block or cell containing
+     * the target, or null if there is none or it expired.
+     */
+    private Verdict lookup(Map<Key, Verdict> verdicts, Player player, BlockLocation target, int shift, int action, int typeId, long now) {
+        if (verdicts.isEmpty())
+            return null;
+        final Verdict verdict = verdicts.get(probe.set(player, target.getWorld(), target.x >> shift, target.y >> shift, target.z >> shift, action, typeId));
+        probe.set(null, null, 0, 0, 0, 0, 0);
+        if (verdict == null || now >= verdict.expires)
+            return null;
+        return verdict;
+    }
+
+    /**
+     * Returns the packed coordinates of the cell containing the given block.
+     * 
+     * @param target
+     *            The block
+     * @return The packed cell coordinates
+     */
+    long cell(BlockLocation target) {
+        return BlockLocation.pack(target.x >> cellShift, target.y >> cellShift, target.z >> cellShift);
+    }
+
+    /**
+     * Forgets all verdicts for the cell containing the given block.
+     * 
+     * @param world
+     *            The world of the block
+     * @param x
+     *            The x-coordinate of the block
+     * @param y
+     *            The y-coordinate of the block
+     * @param z
+     *            The z-coordinate of the block
+     */
+    void invalidate(World world, int x, int y, int z) {
+        invalidate(denials, 0, world, x >> cellShift, y >> cellShift, z >> cellShift);
+        invalidate(allowances, cellShift - allowShift, world, x >> cellShift, y >> cellShift, z >> cellShift);
+    }
+
+    /**
+     * Forgets the verdicts in the given map that lie in the given cell. Keys
+     * are shifted by the given amount to get their cell.
+     */
+    private static void invalidate(Map<Key, Verdict> verdicts, int shift, World world, int cellX, int cellY, int cellZ) {
+        if (verdicts.isEmpty())
+            return;
+        for (Iterator<Key> it = verdicts.keySet().iterator(); it.hasNext();) {
+            Key key = it.next();
+            if (key.world == world && key.cellX >> shift == cellX && key.cellY >> shift == cellY && key.cellZ >> shift == cellZ)
+                it.remove();
+        }
+    }
+
+    /**
+     * Forgets all verdicts for the given player.
+     * 
+     * @param player
+     *            The player to forget
+     */
+    void invalidate(Player player) {
+        invalidate(denials, player);
+        invalidate(allowances, player);
+    }
+
+    private static void invalidate(Map<Key, Verdict> verdicts, Player player) {
+        if (verdicts.isEmpty())
+            return;
+        for (Iterator<Key> it = verdicts.keySet().iterator(); it.hasNext();) {
+            if (it.next().player == player)
+                it.remove();
+        }
+    }
+
+    /**
+     * Forgets all verdicts.
+     */
+    void clear() {
+        denials.clear();
+        allowances.clear();
+    }
+
+    /**
+     * @return The number of times a verdict was answered from the cache.
+     */
+    long hits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of times an event had to be fired.
+     */
+    long misses() {
+        return misses;
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    void resetCounters() {
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Removes expired verdicts.
+     */
+    private void purge(long now) {
+        purge(denials, now);
+        purge(allowances, now);
+    }
+
+    private static void purge(Map<Key, Verdict> verdicts, long now) {
+        for (Iterator<Verdict> it = verdicts.values().iterator(); it.hasNext();) {
+            if (now >= it.next().expires)
+                it.remove();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package me.lyneira.MachinaCore;
+
+import java.util.Arrays;
+
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Keeps track of the pretend events fired by {@link EventSimulator} on the
+ * current thread. Each event that is being fired has its own frame on a stack,
+ * so a protection plugin that causes another simulation while handling one
+ * does not mix up the results of the two.
+ * <p>
+ * Every frame also holds the artificial events that are reused for the
+ * simulations at its depth. A pretend event is cancelled before monitoring
+ * plugins get to see it, so reusing it for the next simulation is safe.
+ * 
+ * @author Lyneira
+ */
+final class SimulationContext {
+    private static final ThreadLocal<SimulationContext> current = new ThreadLocal<SimulationContext>() {
+        @Override
+        protected SimulationContext initialValue() {
+            return new SimulationContext();
+        }
+    };
+
+    private Frame[] frames = new Frame[4];
+    private int depth = 0;
+
+    /**
+     * A pretend event that is being fired, and the events pooled for its
+     * depth.
+     */
+    private static final class Frame {
+        Event event;
+        boolean cancelled;
+        ArtificialBlockBreakEvent breakEvent;
+        Player breakPlayer;
+        ArtificialBlockPlaceEvent placeEvent;
+    }
+
+    private SimulationContext() {
+        // Use get()
+    }
+
+    /**
+     * @return The simulation context of the current thread.
+     */
+    static final SimulationContext get() {
+        return current.get();
+    }
+
+    /**
+     * Returns the frame for the next pretend event, creating it if needed.
+     */
+    private final Frame next() {
+        if (depth == frames.length)
+            frames = Arrays.copyOf(frames, depth * 2);
+        Frame frame = frames[depth];
+        if (frame == null) {
+            frame = new Frame();
+            frames[depth] = frame;
+        }
+        return frame;
+    }
+
+    /**
+     * Returns a block break event for the next pretend event, reusing the
+     * previous one at this depth if possible.
+     * 
+     * @param block
+     *            The block to break
+     * @param player
+     *            The player to simulate for
+     * @return A block break event ready to be fired
+     */
+    final ArtificialBlockBreakEvent breakEvent(final Block block, final Player player) {
+        final Frame frame = next();
+        // The player of a block break event cannot be changed.
+        if (frame.breakEvent == null || frame.breakPlayer != player) {
+            frame.breakEvent = new ArtificialBlockBreakEvent(block, player);
+            frame.breakPlayer = player;
+        } else {
+            frame.breakEvent.reuse(block);
+        }
+        return frame.breakEvent;
+    }
+
+    /**
+     * Returns a block place event for the next pretend event, reusing the
+     * previous one at this depth if possible.
+     * 
+     * @param placedBlock
+     *            The block being placed
+     * @param replacedBlockState
+     *            The state of the block before it was placed
+     * @param placedAgainst
+     *            The block it is placed against
+     * @param player
+     *            The player to simulate for
+     * @return A block place event ready to be fired
+     */
+    final ArtificialBlockPlaceEvent placeEvent(final Block placedBlock, final BlockState replacedBlockState, final Block placedAgainst,
+            final Player player) {
+        final Frame frame = next();
+        if (frame.placeEvent == null) {
+            frame.placeEvent = new ArtificialBlockPlaceEvent(placedBlock, replacedBlockState, placedAgainst, new ItemStack(Material.AIR), player, true);
+        } else {
+            frame.placeEvent.reuse(placedBlock, replacedBlockState, placedAgainst, player);
+        }
+        return frame.placeEvent;
+    }
+
+    /**
+     * Fires the given pretend event and returns whether protection plugins
+     * allowed it. If the result is not collected by
+     * {@link #collect(Event, boolean)}, the event counts as denied.
+     * 
+     * @param event
+     *            The event to fire
+     * @return True if the event was allowed
+     */
+    final boolean fire(final Event event) {
+        final Frame frame = next();
+        frame.event = event;
+        frame.cancelled = true;
+        depth++;
+        try {
+            MachinaCore.pluginManager.callEvent(event);
+        } finally {
+            depth--;
+            frame.event = null;
+        }
+        return !frame.cancelled;
+    }
+
+    /**
+     * Called by the listener at the highest priority. If the given event is a
+     * pretend event being fired on this thread, collects its result so the
+     * listener can cancel it before monitoring plugins see it.
+     * 
+     * @param event
+     *            The event to collect
+     * @param cancelled
+     *            Whether the event was cancelled by protection plugins
+     * @return True if the event was a pretend event
+     */
+    final boolean collect(final Event event, final boolean cancelled) {
+        // Nested simulations finish before the one that caused them, so the
+        // event is almost always on top.
+        for (int i = depth - 1; i >= 0; i--) {
+            final Frame frame = frames[i];
+            if (frame.event == event) {
+                frame.cancelled = cancelled;
+                frame.event = null;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,169 @@
+package me.lyneira.MachinaCore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Reports the {@link MachinaTimings} of all machina and blueprint classes,
+ * either as chat lines for the timings command or as CSV and JSON files in
+ * the plugin data folder. The files are written periodically in the
+ * background.
+ * 
+ * @author Lyneira
+ */
+final class TimingsReport implements Runnable {
+    private static final String csvFileName = "timings.csv";
+    private static final String jsonFileName = "timings.json";
+    private static final String[] operations = { "verify", "heartBeat", "onLever", "detect" };
+
+    private final MachinaCore plugin;
+
+    /**
+     * The number of seconds between reports written to disk. 0 means no
+     * reports are written.
+     */
+    private int interval = 300;
+
+    TimingsReport(final MachinaCore plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Writes the report files. Safe to run in the background.
+     */
+    public void run() {
+        final List<MachinaTimings> timings = sorted();
+        final long time = System.currentTimeMillis();
+        write(csvFileName, csv(timings, time));
+        write(jsonFileName, json(timings, time));
+    }
+
+    /**
+     * @return The number of server ticks between reports written to disk, or 0
+     *         if no reports are written.
+     */
+    long getInterval() {
+        return MachinaTimings.enabled ? interval * 20L : 0;
+    }
+
+    /**
+     * Loads the timings configuration.
+     * 
+     * @param configuration
+     *            The configuration to load from
+     */
+    void loadConfiguration(ConfigurationSection configuration) {
+        MachinaTimings.enabled = configuration.getBoolean("timings", MachinaTimings.enabled);
+        interval = Math.max(configuration.getInt("timings-interval", interval), 0);
+    }
+
+    /**
+     * Returns a summary of the timings for display in chat, one line per class
+     * and operation that was called at least once.
+     * 
+     * @return A new list of lines
+     */
+    List<String> lines() {
+        List<String> lines = new ArrayList<String>();
+        for (MachinaTimings i : sorted()) {
+            String name = i.name.substring(i.name.lastIndexOf('.') + 1);
+            lines.add(name + ": " + i.active.get() + " active");
+            for (int op = 0; op < operations.length; op++) {
+                LatencyHistogram histogram = histogram(i, op);
+                long count = histogram.count();
+                if (count == 0)
+                    continue;
+                lines.add(String.format("  %s: %d calls, p50 %s, p99 %s, max %s", operations[op], count, micros(histogram.percentile(0.5)),
+                        micros(histogram.percentile(0.99)), micros(histogram.max())));
+            }
+        }
+        return lines;
+    }
+
+    private static String csv(final List<MachinaTimings> timings, final long time) {
+        StringBuilder out = new StringBuilder("time,class,active,operation,calls,p50_ns,p99_ns,max_ns\n");
+        for (MachinaTimings i : timings) {
+            for (int op = 0; op < operations.length; op++) {
+                LatencyHistogram histogram = histogram(i, op);
+                out.append(time).append(',').append(i.name).append(',').append(i.active.get()).append(',').append(operations[op]).append(',')
+                        .append(histogram.count()).append(',').append(histogram.percentile(0.5)).append(',').append(histogram.percentile(0.99))
+                        .append(',').append(histogram.max()).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private static String json(final List<MachinaTimings> timings, final long time) {
+        StringBuilder out = new StringBuilder("{\n  \"time\": ").append(time).append(",\n  \"classes\": [");
+        for (int t = 0; t < timings.size(); t++) {
+            MachinaTimings i = timings.get(t);
+            out.append(t == 0 ? "\n" : ",\n");
+            out.append("    {\"class\": \"").append(i.name).append("\", \"active\": ").append(i.active.get());
+            for (int op = 0; op < operations.length; op++) {
+                LatencyHistogram histogram = histogram(i, op);
+                out.append(", \"").append(operations[op]).append("\": {\"calls\": ").append(histogram.count()).append(", \"p50\": ")
+                        .append(histogram.percentile(0.5)).append(", \"p99\": ").append(histogram.percentile(0.99)).append(", \"max\": ")
+                        .append(histogram.max()).append('}');
+            }
+            out.append('}');
+        }
+        out.append("\n  ]\n}\n");
+        return out.toString();
+    }
+
+    private static LatencyHistogram histogram(final MachinaTimings timings, final int operation) {
+        switch (operation) {
+        case 0:
+            return timings.verify;
+        case 1:
+            return timings.heartBeat;
+        case 2:
+            return timings.onLever;
+        default:
+            return timings.detect;
+        }
+    }
+
+    private static String micros(final long nanos) {
+        return String.format("%.1fus", nanos / 1000.0);
+    }
+
+    private static List<MachinaTimings> sorted() {
+        List<MachinaTimings> timings = MachinaTimings.all();
+        Collections.sort(timings, new Comparator<MachinaTimings>() {
+            public int compare(MachinaTimings a, MachinaTimings b) {
+                return a.name.compareTo(b.name);
+            }
+        });
+        return timings;
+    }
+
+    private synchronized void write(final String fileName, final String contents) {
+        final File file = new File(plugin.getDataFolder(), fileName);
+        Writer out = null;
+        try {
+            out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            out.write(contents);
+        } catch (IOException e) {
+            MachinaCore.log.log(Level.WARNING, "MachinaCore: Could not write " + fileName, e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // Nothing left to do.
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package me.lyneira.MachinaCore;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import me.lyneira.util.LongHashSet;
+
+import org.bukkit.block.BlockFace;
+
+/**
+ * The blueprint of a {@link Movable} for one combination of active modules,
+ * together with everything that can be calculated from it in advance. A
+ * {@link MovableBlueprint} creates one per module combination and shares it
+ * between all movables with those modules, so moving or rotating a movable
+ * needs no set arithmetic.
+ * 
+ * @author Lyneira
+ */
+final class UnifiedBlueprint {
+    /**
+     * The directions a movable usually moves in. Differences for these are
+     * calculated up front, any other direction when it is first needed.
+     */
+    private static final BlockFace[] moveFaces = { BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST, BlockFace.UP, BlockFace.DOWN };
+
+    final BlueprintBlock[] blueprint;
+    final int size;
+    private final Map<BlockRotation, Orientation> orientations = new EnumMap<BlockRotation, Orientation>(BlockRotation.class);
+
+    /**
+     * The unified blueprint at a single yaw.
+     */
+    final class Orientation {
+        final BlockRotation yaw;
+        final BlockVector[] vectors;
+        final BlueprintKernel kernel;
+        /**
+         * The packed vectors of this orientation, for checking whether a
+         * block lies within the blueprint.
+         */
+        final LongHashSet occupied;
+        private final Map<BlockFace, BlueprintDifference> differences = new EnumMap<BlockFace, BlueprintDifference>(BlockFace.class);
+        private final Map<BlockRotation, BlockVector[]> rotateDifferences = new EnumMap<BlockRotation, BlockVector[]>(BlockRotation.class);
+
+        private Orientation(final BlockRotation yaw, final BlockVector[] vectors) {
+            this.yaw = yaw;
+            this.vectors = vectors;
+            kernel = new BlueprintKernel(Arrays.asList(blueprint), yaw, true);
+            occupied = BlueprintDifference.keys(vectors);
+        }
+
+        /**
+         * Returns the difference for a move in the direction of the given
+         * face.
+         * 
+         * @param face
+         *            The direction to move in
+         * @return The difference for this direction
+         */
+        final BlueprintDifference difference(final BlockFace face) {
+            BlueprintDifference result = differences.get(face);
+            if (result == null) {
+                result = new BlueprintDifference(blueprint, vectors, occupied, face);
+                differences.put(face, result);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the positive difference for a rotation by the given amount.
+         * 
+         * @param rotateBy
+         *            The rotation
+         * @return The vectors that become part of the blueprint
+         */
+        final BlockVector[] rotateDifference(final BlockRotation rotateBy) {
+            return rotateDifferences.get(rotateBy);
+        }
+    }
+
+    /**
+     * Creates the unified blueprint for the given modules and calculates the
+     * differences for every yaw.
+     * 
+     * @param movableBlueprint
+     *            The blueprint the modules belong to
+     * @param moduleIndices
+     *            The active modules
+     */
+    UnifiedBlueprint(final MovableBlueprint movableBlueprint, final List<Integer> moduleIndices) {
+        blueprint = movableBlueprint.unifyBlueprint(moduleIndices);
+        size = blueprint.length;
+
+        for (BlockRotation yaw : BlockRotation.values()) {
+            BlockVector[] vectors = new BlockVector[size];
+            movableBlueprint.unifyVectors(moduleIndices, yaw, vectors);
+            Orientation orientation = new Orientation(yaw, vectors);
+            for (BlockFace face : moveFaces) {
+                orientation.difference(face);
+            }
+            orientations.put(yaw, orientation);
+        }
+
+        // The blocks a rotation moves into are the rotated orientation minus
+        // the current one.
+        for (Orientation orientation : orientations.values()) {
+            for (BlockRotation rotateBy : BlockRotation.values()) {
+                Orientation rotated = orientations.get(orientation.yaw.add(rotateBy));
+                orientation.rotateDifferences.put(rotateBy, BlueprintDifference.difference(rotated.vectors, orientation.occupied));
+            }
+        }
+    }
+
+    /**
+     * Returns the unified blueprint at the given yaw.
+     * 
+     * @param yaw
+     *            The yaw
+     * @return The orientation for this yaw
+     */
+    final Orientation orientation(final BlockRotation yaw) {
+        return orientations.get(yaw);
+    }
+}
@@ -3,6 +3,7 @@ package me.lyneira.util;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
@@ -53,6 +54,16 @@ public class InventoryTransaction {
             return;
         if (items == null)
             return;
+        if (items instanceof RandomAccess && items instanceof List) {
+            // Drops are usually shared lists, walk them without an iterator.
+            List<ItemStack> list = (List<ItemStack>) items;
+            for (int i = 0, size = list.size(); i < size; i++) {
+                ItemStack item = list.get(i);
+                if (item != null)
+                    addItems.add(item);
+            }
+            return;
+        }
         for (ItemStack i : items) {
             if (i != null)
                 addItems.add(i);
@@ -0,0 +1,253 @@
+package me.lyneira.util;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive long keys to non-null values. Entries are stored in
+ * two flat arrays with linear probing, so lookups neither box the key nor
+ * allocate an entry object. Keys are spread with a multiplicative hash, which
+ * keeps packed coordinates that differ in only a few bits apart.
+ * 
+ * @author Lyneira
+ * @param <V>
+ *            The type of value stored in the map
+ */
+public final class LongHashMap<V> {
+    private static final int minCapacity = 8;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int shift;
+    private int size = 0;
+    private int resizeAt;
+
+    /**
+     * Constructs a new empty map.
+     */
+    public LongHashMap() {
+        this(minCapacity);
+    }
+
+    /**
+     * Constructs a new empty map that can hold the given number of entries
+     * without growing.
+     * 
+     * @param expected
+     *            The number of entries expected
+     */
+    public LongHashMap(final int expected) {
+        allocate(capacityFor(expected));
+    }
+
+    /**
+     * Returns the slot a key starts probing from.
+     */
+    private final int slot(final long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * Returns the value mapped to the given key.
+     * 
+     * @param key
+     *            The key to look up
+     * @return The value, or null if the key is not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public final V get(final long key) {
+        for (int i = slot(key);; i = (i + 1) & mask) {
+            final Object value = values[i];
+            if (value == null)
+                return null;
+            if (keys[i] == key)
+                return (V) value;
+        }
+    }
+
+    /**
+     * Returns true if the given key is in the map.
+     * 
+     * @param key
+     *            The key to look up
+     * @return True if the key is in the map
+     */
+    public final boolean containsKey(final long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the given key to the given value.
+     * 
+     * @param key
+     *            The key
+     * @param value
+     *            The value, which may not be null
+     * @return The value previously mapped to the key, or null if there was
+     *         none.
+     */
+    @SuppressWarnings("unchecked")
+    public final V put(final long key, final V value) {
+        if (value == null)
+            throw new NullPointerException("Tried to put a null value in a LongHashMap!");
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                final V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size >= resizeAt)
+            resize(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * Removes the given key from the map.
+     * 
+     * @param key
+     *            The key to remove
+     * @return The value that was mapped to the key, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public final V remove(final long key) {
+        for (int i = slot(key);; i = (i + 1) & mask) {
+            final Object value = values[i];
+            if (value == null)
+                return null;
+            if (keys[i] == key) {
+                closeGap(i);
+                size--;
+                return (V) value;
+            }
+        }
+    }
+
+    /**
+     * Empties the given slot and moves later entries of the same probe
+     * sequence back, so no lookup ever stops at the gap.
+     */
+    private final void closeGap(int gap) {
+        for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            final int home = slot(keys[i]);
+            // Move the entry if the gap lies between its home slot and its
+            // current slot, taking wraparound into account.
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+    }
+
+    /**
+     * @return The number of entries in the map.
+     */
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * @return True if the map has no entries.
+     */
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries from the map.
+     */
+    public final void clear() {
+        if (size == 0)
+            return;
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Returns a cursor over all entries of the map. The map may not be
+     * modified while the cursor is in use.
+     * 
+     * @return A new cursor positioned before the first entry
+     */
+    public final Cursor<V> cursor() {
+        return new Cursor<V>(this);
+    }
+
+    /**
+     * Iterates over the entries of a {@link LongHashMap} without allocating
+     * an object per entry.
+     */
+    public static final class Cursor<V> {
+        private final LongHashMap<V> map;
+        private int index = -1;
+
+        private Cursor(final LongHashMap<V> map) {
+            this.map = map;
+        }
+
+        /**
+         * Advances to the next entry.
+         * 
+         * @return False if there are no more entries.
+         */
+        public final boolean next() {
+            final Object[] values = map.values;
+            while (++index < values.length) {
+                if (values[index] != null)
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return The key of the current entry.
+         */
+        public final long key() {
+            return map.keys[index];
+        }
+
+        /**
+         * @return The value of the current entry.
+         */
+        @SuppressWarnings("unchecked")
+        public final V value() {
+            return (V) map.values[index];
+        }
+    }
+
+    private static final int capacityFor(final int expected) {
+        // Stay at most half full.
+        int capacity = minCapacity;
+        while (capacity < (long) expected * 2)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private final void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        resizeAt = capacity / 2;
+    }
+
+    private final void resize(final int capacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == null)
+                continue;
+            int i = slot(oldKeys[j]);
+            while (values[i] != null)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package me.lyneira.util;
+
+import java.util.Arrays;
+
+/**
+ * Hash set of primitive longs. Works like {@link LongHashMap}, storing the
+ * keys in a flat array with linear probing so adding and looking up a key
+ * never allocates.
+ * 
+ * @author Lyneira
+ */
+public final class LongHashSet {
+    private static final int minCapacity = 8;
+
+    private long[] keys;
+    private boolean[] used;
+    private int mask;
+    private int shift;
+    private int size = 0;
+    private int resizeAt;
+
+    /**
+     * Constructs a new empty set.
+     */
+    public LongHashSet() {
+        this(minCapacity);
+    }
+
+    /**
+     * Constructs a new empty set that can hold the given number of keys
+     * without growing.
+     * 
+     * @param expected
+     *            The number of keys expected
+     */
+    public LongHashSet(final int expected) {
+        int capacity = minCapacity;
+        while (capacity < (long) expected * 2)
+            capacity <<= 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the slot a key starts probing from.
+     */
+    private final int slot(final long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * Returns true if the given key is in the set.
+     * 
+     * @param key
+     *            The key to look up
+     * @return True if the key is in the set
+     */
+    public final boolean contains(final long key) {
+        for (int i = slot(key); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the given key to the set.
+     * 
+     * @param key
+     *            The key to add
+     * @return True if the key was not in the set yet.
+     */
+    public final boolean add(final long key) {
+        int i = slot(key);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return false;
+        }
+        keys[i] = key;
+        used[i] = true;
+        if (++size >= resizeAt)
+            resize(keys.length << 1);
+        return true;
+    }
+
+    /**
+     * Removes the given key from the set.
+     * 
+     * @param key
+     *            The key to remove
+     * @return True if the key was in the set.
+     */
+    public final boolean remove(final long key) {
+        for (int i = slot(key); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                closeGap(i);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Empties the given slot and moves later keys of the same probe sequence
+     * back, so no lookup ever stops at the gap.
+     */
+    private final void closeGap(int gap) {
+        for (int i = (gap + 1) & mask; used[i]; i = (i + 1) & mask) {
+            final int home = slot(keys[i]);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                gap = i;
+            }
+        }
+        used[gap] = false;
+    }
+
+    /**
+     * @return The number of keys in the set.
+     */
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * @return True if the set has no keys.
+     */
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all keys from the set.
+     */
+    public final void clear() {
+        if (size == 0)
+            return;
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private final void allocate(final int capacity) {
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        resizeAt = capacity / 2;
+    }
+
+    private final void resize(final int capacity) {
+        final long[] oldKeys = keys;
+        final boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int j = 0; j < oldUsed.length; j++) {
+            if (!oldUsed[j])
+                continue;
+            int i = slot(oldKeys[j]);
+            while (used[i])
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            used[i] = true;
+        }
+    }
+}
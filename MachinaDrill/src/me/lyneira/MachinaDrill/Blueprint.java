@@ -1,10 +1,13 @@
 package me.lyneira.MachinaDrill;
 
+import java.io.DataInput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
+import me.lyneira.MachinaCore.AnchoredBlueprint;
 import me.lyneira.MachinaCore.BlockData;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
@@ -13,7 +16,9 @@ import me.lyneira.MachinaCore.BlueprintBlock;
 import me.lyneira.MachinaCore.BlueprintFactory;
 import me.lyneira.MachinaCore.EventSimulator;
 import me.lyneira.MachinaCore.Machina;
+import me.lyneira.MachinaCore.MachinaCore;
 import me.lyneira.MachinaCore.MovableBlueprint;
+import me.lyneira.MachinaCore.PersistentBlueprint;
 
 import org.bukkit.Material;
 import org.bukkit.block.BlockFace;
@@ -26,7 +31,7 @@ import org.bukkit.inventory.ItemStack;
  * @author Lyneira
  * @author 5phinX
  */
-final class Blueprint extends MovableBlueprint {
+final class Blueprint extends MovableBlueprint implements PersistentBlueprint, AnchoredBlueprint {
     private static BlueprintFactory blueprint;
     static int activationDepthLimit = 0;
 
@@ -148,6 +153,16 @@ final class Blueprint extends MovableBlueprint {
         blueprint = null;
     }
 
+    @Override
+    public int[] getAnchorTypeIds() {
+        return new int[] { anchorMaterial.getId() };
+    }
+
+    @Override
+    public BlockFace[] getLeverFaces() {
+        return new BlockFace[] { BlockFace.UP };
+    }
+
     /**
      * Detects whether a drill is present at the given BlockLocation. Key blocks
      * defined above must be detected manually.
@@ -187,21 +202,26 @@ final class Blueprint extends MovableBlueprint {
 
                 if (!player.hasPermission("machinadrill.activate")) {
                     player.sendMessage("You do not have permission to activate a drill.");
+                    MachinaCore.rejectDetection();
                     return null;
                 }
 
                 if (!Drill.canActivate(player)) {
                     player.sendMessage("You cannot activate any more drills.");
+                    MachinaCore.rejectDetection();
                     return null;
                 }
 
                 if (anchor.y < activationDepthLimit) {
                     player.sendMessage("You cannot activate a drill at this depth.");
+                    MachinaCore.rejectDetection();
                     return null;
                 }
 
-                if (EventSimulator.inventoryProtected(yaw, player, anchor, chest, furnace))
+                if (EventSimulator.inventoryProtected(yaw, player, anchor, chest, furnace)) {
+                    MachinaCore.rejectDetection();
                     return null;
+                }
 
                 // Detection was a success.
                 drill = new Drill(this, detectedModules, yaw, player, anchor, chest, head, furnace);
@@ -236,16 +256,20 @@ final class Blueprint extends MovableBlueprint {
 
                 if (!player.hasPermission("machinadrill.activate")) {
                     player.sendMessage("You do not have permission to activate a vertical drill.");
+                    MachinaCore.rejectDetection();
                     return null;
                 }
 
                 if (!Drill.canActivate(player)) {
                     player.sendMessage("You cannot activate any more drills.");
+                    MachinaCore.rejectDetection();
                     return null;
                 }
 
-                if (EventSimulator.inventoryProtected(yaw, player, anchor, verticalChest, verticalFurnace))
+                if (EventSimulator.inventoryProtected(yaw, player, anchor, verticalChest, verticalFurnace)) {
+                    MachinaCore.rejectDetection();
                     return null;
+                }
 
                 // Detection was a success.
                 drill = new Drill(this, detectedModules, yaw, player, anchor, verticalChest, verticalHead, verticalFurnace);
@@ -257,4 +281,11 @@ final class Blueprint extends MovableBlueprint {
         return drill;
 
     }
+
+    /**
+     * Restores a saved drill.
+     */
+    public Machina restore(final BlockLocation anchor, final DataInput in) throws IOException {
+        return Drill.restore(this, anchor, in);
+    }
 }
@@ -1,10 +1,14 @@
 package me.lyneira.MachinaDrill;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import me.lyneira.MachinaCore.BlockCursor;
 import me.lyneira.MachinaCore.BlockData;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
@@ -14,6 +18,8 @@ import me.lyneira.MachinaCore.EventSimulator;
 import me.lyneira.MachinaCore.Fuel;
 import me.lyneira.MachinaCore.HeartBeatEvent;
 import me.lyneira.MachinaCore.Movable;
+import me.lyneira.MachinaCore.PersistentBlueprint;
+import me.lyneira.MachinaCore.PersistentMachina;
 import me.lyneira.MachinaCore.Tool;
 import me.lyneira.util.InventoryManager;
 import me.lyneira.util.InventoryTransaction;
@@ -36,12 +42,18 @@ import com.google.common.base.Predicate;
  * @author Lyneira
  * @author 5phinX
  */
-final class Drill extends Movable {
+final class Drill extends Movable implements PersistentMachina {
     /**
      * The number of server ticks to wait for a move action.
      */
     private static int moveDelay = 20;
 
+    /**
+     * The maximum number of blocks the drill moves in one go when there is
+     * nothing to drill along the way.
+     */
+    private static int moveSteps = 4;
+
     /**
      * Whether the drill should use energy.
      */
@@ -69,6 +81,11 @@ final class Drill extends Movable {
      */
     private BlockVector[] drillPattern;
 
+    /**
+     * Reused to scan the drill pattern without allocating.
+     */
+    private final BlockCursor cursor = new BlockCursor();
+
     /**
      * The amount of energy stored. This is just the number of server ticks left
      * before needing to consume new fuel.
@@ -87,6 +104,12 @@ final class Drill extends Movable {
      */
     private int nextTypeId;
 
+    /**
+     * The data of the next target location. Only read for block types whose
+     * properties differ per data value.
+     */
+    private byte nextData;
+
     private final boolean fastMode;
 
     private final Predicate<ItemStack> toolType;
@@ -174,7 +197,7 @@ final class Drill extends Movable {
      *         if the drill was successful or there was nothing to drill.
      */
     private boolean doDrill(final BlockLocation anchor) {
-        if (BlockData.isDrillable(nextTypeId)) {
+        if (BlockData.isDrillable(nextTypeId, nextData)) {
             Block chestBlock = anchor.getRelative(chest.vector(yaw)).getBlock();
 
             Collection<ItemStack> results = BlockData.breakBlock(queuedTarget);
@@ -203,7 +226,8 @@ final class Drill extends Movable {
 
     /**
      * Moves the drill forward if there is empty space to move into, and ground
-     * to stand on.
+     * to stand on. If the drill would find nothing to drill right after
+     * moving, it keeps going, up to {@link #moveSteps} blocks at once.
      * 
      * @param anchor
      *            The anchor of the Drill to move
@@ -214,32 +238,46 @@ final class Drill extends Movable {
         BlockRotation signRotation = readRotationSign(anchor);
 
         BlockLocation newAnchor = anchor.getRelative(direction);
-        // For horizontal drills, check for ground at the new base
-        if (direction != BlockFace.DOWN) {
-            BlockLocation ground = newAnchor.getRelative(Blueprint.centralBase.vector(yaw).add(BlockFace.DOWN));
-            if (!BlockData.isSolid(ground.getTypeId())) {
-                return null;
+        if (!hasGround(newAnchor)) {
+            return null;
+        }
+
+        // Count how far the drill can go before it would drill or turn.
+        int steps = 1;
+        if (signRotation == null) {
+            while (steps < moveSteps && nextTarget(newAnchor) == null && readRotationSign(newAnchor) == null) {
+                BlockLocation further = newAnchor.getRelative(direction);
+                if (!hasGround(further))
+                    break;
+                newAnchor = further;
+                steps++;
             }
         }
 
-        // Collision detection
-        if (detectCollision(anchor, direction)) {
+        // Collision detection for the whole path
+        steps = detectCollisionSwept(anchor, direction, steps);
+        if (steps == 0) {
             return null;
         }
 
-        // Simulate a block place event to give protection plugins a chance to
-        // stop the drill move
-        if (!canMove(newAnchor, head)) {
+        // Simulate block place events for every position the head passes to
+        // give protection plugins a chance to stop the drill, going only up
+        // to the first one they deny.
+        steps = canMoveSwept(anchor, direction, steps, head);
+        if (steps == 0) {
             return null;
         }
 
-        // Use energy
-        if (!useEnergy(anchor, moveDelay)) {
-            return null;
+        // Use energy, going less far if the fuel runs out.
+        while (!useEnergy(anchor, moveDelay * steps)) {
+            if (--steps == 0) {
+                return null;
+            }
         }
+        newAnchor = anchor.getRelative(direction, steps);
 
         // Okay to move.
-        moveByFace(anchor, direction);
+        moveBy(anchor, direction, steps);
 
         if (signRotation != null) {
             doRotate(newAnchor, signRotation);
@@ -248,6 +286,21 @@ final class Drill extends Movable {
         return newAnchor;
     }
 
+    /**
+     * Returns true if the drill would have ground to stand on at the given
+     * anchor. Vertical drills do not need ground.
+     * 
+     * @param anchor
+     *            The anchor to check
+     * @return True if the drill can stand at the anchor
+     */
+    private boolean hasGround(final BlockLocation anchor) {
+        if (direction == BlockFace.DOWN)
+            return true;
+        BlockLocation ground = anchor.getRelative(Blueprint.centralBase.vector(yaw).add(BlockFace.DOWN));
+        return BlockData.isSolid(ground.getTypeId());
+    }
+
     /**
      * Rotates the drill to the new direction, if this would not cause a
      * collision.
@@ -282,15 +335,15 @@ final class Drill extends Movable {
      *         target was found.
      */
     private BlockLocation nextTarget(final BlockLocation anchor) {
+        final BlockCursor cursor = this.cursor.set(anchor);
         for (BlockVector i : drillPattern) {
-            BlockLocation location = anchor.getRelative(i);
-            int typeId = location.getTypeId();
-            if (BlockData.isDrillable(typeId)) {
+            int typeId = cursor.at(i).getTypeId();
+            if (BlockData.hasDataOverrides(typeId) ? BlockData.isDrillable(typeId, cursor.getData()) : BlockData.isDrillable(typeId)) {
                 // Obsidian can only be dug with a diamond head.
                 if (!fastMode && typeId == Material.OBSIDIAN.getId()) {
                     return null;
                 }
-                return location;
+                return cursor.toLocation();
             }
         }
         return null;
@@ -309,7 +362,8 @@ final class Drill extends Movable {
             return moveDelay;
         } else {
             nextTypeId = queuedTarget.getTypeId();
-            queuedDrillTime = BlockData.getDrillTime(nextTypeId);
+            nextData = BlockData.hasDataOverrides(nextTypeId) ? queuedTarget.getData() : 0;
+            queuedDrillTime = BlockData.getDrillTime(nextTypeId, nextData);
             if (fastMode) {
                 queuedDrillTime = Math.round(queuedDrillTime * 0.8F);
             }
@@ -402,6 +456,19 @@ final class Drill extends Movable {
             active.put(player, newActive - 1);
     }
 
+    public PersistentBlueprint getBlueprint() {
+        return Blueprint.instance;
+    }
+
+    /**
+     * Saves the yaw, modules, player and stored energy of the drill.
+     */
+    @Override
+    public void save(final DataOutput out) throws IOException {
+        super.save(out);
+        out.writeInt(currentEnergy);
+    }
+
     /**
      * Sets the drill's furnace to the given state and set correct direction.
      * 
@@ -421,9 +488,9 @@ final class Drill extends Movable {
      * @param anchor
      */
     void setChest(final BlockLocation anchor) {
-        Block chestBlock = anchor.getRelative(chest.vector(yaw)).getBlock();
-        if (chestBlock.getType() == Material.CHEST)
-            chestBlock.setData(yaw.getOpposite().getYawData());
+        BlockLocation chestLocation = anchor.getRelative(chest.vector(yaw));
+        if (chestLocation.checkType(Material.CHEST))
+            chestLocation.setData(yaw.getOpposite().getYawData());
     }
 
     private BlockRotation readRotationSign(BlockLocation anchor) {
@@ -446,6 +513,39 @@ final class Drill extends Movable {
     }
 
     // **** Static stuff ****
+    /**
+     * Restores a drill saved by {@link #save(DataOutput)}.
+     * 
+     * @param blueprint
+     *            The drill blueprint
+     * @param anchor
+     *            The anchor of the drill
+     * @param in
+     *            The saved state
+     * @return The restored drill, or null if it could not be restored.
+     * @throws IOException
+     */
+    static Drill restore(final Blueprint blueprint, final BlockLocation anchor, final DataInput in) throws IOException {
+        final SavedState state = loadState(in);
+        final int energy = in.readInt();
+        if (state.player == null || !canActivate(state.player))
+            return null;
+
+        final Drill drill;
+        if (state.modules.contains(Blueprint.mainModule))
+            drill = new Drill(blueprint, state.modules, state.yaw, state.player, anchor, Blueprint.chest, Blueprint.head, Blueprint.furnace);
+        else
+            drill = new Drill(blueprint, state.modules, state.yaw, state.player, anchor, Blueprint.verticalChest, Blueprint.verticalHead, Blueprint.verticalFurnace);
+
+        if (!drill.verify(anchor)) {
+            drill.setFurnace(anchor, false);
+            return null;
+        }
+        drill.currentEnergy = energy;
+        drill.increment();
+        return drill;
+    }
+
     /**
      * Returns true if the current limit allows activating another drill for
      * this player.
@@ -484,6 +584,7 @@ final class Drill extends Movable {
      */
     static void loadConfiguration(ConfigurationSection configuration) {
         moveDelay = Math.max(configuration.getInt("move-delay", moveDelay), 1);
+        moveSteps = Math.max(configuration.getInt("move-steps", moveSteps), 1);
         useEnergy = configuration.getBoolean("use-energy", useEnergy);
         useTool = configuration.getBoolean("use-tool", useTool);
         activeLimit = Math.max(configuration.getInt("active-limit", activeLimit), 0);
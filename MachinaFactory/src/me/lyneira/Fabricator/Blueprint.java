@@ -5,12 +5,13 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import me.lyneira.MachinaCore.AnchoredBlueprint;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
 import me.lyneira.MachinaCore.BlockVector;
 import me.lyneira.MachinaCore.BlueprintBlock;
 import me.lyneira.MachinaCore.Machina;
-import me.lyneira.MachinaCore.MachinaBlueprint;
+import me.lyneira.MachinaCore.MachinaCore;
 import me.lyneira.MachinaFactory.ComponentActivateException;
 import me.lyneira.MachinaFactory.ComponentBlueprint;
 import me.lyneira.MachinaFactory.ComponentDetectException;
@@ -21,7 +22,7 @@ import me.lyneira.MachinaFactory.MachinaFactory;
  * 
  * @author Lyneira
  */
-public class Blueprint implements MachinaBlueprint {
+public class Blueprint implements AnchoredBlueprint {
     private final Material anchorMaterial;
     final MachinaFactory plugin;
     final BlueprintBlock chest;
@@ -49,6 +50,16 @@ public class Blueprint implements MachinaBlueprint {
         blueprint = new ComponentBlueprint(blueprintBase, blueprintInactive, blueprintActive);
     }
 
+    @Override
+    public int[] getAnchorTypeIds() {
+        return new int[] { anchorMaterial.getId() };
+    }
+
+    @Override
+    public BlockFace[] getLeverFaces() {
+        return null;
+    }
+
     @Override
     public Machina detect(Player player, BlockLocation anchor, BlockFace leverFace, ItemStack itemInHand) {
         BlockRotation yaw = null;
@@ -68,6 +79,7 @@ public class Blueprint implements MachinaBlueprint {
 
         if (!player.hasPermission("machinafactory.fabricator")) {
             player.sendMessage("You do not have permission to activate a fabricator.");
+            MachinaCore.rejectDetection();
             return null;
         }
 
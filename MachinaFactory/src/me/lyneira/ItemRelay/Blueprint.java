@@ -5,13 +5,14 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import me.lyneira.MachinaCore.AnchoredBlueprint;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
 import me.lyneira.MachinaCore.BlockVector;
 import me.lyneira.MachinaCore.BlueprintBlock;
 import me.lyneira.MachinaCore.EventSimulator;
 import me.lyneira.MachinaCore.Machina;
-import me.lyneira.MachinaCore.MachinaBlueprint;
+import me.lyneira.MachinaCore.MachinaCore;
 import me.lyneira.MachinaFactory.ComponentActivateException;
 import me.lyneira.MachinaFactory.ComponentBlueprint;
 import me.lyneira.MachinaFactory.ComponentDetectException;
@@ -21,7 +22,7 @@ import me.lyneira.MachinaFactory.ComponentDetectException;
  * 
  * @author Lyneira
  */
-public class Blueprint implements MachinaBlueprint {
+public class Blueprint implements AnchoredBlueprint {
     private final Material anchorMaterial;
     final BlueprintBlock sender;
     final BlueprintBlock chest;
@@ -65,6 +66,16 @@ public class Blueprint implements MachinaBlueprint {
         blueprintBrewing = new ComponentBlueprint(blueprintBaseBrewing, blueprintInactive, blueprintActive);
     }
 
+    @Override
+    public int[] getAnchorTypeIds() {
+        return new int[] { anchorMaterial.getId() };
+    }
+
+    @Override
+    public BlockFace[] getLeverFaces() {
+        return null;
+    }
+
     @Override
     public Machina detect(Player player, BlockLocation anchor, BlockFace leverFace, ItemStack itemInHand) {
         BlockRotation yaw = null;
@@ -103,11 +114,14 @@ public class Blueprint implements MachinaBlueprint {
 
         if (!player.hasPermission("machinafactory.itemrelay")) {
             player.sendMessage("You do not have permission to activate an item relay.");
+            MachinaCore.rejectDetection();
             return null;
         }
 
-        if (EventSimulator.inventoryProtectedStatic(player, container))
+        if (EventSimulator.inventoryProtectedStatic(player, container)) {
+            MachinaCore.rejectDetection();
             return null;
+        }
 
         try {
             switch (containerMaterial) {
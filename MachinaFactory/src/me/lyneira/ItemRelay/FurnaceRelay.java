@@ -2,6 +2,7 @@ package me.lyneira.ItemRelay;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import me.lyneira.MachinaCore.BlockLocation;
@@ -86,6 +87,17 @@ public class FurnaceRelay extends ItemRelay {
         return true;
     }
 
+    @Override
+    public void getFootprint(BlockLocation anchor, Collection<BlockLocation> footprint) {
+        super.getFootprint(anchor, footprint);
+        footprint.add(container());
+        for (int i = 1; i < furnaces.size(); i++) {
+            BlockLocation location = furnaces.get(i).location;
+            footprint.add(location);
+            footprint.add(location.getRelative(yaw.getYawFace()));
+        }
+    }
+
     private void sendItem() throws PipelineException, PacketTypeUnsupportedException {
         for (FurnaceEndpoint i : furnaces) {
             if (doSend(i.location))
@@ -1,11 +1,12 @@
 package me.lyneira.ItemSplitter;
 
+import me.lyneira.MachinaCore.AnchoredBlueprint;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
 import me.lyneira.MachinaCore.BlockVector;
 import me.lyneira.MachinaCore.BlueprintBlock;
 import me.lyneira.MachinaCore.Machina;
-import me.lyneira.MachinaCore.MachinaBlueprint;
+import me.lyneira.MachinaCore.MachinaCore;
 import me.lyneira.MachinaFactory.ComponentActivateException;
 import me.lyneira.MachinaFactory.ComponentBlueprint;
 import me.lyneira.MachinaFactory.ComponentDetectException;
@@ -15,7 +16,7 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-public class Blueprint implements MachinaBlueprint {
+public class Blueprint implements AnchoredBlueprint {
     private final Material anchorMaterial;
     private static final Material splitterMaterial = Material.BOOKSHELF;
     final BlueprintBlock senderLeft;
@@ -45,6 +46,16 @@ public class Blueprint implements MachinaBlueprint {
         blueprint = new ComponentBlueprint(blueprintBase, blueprintInactive, blueprintActive);
     }
 
+    @Override
+    public int[] getAnchorTypeIds() {
+        return new int[] { anchorMaterial.getId() };
+    }
+
+    @Override
+    public BlockFace[] getLeverFaces() {
+        return null;
+    }
+
     @Override
     public Machina detect(Player player, BlockLocation anchor, BlockFace leverFace, ItemStack itemInHand) {
         BlockRotation yaw = null;
@@ -64,6 +75,7 @@ public class Blueprint implements MachinaBlueprint {
 
         if (!player.hasPermission("machinafactory.itemrelay")) {
             player.sendMessage("You do not have permission to activate an item splitter.");
+            MachinaCore.rejectDetection();
             return null;
         }
 
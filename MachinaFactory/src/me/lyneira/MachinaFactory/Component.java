@@ -1,5 +1,6 @@
 package me.lyneira.MachinaFactory;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -9,7 +10,8 @@ import org.bukkit.inventory.ItemStack;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
 import me.lyneira.MachinaCore.BlueprintBlock;
-import me.lyneira.MachinaCore.Machina;
+import me.lyneira.MachinaCore.FootprintMachina;
+import me.lyneira.MachinaCore.PhaseTolerant;
 
 /**
  * Base class representing any factory component. Inside the heartBeat function,
@@ -17,7 +19,7 @@ import me.lyneira.MachinaCore.Machina;
  * 
  * @author Lyneira
  */
-public abstract class Component implements Machina, EndpointVerify {
+public abstract class Component implements FootprintMachina, PhaseTolerant, EndpointVerify {
     protected final BlockLocation anchor;
     protected final BlockRotation yaw;
     private final ComponentBlueprint blueprint;
@@ -64,7 +66,7 @@ public abstract class Component implements Machina, EndpointVerify {
         for (int i = 0; i < blueprint.blueprintActive.size(); i++) {
             BlueprintBlock block = blueprint.blueprintActive.get(i);
             if (dataValues.length != 0 && i == blueprint.dataIndices[dataIndex]) {
-                anchor.getRelative(block.vector(yaw)).getBlock().setTypeIdAndData(block.typeId, dataValues[dataIndex], true);
+                anchor.getRelative(block.vector(yaw)).setTypeIdAndData(block.typeId, dataValues[dataIndex], true);
                 dataIndex++;
             } else {
                 anchor.getRelative(block.vector(yaw)).setTypeId(block.typeId);
@@ -79,22 +81,17 @@ public abstract class Component implements Machina, EndpointVerify {
 
     @Override
     public boolean verify() {
-        return verify(blueprint.blueprintBase) && verify(blueprint.blueprintActive);
+        return blueprint.verifyFull.get(yaw).match(anchor);
     }
 
-    /**
-     * Verifies the given blueprintblock list.
-     * 
-     * @param blueprint
-     * @return True if successful.
-     */
-    private boolean verify(List<BlueprintBlock> blueprint) {
-        for (BlueprintBlock i : blueprint) {
-            if (anchor.getRelative(i.vector(yaw)).getTypeId() != i.typeId) {
-                return false;
-            }
+    @Override
+    public void getFootprint(BlockLocation anchor, Collection<BlockLocation> footprint) {
+        for (BlueprintBlock i : blueprint.blueprintBase) {
+            footprint.add(this.anchor.getRelative(i.vector(yaw)));
+        }
+        for (BlueprintBlock i : blueprint.blueprintActive) {
+            footprint.add(this.anchor.getRelative(i.vector(yaw)));
         }
-        return true;
     }
 
     @Override
@@ -105,7 +102,7 @@ public abstract class Component implements Machina, EndpointVerify {
     @Override
     public void onDeActivate(BlockLocation anchor) {
 
-        if (!verify(blueprint.blueprintActive)) {
+        if (!blueprint.verifyActive.get(yaw).match(this.anchor)) {
             return;
         }
 
@@ -128,7 +125,7 @@ public abstract class Component implements Machina, EndpointVerify {
         for (int i = 0; i < blueprint.blueprintInactive.size(); i++) {
             BlueprintBlock block = blueprint.blueprintInactive.get(i);
             if (dataValues.length != 0 && i == blueprint.dataIndices[dataIndex]) {
-                anchor.getRelative(block.vector(yaw)).getBlock().setTypeIdAndData(block.typeId, dataValues[dataIndex], true);
+                anchor.getRelative(block.vector(yaw)).setTypeIdAndData(block.typeId, dataValues[dataIndex], true);
                 dataIndex++;
             } else {
                 anchor.getRelative(block.vector(yaw)).setTypeId(block.typeId);
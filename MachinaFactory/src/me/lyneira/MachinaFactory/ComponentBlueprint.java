@@ -3,6 +3,7 @@ package me.lyneira.MachinaFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
@@ -11,6 +12,7 @@ import me.lyneira.MachinaCore.BlockData;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
 import me.lyneira.MachinaCore.BlueprintBlock;
+import me.lyneira.MachinaCore.BlueprintKernel;
 
 /**
  * Class representing the blueprint of any factory component.
@@ -42,6 +44,21 @@ public class ComponentBlueprint {
      */
     final List<BlueprintBlock> deactivateDiffMinus;
 
+    /**
+     * Kernels for detecting the non-key blocks of each blueprint.
+     */
+    private final Map<BlockRotation, BlueprintKernel> detectBase;
+    private final Map<BlockRotation, BlueprintKernel> detectInactive;
+    private final Map<BlockRotation, BlueprintKernel> detectActive;
+    /**
+     * Kernels for verifying the whole active component.
+     */
+    final Map<BlockRotation, BlueprintKernel> verifyFull;
+    /**
+     * Kernels for verifying only the active blueprint.
+     */
+    final Map<BlockRotation, BlueprintKernel> verifyActive;
+
     /**
      * Constructs a ComponentBlueprint from the given three blueprints. While
      * inactive the component will consist of the base and inactive blueprints.
@@ -89,6 +106,13 @@ public class ComponentBlueprint {
         deactivateDiffPlus = positiveDifference(this.blueprintInactive, this.blueprintActive);
         deactivateDiffMinus = negativeDifference(this.blueprintActive, this.blueprintInactive);
 
+        detectBase = BlueprintKernel.compileAll(this.blueprintBase, false);
+        detectInactive = BlueprintKernel.compileAll(this.blueprintInactive, false);
+        detectActive = BlueprintKernel.compileAll(this.blueprintActive, false);
+        List<BlueprintBlock> full = new ArrayList<BlueprintBlock>(this.blueprintBase);
+        full.addAll(this.blueprintActive);
+        verifyFull = BlueprintKernel.compileAll(full, true);
+        verifyActive = BlueprintKernel.compileAll(this.blueprintActive, true);
     }
 
     /**
@@ -102,40 +126,17 @@ public class ComponentBlueprint {
      *             if detection failed.
      */
     boolean detectOther(BlockLocation anchor, BlockRotation yaw) throws ComponentDetectException {
-        if (!detectOther(anchor, yaw, blueprintBase))
+        if (!detectBase.get(yaw).match(anchor))
             throw new ComponentDetectException();
 
-        if (detectOther(anchor, yaw, blueprintInactive))
+        if (detectInactive.get(yaw).match(anchor))
             return false;
-        if (detectOther(anchor, yaw, blueprintActive))
+        if (detectActive.get(yaw).match(anchor))
             return true;
 
         throw new ComponentDetectException();
     }
 
-    /**
-     * Detects the non-key blocks in the given {@link BlueprintBlock} list and
-     * return true if successful.
-     * 
-     * @param anchor
-     * @param yaw
-     * @param blueprint
-     * @return True if the {@link BlueprintBlock} list was detected.
-     */
-    private boolean detectOther(BlockLocation anchor, BlockRotation yaw, List<BlueprintBlock> blueprint) {
-        for (BlueprintBlock i : blueprint) {
-            if (i.key)
-                continue;
-
-            int typeId = anchor.getRelative(i.vector(yaw)).getTypeId();
-
-            if (typeId != i.typeId) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     /**
      * Calculates the difference set between blueprint and filterBy.
      * 
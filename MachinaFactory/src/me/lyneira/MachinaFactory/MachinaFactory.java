@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.logging.Logger;
 
 import me.lyneira.MachinaCore.BlockLocation;
+import me.lyneira.MachinaCore.BlueprintIndex;
 import me.lyneira.MachinaCore.ConfigurationManager;
 import me.lyneira.MachinaCore.Machina;
 import me.lyneira.MachinaCore.MachinaBlueprint;
@@ -31,10 +32,10 @@ public class MachinaFactory extends JavaPlugin {
      */
     private final Map<Class<? extends MachinaBlueprint>, MachinaFactoryBlueprint> blueprints = new LinkedHashMap<Class<? extends MachinaBlueprint>, MachinaFactoryBlueprint>();
     /**
-     * Hashmap of the blueprint's class to its blueprint. This map contains only
-     * those blueprints whose machina are a valid {@link PipelineEndpoint}.
+     * Index of the blueprints whose machina are a valid
+     * {@link PipelineEndpoint}, by anchor type.
      */
-    private final Map<Class<? extends MachinaBlueprint>, MachinaBlueprint> endpointBlueprints = new LinkedHashMap<Class<? extends MachinaBlueprint>, MachinaBlueprint>();
+    private final BlueprintIndex endpointBlueprints = new BlueprintIndex();
 
     @Override
     public void onEnable() {
@@ -80,7 +81,7 @@ public class MachinaFactory extends JavaPlugin {
         if (leverActivatable)
             machinaCore.registerBlueprint(blueprint);
         if (b.validEndpoint)
-            endpointBlueprints.put(blueprint.getClass(), blueprint);
+            endpointBlueprints.add(blueprint);
     }
 
     /**
@@ -97,7 +98,7 @@ public class MachinaFactory extends JavaPlugin {
             if (b.leverActivatable)
                 machinaCore.unRegisterBlueprint(blueprint);
             if (b.validEndpoint)
-                endpointBlueprints.remove(blueprint.getClass());
+                endpointBlueprints.remove(blueprint);
         }
     }
 
@@ -111,7 +112,7 @@ public class MachinaFactory extends JavaPlugin {
      * @return A PipelineEndpoint if successful, null otherwise.
      */
     PipelineEndpoint detectEndpoint(Player player, BlockLocation location) {
-        Machina detectedMachina = machinaCore.detectMachina(endpointBlueprints.values().iterator(), player, location);
+        Machina detectedMachina = machinaCore.detectMachina(endpointBlueprints, player, location);
         if (detectedMachina == null)
             return null;
         if (detectedMachina instanceof PipelineEndpoint)
@@ -2,14 +2,13 @@ package me.lyneira.MachinaFactory;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.HashSet;
 import java.util.Queue;
-import java.util.Set;
 
 import org.bukkit.entity.Player;
 
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.Machina;
+import me.lyneira.util.LongHashSet;
 
 /**
  * A pipeline from a {@link Machina} to a {@link PipelineEndpoint}. Allows the
@@ -46,9 +45,7 @@ public class Pipeline {
      *            The location from which to start the search.
      */
     public Pipeline(final BlockLocation anchor, final Player player, BlockLocation source) {
-        if (source == null)
-            throw new NullPointerException("Tried to construct a pipeline with a null source!");
-        this.source = source;
+        this(source);
 
         // Schedule finding the route for later, as doing it now could lead to
         // an endless loop.
@@ -61,6 +58,20 @@ public class Pipeline {
         MachinaFactory.plugin.getServer().getScheduler().scheduleSyncDelayedTask(MachinaFactory.plugin, findRoute);
     }
 
+    /**
+     * Constructs a pipeline from the given source block without searching for
+     * a route. The route is found by calling
+     * {@link #findRoute(BlockLocation, Player)}.
+     * 
+     * @param source
+     *            The location from which to start the search.
+     */
+    Pipeline(BlockLocation source) {
+        if (source == null)
+            throw new NullPointerException("Tried to construct a pipeline with a null source!");
+        this.source = source;
+    }
+
     /**
      * Sends a packet with the given payload to the endpoint of this pipeline.
      * 
@@ -114,12 +125,14 @@ public class Pipeline {
      * @param player
      *            The player activating this machina.
      */
-    private void findRoute(BlockLocation anchor, Player player) {
-        Set<PipelineNode> graph = new HashSet<PipelineNode>(25);
+    void findRoute(BlockLocation anchor, Player player) {
+        // The whole graph lies in the world of the source, so the packed
+        // coordinates identify each node.
+        LongHashSet graph = new LongHashSet(25);
         Queue<PipelineNode> q = new ArrayDeque<PipelineNode>();
         PipelineNode start = new PipelineNode(source);
         PipelineNode endnode = null;
-        graph.add(start);
+        graph.add(source.key());
         q.add(start);
         for (PipelineNode node = q.poll(); node != null && graph.size() < maxSize; node = q.poll()) {
             // TODO: If node is valid listener: do stuff?
@@ -129,10 +142,8 @@ public class Pipeline {
                 break;
             }
             for (PipelineNode i : node.neighbors(ComponentBlueprint.pipelineMaterial)) {
-                if (!graph.contains(i)) {
-                    graph.add(i);
+                if (graph.add(i.location.key()))
                     q.add(i);
-                }
             }
         }
 
@@ -0,0 +1,260 @@
+package me.lyneira.MachinaHeadless;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.PistonMoveReaction;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * A single block of a {@link HeadlessWorld}. Like a block on a server, it is
+ * a view of a location, not a copy of what is there.
+ * 
+ * @author Lyneira
+ */
+final class HeadlessBlock implements Block {
+    private final HeadlessWorld world;
+    private final int x;
+    private final int y;
+    private final int z;
+
+    HeadlessBlock(final HeadlessWorld world, final int x, final int y, final int z) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public int getTypeId() {
+        return world.getTypeId(x, y, z);
+    }
+
+    public byte getData() {
+        return world.getData(x, y, z);
+    }
+
+    public Material getType() {
+        return Material.getMaterial(world.getTypeId(x, y, z));
+    }
+
+    public boolean setTypeIdAndData(final int type, final byte data, final boolean applyPhysics) {
+        if (applyPhysics)
+            world.physicsUpdate();
+        world.setTypeIdAndData(x, y, z, type, data);
+        return true;
+    }
+
+    public boolean setTypeId(final int type) {
+        return setTypeIdAndData(type, (byte) 0, true);
+    }
+
+    public boolean setTypeId(final int type, final boolean applyPhysics) {
+        return setTypeIdAndData(type, (byte) 0, applyPhysics);
+    }
+
+    public void setType(final Material type) {
+        setTypeIdAndData(type.getId(), (byte) 0, true);
+    }
+
+    public void setData(final byte data) {
+        setTypeIdAndData(world.getTypeId(x, y, z), data, true);
+    }
+
+    public void setData(final byte data, final boolean applyPhysics) {
+        setTypeIdAndData(world.getTypeId(x, y, z), data, applyPhysics);
+    }
+
+    public Block getRelative(final int modX, final int modY, final int modZ) {
+        return world.getBlock(x + modX, y + modY, z + modZ);
+    }
+
+    public Block getRelative(final BlockFace face) {
+        return getRelative(face, 1);
+    }
+
+    public Block getRelative(final BlockFace face, final int distance) {
+        return world.getBlock(x + face.getModX() * distance, y + face.getModY() * distance, z + face.getModZ() * distance);
+    }
+
+    public BlockFace getFace(final Block block) {
+        for (BlockFace face : BlockFace.values()) {
+            if (x + face.getModX() == block.getX() && y + face.getModY() == block.getY() && z + face.getModZ() == block.getZ())
+                return face;
+        }
+        return null;
+    }
+
+    public BlockState getState() {
+        return HeadlessBlockState.of(world, x, y, z);
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public Chunk getChunk() {
+        return world.chunk(x >> 4, z >> 4);
+    }
+
+    public Location getLocation() {
+        return new Location(world, x, y, z);
+    }
+
+    public Location getLocation(final Location location) {
+        if (location != null) {
+            location.setWorld(world);
+            location.setX(x);
+            location.setY(y);
+            location.setZ(z);
+            location.setYaw(0);
+            location.setPitch(0);
+        }
+        return location;
+    }
+
+    public boolean isEmpty() {
+        return world.getTypeId(x, y, z) == 0;
+    }
+
+    public boolean isLiquid() {
+        final int typeId = world.getTypeId(x, y, z);
+        return typeId >= 8 && typeId <= 11;
+    }
+
+    public Biome getBiome() {
+        return world.getBiome(x, z);
+    }
+
+    public void setBiome(final Biome biome) {
+        world.setBiome(x, z, biome);
+    }
+
+    /**
+     * Returns what the block drops when broken, which is always the block
+     * itself.
+     */
+    public Collection<ItemStack> getDrops() {
+        final List<ItemStack> drops = new ArrayList<ItemStack>(1);
+        final int typeId = world.getTypeId(x, y, z);
+        if (typeId != 0)
+            drops.add(new ItemStack(typeId, 1, (short) 0, world.getData(x, y, z)));
+        return drops;
+    }
+
+    public Collection<ItemStack> getDrops(final ItemStack tool) {
+        return getDrops();
+    }
+
+    public boolean breakNaturally() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean breakNaturally(final ItemStack tool) {
+        throw new UnsupportedOperationException();
+    }
+
+    public byte getLightLevel() {
+        return 0;
+    }
+
+    public byte getLightFromSky() {
+        return 0;
+    }
+
+    public byte getLightFromBlocks() {
+        return 0;
+    }
+
+    public int getBlockPower() {
+        return 0;
+    }
+
+    public int getBlockPower(final BlockFace face) {
+        return 0;
+    }
+
+    public boolean isBlockPowered() {
+        return false;
+    }
+
+    public boolean isBlockIndirectlyPowered() {
+        return false;
+    }
+
+    public boolean isBlockFacePowered(final BlockFace face) {
+        return false;
+    }
+
+    public boolean isBlockFaceIndirectlyPowered(final BlockFace face) {
+        return false;
+    }
+
+    public double getTemperature() {
+        throw new UnsupportedOperationException();
+    }
+
+    public double getHumidity() {
+        throw new UnsupportedOperationException();
+    }
+
+    public PistonMoveReaction getPistonMoveReaction() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setMetadata(final String metadataKey, final MetadataValue newMetadataValue) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<MetadataValue> getMetadata(final String metadataKey) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean hasMetadata(final String metadataKey) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void removeMetadata(final String metadataKey, final Plugin owningPlugin) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof HeadlessBlock))
+            return false;
+        HeadlessBlock block = (HeadlessBlock) other;
+        return world == block.world && x == block.x && y == block.y && z == block.z;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((y << 24) ^ (x << 12) ^ z) * 31 + world.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "HeadlessBlock{world=" + world.getName() + ",x=" + x + ",y=" + y + ",z=" + z + "}";
+    }
+}
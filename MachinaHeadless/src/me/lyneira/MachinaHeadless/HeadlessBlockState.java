@@ -0,0 +1,272 @@
+package me.lyneira.MachinaHeadless;
+
+import java.util.List;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.BrewingStand;
+import org.bukkit.block.Chest;
+import org.bukkit.block.Dispenser;
+import org.bukkit.block.Furnace;
+import org.bukkit.block.Sign;
+import org.bukkit.inventory.BrewerInventory;
+import org.bukkit.inventory.FurnaceInventory;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.material.MaterialData;
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.projectiles.BlockProjectileSource;
+
+/**
+ * A copy of the type id and data of a block in a {@link HeadlessWorld}, with
+ * live access to its tile entity like on a server. Containers, furnaces,
+ * brewing stands and signs implement the matching Bukkit interface.
+ * 
+ * @author Lyneira
+ */
+class HeadlessBlockState implements BlockState {
+    private final HeadlessWorld world;
+    private final int x;
+    private final int y;
+    private final int z;
+    final HeadlessTile tile;
+    private int typeId;
+    private byte data;
+
+    private HeadlessBlockState(final HeadlessWorld world, final int x, final int y, final int z, final HeadlessTile tile) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.tile = tile;
+        typeId = world.getTypeId(x, y, z);
+        data = world.getData(x, y, z);
+    }
+
+    /**
+     * Returns a new state of the block at the given location, implementing
+     * the Bukkit interface that matches its tile entity.
+     */
+    static final BlockState of(final HeadlessWorld world, final int x, final int y, final int z) {
+        final HeadlessTile tile = world.getTile(x, y, z);
+        if (tile == null)
+            return new HeadlessBlockState(world, x, y, z, null);
+        switch (tile.kind) {
+        case CHEST:
+            return new ChestState(world, x, y, z, tile);
+        case DISPENSER:
+            return new DispenserState(world, x, y, z, tile);
+        case FURNACE:
+            return new FurnaceState(world, x, y, z, tile);
+        case BREWING_STAND:
+            return new BrewingStandState(world, x, y, z, tile);
+        default:
+            return new SignState(world, x, y, z, tile);
+        }
+    }
+
+    public int getTypeId() {
+        return typeId;
+    }
+
+    public byte getRawData() {
+        return data;
+    }
+
+    public Material getType() {
+        return Material.getMaterial(typeId);
+    }
+
+    public MaterialData getData() {
+        return new MaterialData(typeId, data);
+    }
+
+    public boolean setTypeId(final int type) {
+        typeId = type;
+        return true;
+    }
+
+    public void setType(final Material type) {
+        typeId = type.getId();
+    }
+
+    public void setData(final MaterialData data) {
+        this.data = data.getData();
+    }
+
+    public void setRawData(final byte data) {
+        this.data = data;
+    }
+
+    public boolean update() {
+        return update(false, true);
+    }
+
+    public boolean update(final boolean force) {
+        return update(force, true);
+    }
+
+    public boolean update(final boolean force, final boolean applyPhysics) {
+        if (world.getTypeId(x, y, z) != typeId && !force)
+            return false;
+        if (applyPhysics)
+            world.physicsUpdate();
+        world.setTypeIdAndData(x, y, z, typeId, data);
+        return true;
+    }
+
+    public Block getBlock() {
+        return world.getBlock(x, y, z);
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public Chunk getChunk() {
+        return world.chunk(x >> 4, z >> 4);
+    }
+
+    public Location getLocation() {
+        return new Location(world, x, y, z);
+    }
+
+    public Location getLocation(final Location location) {
+        return getBlock().getLocation(location);
+    }
+
+    public byte getLightLevel() {
+        return 0;
+    }
+
+    public void setMetadata(final String metadataKey, final MetadataValue newMetadataValue) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<MetadataValue> getMetadata(final String metadataKey) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean hasMetadata(final String metadataKey) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void removeMetadata(final String metadataKey, final Plugin owningPlugin) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{world=" + world.getName() + ",x=" + x + ",y=" + y + ",z=" + z + ",type=" + typeId + ",data=" + data + "}";
+    }
+
+    private static final class ChestState extends HeadlessBlockState implements Chest {
+        ChestState(final HeadlessWorld world, final int x, final int y, final int z, final HeadlessTile tile) {
+            super(world, x, y, z, tile);
+        }
+
+        public Inventory getInventory() {
+            return tile.inventory;
+        }
+
+        public Inventory getBlockInventory() {
+            return tile.inventory;
+        }
+    }
+
+    private static final class DispenserState extends HeadlessBlockState implements Dispenser {
+        DispenserState(final HeadlessWorld world, final int x, final int y, final int z, final HeadlessTile tile) {
+            super(world, x, y, z, tile);
+        }
+
+        public Inventory getInventory() {
+            return tile.inventory;
+        }
+
+        public BlockProjectileSource getBlockProjectileSource() {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean dispense() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class FurnaceState extends HeadlessBlockState implements Furnace {
+        FurnaceState(final HeadlessWorld world, final int x, final int y, final int z, final HeadlessTile tile) {
+            super(world, x, y, z, tile);
+        }
+
+        public FurnaceInventory getInventory() {
+            return (FurnaceInventory) tile.inventory;
+        }
+
+        public short getBurnTime() {
+            return tile.burnTime;
+        }
+
+        public void setBurnTime(final short burnTime) {
+            tile.burnTime = burnTime;
+        }
+
+        public short getCookTime() {
+            return tile.cookTime;
+        }
+
+        public void setCookTime(final short cookTime) {
+            tile.cookTime = cookTime;
+        }
+    }
+
+    private static final class BrewingStandState extends HeadlessBlockState implements BrewingStand {
+        BrewingStandState(final HeadlessWorld world, final int x, final int y, final int z, final HeadlessTile tile) {
+            super(world, x, y, z, tile);
+        }
+
+        public BrewerInventory getInventory() {
+            return (BrewerInventory) tile.inventory;
+        }
+
+        public int getBrewingTime() {
+            return tile.cookTime;
+        }
+
+        public void setBrewingTime(final int brewTime) {
+            tile.cookTime = (short) brewTime;
+        }
+    }
+
+    private static final class SignState extends HeadlessBlockState implements Sign {
+        SignState(final HeadlessWorld world, final int x, final int y, final int z, final HeadlessTile tile) {
+            super(world, x, y, z, tile);
+        }
+
+        public String[] getLines() {
+            return tile.lines.clone();
+        }
+
+        public String getLine(final int index) {
+            return tile.lines[index];
+        }
+
+        public void setLine(final int index, final String line) {
+            tile.lines[index] = line;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package me.lyneira.MachinaHeadless;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.entity.Entity;
+
+/**
+ * A 16x16 column of blocks in a {@link HeadlessWorld}. Type ids and data are
+ * stored in flat primitive arrays indexed by y, z and x. Inventories and other
+ * tile entity state are only allocated for the blocks that need them.
+ * 
+ * @author Lyneira
+ */
+final class HeadlessChunk implements Chunk {
+    private final HeadlessWorld world;
+    final int x;
+    final int z;
+    private final short[] ids = new short[16 * 16 * HeadlessWorld.height];
+    private final byte[] data = new byte[16 * 16 * HeadlessWorld.height];
+    private final byte[] biomes = new byte[16 * 16];
+    private final Map<Integer, HeadlessTile> tiles = new HashMap<Integer, HeadlessTile>();
+    boolean loaded = true;
+
+    HeadlessChunk(final HeadlessWorld world, final int x, final int z) {
+        this.world = world;
+        this.x = x;
+        this.z = z;
+    }
+
+    private static final int index(final int x, final int y, final int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+
+    final int getTypeId(final int x, final int y, final int z) {
+        return ids[index(x, y, z)];
+    }
+
+    final byte getData(final int x, final int y, final int z) {
+        return data[index(x, y, z)];
+    }
+
+    /**
+     * Sets the type id and data of a block. Tile entity state is discarded if
+     * the type id changes.
+     */
+    final void set(final int x, final int y, final int z, final int typeId, final byte data) {
+        final int index = index(x, y, z);
+        if (ids[index] != typeId && !tiles.isEmpty())
+            tiles.remove(index);
+        ids[index] = (short) typeId;
+        this.data[index] = data;
+    }
+
+    /**
+     * Returns the tile entity state of a block, creating it if the block type
+     * has one.
+     * 
+     * @return The tile, or null if the block type has no tile entity.
+     */
+    final HeadlessTile getTile(final int x, final int y, final int z) {
+        final int index = index(x, y, z);
+        HeadlessTile tile = tiles.get(index);
+        if (tile == null) {
+            tile = HeadlessTile.create(world, (this.x << 4) + x, y, (this.z << 4) + z, ids[index]);
+            if (tile != null)
+                tiles.put(index, tile);
+        }
+        return tile;
+    }
+
+    final Biome getBiome(final int x, final int z) {
+        return Biome.values()[biomes[(z << 4) | x]];
+    }
+
+    final void setBiome(final int x, final int z, final Biome biome) {
+        biomes[(z << 4) | x] = (byte) biome.ordinal();
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public Block getBlock(final int x, final int y, final int z) {
+        return world.getBlock((this.x << 4) + x, y, (this.z << 4) + z);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean load() {
+        loaded = true;
+        return true;
+    }
+
+    public boolean load(final boolean generate) {
+        return load();
+    }
+
+    public boolean unload() {
+        loaded = false;
+        return true;
+    }
+
+    public boolean unload(final boolean save) {
+        return unload();
+    }
+
+    public boolean unload(final boolean save, final boolean safe) {
+        return unload();
+    }
+
+    public Entity[] getEntities() {
+        return new Entity[0];
+    }
+
+    public BlockState[] getTileEntities() {
+        final BlockState[] states = new BlockState[tiles.size()];
+        int i = 0;
+        for (HeadlessTile tile : tiles.values()) {
+            states[i++] = HeadlessBlockState.of(world, tile.x, tile.y, tile.z);
+        }
+        return states;
+    }
+
+    public ChunkSnapshot getChunkSnapshot() {
+        throw new UnsupportedOperationException();
+    }
+
+    public ChunkSnapshot getChunkSnapshot(final boolean includeMaxblocky, final boolean includeBiome, final boolean includeBiomeTempRain) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        return "HeadlessChunk{world=" + world.getName() + ",x=" + x + ",z=" + z + "}";
+    }
+}
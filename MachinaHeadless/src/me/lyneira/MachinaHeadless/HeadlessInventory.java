@@ -0,0 +1,386 @@
+package me.lyneira.MachinaHeadless;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.bukkit.Material;
+import org.bukkit.block.BrewingStand;
+import org.bukkit.block.Furnace;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.BrewerInventory;
+import org.bukkit.inventory.FurnaceInventory;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * An inventory backed by a plain array of item stacks. Inventories of
+ * containers in a {@link HeadlessWorld} are live, just like on a server: the
+ * inventory of a chest state changes the chest itself.
+ * 
+ * @author Lyneira
+ */
+public class HeadlessInventory implements Inventory {
+    final ItemStack[] contents;
+    private final InventoryType type;
+    final HeadlessWorld world;
+    final int x;
+    final int y;
+    final int z;
+
+    /**
+     * Constructs a new empty inventory that does not belong to a block.
+     * 
+     * @param size
+     *            The number of slots
+     */
+    public HeadlessInventory(final int size) {
+        this(size, InventoryType.CHEST, null, 0, 0, 0);
+    }
+
+    HeadlessInventory(final int size, final InventoryType type, final HeadlessWorld world, final int x, final int y, final int z) {
+        contents = new ItemStack[size];
+        this.type = type;
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Fills every slot with a full stack of the given item.
+     * 
+     * @param typeId
+     *            The item type id
+     * @param durability
+     *            The durability or data value
+     */
+    public final void fill(final int typeId, final short durability) {
+        for (int i = 0; i < contents.length; i++) {
+            ItemStack item = new ItemStack(typeId, 1, durability);
+            item.setAmount(item.getMaxStackSize());
+            contents[i] = item;
+        }
+    }
+
+    public int getSize() {
+        return contents.length;
+    }
+
+    public int getMaxStackSize() {
+        return 64;
+    }
+
+    public void setMaxStackSize(final int size) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String getName() {
+        return "container";
+    }
+
+    public String getTitle() {
+        return "container";
+    }
+
+    public InventoryType getType() {
+        return type;
+    }
+
+    public InventoryHolder getHolder() {
+        return world == null ? null : (InventoryHolder) HeadlessBlockState.of(world, x, y, z);
+    }
+
+    public List<HumanEntity> getViewers() {
+        return new ArrayList<HumanEntity>();
+    }
+
+    public ItemStack getItem(final int index) {
+        return contents[index];
+    }
+
+    public void setItem(final int index, final ItemStack item) {
+        contents[index] = item;
+    }
+
+    public ItemStack[] getContents() {
+        return contents.clone();
+    }
+
+    public void setContents(final ItemStack[] items) {
+        if (items.length > contents.length)
+            throw new IllegalArgumentException("Invalid inventory size; expected " + contents.length + " or less");
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = i < items.length ? items[i] : null;
+        }
+    }
+
+    public boolean contains(final int materialId) {
+        return first(materialId) >= 0;
+    }
+
+    public boolean contains(final Material material) {
+        return first(material.getId()) >= 0;
+    }
+
+    public boolean contains(final ItemStack item) {
+        return first(item) >= 0;
+    }
+
+    public boolean contains(final int materialId, final int amount) {
+        return count(materialId) >= amount;
+    }
+
+    public boolean contains(final Material material, final int amount) {
+        return count(material.getId()) >= amount;
+    }
+
+    public boolean contains(final ItemStack item, final int amount) {
+        return count(item) >= amount;
+    }
+
+    public boolean containsAtLeast(final ItemStack item, final int amount) {
+        return count(item) >= amount;
+    }
+
+    public HashMap<Integer, ItemStack> all(final int materialId) {
+        final HashMap<Integer, ItemStack> all = new HashMap<Integer, ItemStack>();
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] != null && contents[i].getTypeId() == materialId)
+                all.put(i, contents[i]);
+        }
+        return all;
+    }
+
+    public HashMap<Integer, ItemStack> all(final Material material) {
+        return all(material.getId());
+    }
+
+    public HashMap<Integer, ItemStack> all(final ItemStack item) {
+        final HashMap<Integer, ItemStack> all = new HashMap<Integer, ItemStack>();
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] != null && contents[i].equals(item))
+                all.put(i, contents[i]);
+        }
+        return all;
+    }
+
+    public int first(final int materialId) {
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] != null && contents[i].getTypeId() == materialId)
+                return i;
+        }
+        return -1;
+    }
+
+    public int first(final Material material) {
+        return first(material.getId());
+    }
+
+    public int first(final ItemStack item) {
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] != null && contents[i].equals(item))
+                return i;
+        }
+        return -1;
+    }
+
+    public int firstEmpty() {
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] == null)
+                return i;
+        }
+        return -1;
+    }
+
+    public void remove(final int materialId) {
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] != null && contents[i].getTypeId() == materialId)
+                contents[i] = null;
+        }
+    }
+
+    public void remove(final Material material) {
+        remove(material.getId());
+    }
+
+    public void remove(final ItemStack item) {
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] != null && contents[i].equals(item))
+                contents[i] = null;
+        }
+    }
+
+    public void clear(final int index) {
+        contents[index] = null;
+    }
+
+    public void clear() {
+        Arrays.fill(contents, null);
+    }
+
+    public ListIterator<ItemStack> iterator() {
+        return Arrays.asList(contents).listIterator();
+    }
+
+    public ListIterator<ItemStack> iterator(final int index) {
+        return Arrays.asList(contents).listIterator(index);
+    }
+
+    /**
+     * Returns the total amount of items with the given type id.
+     */
+    private int count(final int materialId) {
+        int count = 0;
+        for (ItemStack item : contents) {
+            if (item != null && item.getTypeId() == materialId)
+                count += item.getAmount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total amount of items of the same type and durability as
+     * the given item stack.
+     */
+    private int count(final ItemStack match) {
+        int count = 0;
+        for (ItemStack item : contents) {
+            if (item != null && similar(item, match))
+                count += item.getAmount();
+        }
+        return count;
+    }
+
+    private static boolean similar(final ItemStack item, final ItemStack other) {
+        return item.getTypeId() == other.getTypeId() && item.getDurability() == other.getDurability();
+    }
+
+    public HashMap<Integer, ItemStack> addItem(final ItemStack... items) {
+        final HashMap<Integer, ItemStack> leftover = new HashMap<Integer, ItemStack>();
+        for (int i = 0; i < items.length; i++) {
+            final ItemStack item = items[i];
+            int amount = item.getAmount();
+            final int max = Math.min(item.getMaxStackSize(), 64);
+            // Top up partial stacks first, then use empty slots.
+            for (int slot = 0; slot < contents.length && amount > 0; slot++) {
+                ItemStack existing = contents[slot];
+                if (existing != null && existing.getAmount() < max && similar(existing, item)) {
+                    int moved = Math.min(amount, max - existing.getAmount());
+                    existing.setAmount(existing.getAmount() + moved);
+                    amount -= moved;
+                }
+            }
+            for (int slot = 0; slot < contents.length && amount > 0; slot++) {
+                if (contents[slot] == null) {
+                    int moved = Math.min(amount, max);
+                    ItemStack stack = item.clone();
+                    stack.setAmount(moved);
+                    contents[slot] = stack;
+                    amount -= moved;
+                }
+            }
+            if (amount > 0) {
+                ItemStack rest = item.clone();
+                rest.setAmount(amount);
+                leftover.put(i, rest);
+            }
+        }
+        return leftover;
+    }
+
+    public HashMap<Integer, ItemStack> removeItem(final ItemStack... items) {
+        final HashMap<Integer, ItemStack> leftover = new HashMap<Integer, ItemStack>();
+        for (int i = 0; i < items.length; i++) {
+            final ItemStack item = items[i];
+            int amount = item.getAmount();
+            for (int slot = 0; slot < contents.length && amount > 0; slot++) {
+                ItemStack existing = contents[slot];
+                if (existing != null && similar(existing, item)) {
+                    int removed = Math.min(amount, existing.getAmount());
+                    if (removed == existing.getAmount())
+                        contents[slot] = null;
+                    else
+                        existing.setAmount(existing.getAmount() - removed);
+                    amount -= removed;
+                }
+            }
+            if (amount > 0) {
+                ItemStack rest = item.clone();
+                rest.setAmount(amount);
+                leftover.put(i, rest);
+            }
+        }
+        return leftover;
+    }
+
+    @Override
+    public String toString() {
+        return "HeadlessInventory{size=" + contents.length + (world == null ? "" : ",x=" + x + ",y=" + y + ",z=" + z) + "}";
+    }
+
+    /**
+     * The inventory of a furnace: smelting, fuel and result slots.
+     */
+    static final class OfFurnace extends HeadlessInventory implements FurnaceInventory {
+        OfFurnace(final HeadlessWorld world, final int x, final int y, final int z) {
+            super(3, InventoryType.FURNACE, world, x, y, z);
+        }
+
+        @Override
+        public Furnace getHolder() {
+            return (Furnace) super.getHolder();
+        }
+
+        public ItemStack getSmelting() {
+            return contents[0];
+        }
+
+        public ItemStack getFuel() {
+            return contents[1];
+        }
+
+        public ItemStack getResult() {
+            return contents[2];
+        }
+
+        public void setSmelting(final ItemStack item) {
+            contents[0] = item;
+        }
+
+        public void setFuel(final ItemStack item) {
+            contents[1] = item;
+        }
+
+        public void setResult(final ItemStack item) {
+            contents[2] = item;
+        }
+    }
+
+    /**
+     * The inventory of a brewing stand: three potion slots and the
+     * ingredient.
+     */
+    static final class OfBrewingStand extends HeadlessInventory implements BrewerInventory {
+        OfBrewingStand(final HeadlessWorld world, final int x, final int y, final int z) {
+            super(4, InventoryType.BREWING, world, x, y, z);
+        }
+
+        @Override
+        public BrewingStand getHolder() {
+            return (BrewingStand) super.getHolder();
+        }
+
+        public ItemStack getIngredient() {
+            return contents[3];
+        }
+
+        public void setIngredient(final ItemStack item) {
+            contents[3] = item;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package me.lyneira.MachinaHeadless;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.permissions.Permissible;
+import org.bukkit.permissions.Permission;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginLoader;
+import org.bukkit.plugin.PluginManager;
+
+/**
+ * Plugin manager that dispatches events to registered listeners the same way
+ * the server does: handlers run in order of priority, and handlers that
+ * ignore cancelled events are skipped once an event is cancelled.
+ * 
+ * @author Lyneira
+ */
+public final class HeadlessPluginManager implements PluginManager {
+    private static final Logger log = Logger.getLogger("Minecraft");
+
+    private final List<Registration> registrations = new ArrayList<Registration>();
+    private final Map<Class<?>, Registration[]> byEvent = new HashMap<Class<?>, Registration[]>();
+
+    /**
+     * A single event handler method of a listener.
+     */
+    private static final class Registration {
+        final Listener listener;
+        final Method method;
+        final Class<?> eventType;
+        final int priority;
+        final boolean ignoreCancelled;
+
+        Registration(Listener listener, Method method, EventHandler handler) {
+            this.listener = listener;
+            this.method = method;
+            eventType = method.getParameterTypes()[0];
+            priority = handler.priority().ordinal();
+            ignoreCancelled = handler.ignoreCancelled();
+            method.setAccessible(true);
+        }
+    }
+
+    /**
+     * Registers all event handler methods of the given listener.
+     * 
+     * @param listener
+     *            The listener to register
+     */
+    public final void registerEvents(final Listener listener) {
+        for (Method method : listener.getClass().getMethods()) {
+            EventHandler handler = method.getAnnotation(EventHandler.class);
+            if (handler == null || method.getParameterTypes().length != 1 || !Event.class.isAssignableFrom(method.getParameterTypes()[0]))
+                continue;
+            registrations.add(new Registration(listener, method, handler));
+        }
+        // Stable sort, so handlers of the same priority run in registration
+        // order.
+        Collections.sort(registrations, new Comparator<Registration>() {
+            public int compare(Registration a, Registration b) {
+                return a.priority - b.priority;
+            }
+        });
+        byEvent.clear();
+    }
+
+    /**
+     * Removes all registered listeners.
+     */
+    public final void clear() {
+        registrations.clear();
+        byEvent.clear();
+    }
+
+    /**
+     * Calls all handlers registered for the given event.
+     * 
+     * @param event
+     *            The event to call
+     */
+    public final void callEvent(final Event event) {
+        Registration[] handlers = byEvent.get(event.getClass());
+        if (handlers == null) {
+            List<Registration> matching = new ArrayList<Registration>();
+            for (Registration registration : registrations) {
+                if (registration.eventType.isAssignableFrom(event.getClass()))
+                    matching.add(registration);
+            }
+            handlers = matching.toArray(new Registration[matching.size()]);
+            byEvent.put(event.getClass(), handlers);
+        }
+
+        for (Registration registration : handlers) {
+            if (registration.ignoreCancelled && event instanceof Cancellable && ((Cancellable) event).isCancelled())
+                continue;
+            try {
+                registration.method.invoke(registration.listener, event);
+            } catch (InvocationTargetException e) {
+                log.log(Level.SEVERE, "Could not pass event " + event.getClass().getSimpleName() + " to " + registration.listener, e.getCause());
+            } catch (IllegalAccessException e) {
+                log.log(Level.SEVERE, "Could not pass event " + event.getClass().getSimpleName() + " to " + registration.listener, e);
+            }
+        }
+    }
+
+    public void registerEvents(final Listener listener, final Plugin plugin) {
+        registerEvents(listener);
+    }
+
+    public void registerEvent(final Class<? extends Event> event, final Listener listener, final EventPriority priority, final EventExecutor executor,
+            final Plugin plugin) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void registerEvent(final Class<? extends Event> event, final Listener listener, final EventPriority priority, final EventExecutor executor,
+            final Plugin plugin, final boolean ignoreCancelled) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Plugin getPlugin(final String name) {
+        return null;
+    }
+
+    public Plugin[] getPlugins() {
+        return new Plugin[0];
+    }
+
+    public boolean isPluginEnabled(final String name) {
+        return false;
+    }
+
+    public boolean isPluginEnabled(final Plugin plugin) {
+        return false;
+    }
+
+    public void enablePlugin(final Plugin plugin) {
+    }
+
+    public void disablePlugin(final Plugin plugin) {
+    }
+
+    public void disablePlugins() {
+    }
+
+    public void clearPlugins() {
+        clear();
+    }
+
+    public void registerInterface(final Class<? extends PluginLoader> loader) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Plugin loadPlugin(final File file) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Plugin[] loadPlugins(final File directory) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Permission getPermission(final String name) {
+        return null;
+    }
+
+    public void addPermission(final Permission permission) {
+    }
+
+    public void removePermission(final Permission permission) {
+    }
+
+    public void removePermission(final String name) {
+    }
+
+    public Set<Permission> getPermissions() {
+        throw new UnsupportedOperationException();
+    }
+
+    public Set<Permission> getDefaultPermissions(final boolean op) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void recalculatePermissionDefaults(final Permission permission) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void subscribeToPermission(final String permission, final Permissible permissible) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void unsubscribeFromPermission(final String permission, final Permissible permissible) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Set<Permissible> getPermissionSubscriptions(final String permission) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void subscribeToDefaultPerms(final boolean op, final Permissible permissible) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void unsubscribeFromDefaultPerms(final boolean op, final Permissible permissible) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Set<Permissible> getDefaultPermSubscriptions(final boolean op) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean useTimings() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "HeadlessPluginManager{listeners=" + registrations.size() + "}";
+    }
+}
@@ -0,0 +1,199 @@
+package me.lyneira.MachinaHeadless;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.scheduler.BukkitWorker;
+
+/**
+ * Scheduler that only advances when {@link #tick()} is called. Asynchronous
+ * tasks run on the calling thread like synchronous ones, so a simulation is
+ * fully deterministic.
+ * 
+ * @author Lyneira
+ */
+public final class HeadlessScheduler implements BukkitScheduler {
+    private final PriorityQueue<Task> pending = new PriorityQueue<Task>();
+    private long currentTick = 0;
+    private int nextId = 1;
+
+    private final class Task implements Comparable<Task>, BukkitTask {
+        final int id;
+        final Plugin plugin;
+        final Runnable runnable;
+        final long period;
+        long due;
+
+        Task(int id, Plugin plugin, Runnable runnable, long due, long period) {
+            this.id = id;
+            this.plugin = plugin;
+            this.runnable = runnable;
+            this.due = due;
+            this.period = period;
+        }
+
+        public int compareTo(Task other) {
+            if (due != other.due)
+                return due < other.due ? -1 : 1;
+            return id - other.id;
+        }
+
+        public int getTaskId() {
+            return id;
+        }
+
+        public Plugin getOwner() {
+            return plugin;
+        }
+
+        public boolean isSync() {
+            return true;
+        }
+
+        public void cancel() {
+            cancelTask(id);
+        }
+    }
+
+    /**
+     * @return The number of ticks run so far.
+     */
+    public final long currentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Advances one tick and runs every task that has become due.
+     */
+    public final void tick() {
+        currentTick++;
+        while (!pending.isEmpty() && pending.peek().due <= currentTick) {
+            Task task = pending.remove();
+            if (task.period > 0) {
+                task.due = currentTick + task.period;
+                pending.add(task);
+            }
+            task.runnable.run();
+        }
+    }
+
+    /**
+     * Advances the given number of ticks.
+     * 
+     * @param ticks
+     *            The number of ticks to run
+     */
+    public final void tick(final int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            tick();
+        }
+    }
+
+    private Task schedule(final Plugin plugin, final Runnable runnable, final long delay, final long period) {
+        final Task task = new Task(nextId++, plugin, runnable, currentTick + Math.max(delay, 1), period);
+        pending.add(task);
+        return task;
+    }
+
+    public int scheduleSyncDelayedTask(final Plugin plugin, final Runnable task) {
+        return schedule(plugin, task, 0, 0).id;
+    }
+
+    public int scheduleSyncDelayedTask(final Plugin plugin, final Runnable task, final long delay) {
+        return schedule(plugin, task, delay, 0).id;
+    }
+
+    public int scheduleSyncRepeatingTask(final Plugin plugin, final Runnable task, final long delay, final long period) {
+        return schedule(plugin, task, delay, Math.max(period, 1)).id;
+    }
+
+    public int scheduleAsyncDelayedTask(final Plugin plugin, final Runnable task) {
+        return schedule(plugin, task, 0, 0).id;
+    }
+
+    public int scheduleAsyncDelayedTask(final Plugin plugin, final Runnable task, final long delay) {
+        return schedule(plugin, task, delay, 0).id;
+    }
+
+    public int scheduleAsyncRepeatingTask(final Plugin plugin, final Runnable task, final long delay, final long period) {
+        return schedule(plugin, task, delay, Math.max(period, 1)).id;
+    }
+
+    public BukkitTask runTask(final Plugin plugin, final Runnable task) {
+        return schedule(plugin, task, 0, 0);
+    }
+
+    public BukkitTask runTaskAsynchronously(final Plugin plugin, final Runnable task) {
+        return schedule(plugin, task, 0, 0);
+    }
+
+    public BukkitTask runTaskLater(final Plugin plugin, final Runnable task, final long delay) {
+        return schedule(plugin, task, delay, 0);
+    }
+
+    public BukkitTask runTaskLaterAsynchronously(final Plugin plugin, final Runnable task, final long delay) {
+        return schedule(plugin, task, delay, 0);
+    }
+
+    public BukkitTask runTaskTimer(final Plugin plugin, final Runnable task, final long delay, final long period) {
+        return schedule(plugin, task, delay, Math.max(period, 1));
+    }
+
+    public BukkitTask runTaskTimerAsynchronously(final Plugin plugin, final Runnable task, final long delay, final long period) {
+        return schedule(plugin, task, delay, Math.max(period, 1));
+    }
+
+    public <T> Future<T> callSyncMethod(final Plugin plugin, final Callable<T> task) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void cancelTask(final int taskId) {
+        for (Iterator<Task> it = pending.iterator(); it.hasNext();) {
+            if (it.next().id == taskId)
+                it.remove();
+        }
+    }
+
+    public void cancelTasks(final Plugin plugin) {
+        for (Iterator<Task> it = pending.iterator(); it.hasNext();) {
+            if (it.next().plugin == plugin)
+                it.remove();
+        }
+    }
+
+    public void cancelAllTasks() {
+        pending.clear();
+    }
+
+    public boolean isQueued(final int taskId) {
+        for (Task task : pending) {
+            if (task.id == taskId)
+                return true;
+        }
+        return false;
+    }
+
+    public boolean isCurrentlyRunning(final int taskId) {
+        return false;
+    }
+
+    public List<BukkitWorker> getActiveWorkers() {
+        return new ArrayList<BukkitWorker>();
+    }
+
+    public List<BukkitTask> getPendingTasks() {
+        return new ArrayList<BukkitTask>(pending);
+    }
+
+    @Override
+    public String toString() {
+        return "HeadlessScheduler{tick=" + currentTick + ",pending=" + pending.size() + "}";
+    }
+}
@@ -0,0 +1,138 @@
+package me.lyneira.MachinaHeadless;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Recipe;
+
+/**
+ * A server without a network or a game loop, holding {@link HeadlessWorld}s, a
+ * {@link HeadlessPluginManager} and a {@link HeadlessScheduler}. Time only
+ * passes when {@link #tick()} is called.
+ * <p>
+ * Unlike the world, the Bukkit view of the server is a dynamic proxy. The
+ * plugins only call it a few times while starting up, and implementing the
+ * whole interface would need Bukkit's database dependencies on the classpath.
+ * 
+ * @author Lyneira
+ */
+public final class HeadlessServer implements InvocationHandler {
+    private final Server server = (Server) Proxy.newProxyInstance(HeadlessServer.class.getClassLoader(), new Class<?>[] { Server.class }, this);
+    private final HeadlessPluginManager pluginManager = new HeadlessPluginManager();
+    private final HeadlessScheduler scheduler = new HeadlessScheduler();
+    private final Map<String, HeadlessWorld> worlds = new LinkedHashMap<String, HeadlessWorld>();
+    private final List<Recipe> recipes = new ArrayList<Recipe>();
+
+    /**
+     * @return The Bukkit view of this server.
+     */
+    public final Server getServer() {
+        return server;
+    }
+
+    /**
+     * @return The plugin manager of this server.
+     */
+    public final HeadlessPluginManager getPluginManager() {
+        return pluginManager;
+    }
+
+    /**
+     * @return The scheduler of this server.
+     */
+    public final HeadlessScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Creates a new empty world, or returns the existing world with the given
+     * name.
+     * 
+     * @param name
+     *            The name of the world
+     * @return The world
+     */
+    public final HeadlessWorld createWorld(final String name) {
+        HeadlessWorld world = worlds.get(name);
+        if (world == null) {
+            world = new HeadlessWorld(name);
+            worlds.put(name, world);
+        }
+        return world;
+    }
+
+    /**
+     * Adds a crafting recipe to this server. A headless server starts without
+     * any recipes.
+     * 
+     * @param recipe
+     *            The recipe to add
+     */
+    public final void addRecipe(final Recipe recipe) {
+        recipes.add(recipe);
+    }
+
+    /**
+     * Runs a single server tick.
+     */
+    public final void tick() {
+        scheduler.tick();
+    }
+
+    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+        final String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            if (name.equals("equals"))
+                return proxy == args[0];
+            if (name.equals("hashCode"))
+                return hashCode();
+            return toString();
+        }
+        if (name.equals("getPluginManager"))
+            return pluginManager;
+        if (name.equals("getScheduler"))
+            return scheduler;
+        if (name.equals("getWorld")) {
+            for (HeadlessWorld world : worlds.values()) {
+                if (world.getName().equals(args[0]) || world.getUID().equals(args[0]))
+                    return world;
+            }
+            return null;
+        }
+        if (name.equals("getWorlds"))
+            return new ArrayList<World>(worlds.values());
+        if (name.equals("addRecipe")) {
+            addRecipe((Recipe) args[0]);
+            return true;
+        }
+        if (name.equals("recipeIterator"))
+            return recipes.iterator();
+        if (name.equals("getPlayer") || name.equals("getPlayerExact"))
+            return null;
+        if (name.equals("getOnlinePlayers"))
+            return new Player[0];
+        if (name.equals("getName"))
+            return "Headless";
+        if (name.equals("getVersion") || name.equals("getBukkitVersion"))
+            return "headless";
+        if (name.equals("getLogger"))
+            return Logger.getLogger("Minecraft");
+        if (name.equals("isPrimaryThread"))
+            return true;
+        throw new UnsupportedOperationException("Not supported headless: Server." + name);
+    }
+
+    @Override
+    public String toString() {
+        return "HeadlessServer{worlds=" + worlds.keySet() + "}";
+    }
+}
@@ -0,0 +1,71 @@
+package me.lyneira.MachinaHeadless;
+
+import org.bukkit.event.inventory.InventoryType;
+
+/**
+ * Tile entity state of a single block in a {@link HeadlessWorld}: the
+ * inventory of containers, furnace times and sign text.
+ * 
+ * @author Lyneira
+ */
+final class HeadlessTile {
+    /**
+     * The kind of block state the tile belongs to.
+     */
+    enum Kind {
+        CHEST, DISPENSER, FURNACE, BREWING_STAND, SIGN
+    }
+
+    private static final int dispenser = 23;
+    private static final int chest = 54;
+    private static final int furnace = 61;
+    private static final int burningFurnace = 62;
+    private static final int signPost = 63;
+    private static final int wallSign = 68;
+    private static final int brewingStand = 117;
+    private static final int trappedChest = 146;
+
+    final int x;
+    final int y;
+    final int z;
+    final HeadlessInventory inventory;
+    final Kind kind;
+    short burnTime = 0;
+    short cookTime = 0;
+    final String[] lines;
+
+    private HeadlessTile(final int x, final int y, final int z, final HeadlessInventory inventory, final Kind kind,
+            final String[] lines) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.inventory = inventory;
+        this.kind = kind;
+        this.lines = lines;
+    }
+
+    /**
+     * Creates the tile entity state for a block of the given type.
+     * 
+     * @return A new tile, or null if the type has no tile entity.
+     */
+    static final HeadlessTile create(final HeadlessWorld world, final int x, final int y, final int z, final int typeId) {
+        switch (typeId) {
+        case dispenser:
+            return new HeadlessTile(x, y, z, new HeadlessInventory(9, InventoryType.DISPENSER, world, x, y, z), Kind.DISPENSER, null);
+        case chest:
+        case trappedChest:
+            return new HeadlessTile(x, y, z, new HeadlessInventory(27, InventoryType.CHEST, world, x, y, z), Kind.CHEST, null);
+        case furnace:
+        case burningFurnace:
+            return new HeadlessTile(x, y, z, new HeadlessInventory.OfFurnace(world, x, y, z), Kind.FURNACE, null);
+        case brewingStand:
+            return new HeadlessTile(x, y, z, new HeadlessInventory.OfBrewingStand(world, x, y, z), Kind.BREWING_STAND, null);
+        case signPost:
+        case wallSign:
+            return new HeadlessTile(x, y, z, null, Kind.SIGN, new String[] { "", "", "", "" });
+        default:
+            return null;
+        }
+    }
+}
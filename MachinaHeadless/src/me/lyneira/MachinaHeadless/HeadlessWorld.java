@@ -0,0 +1,706 @@
+package me.lyneira.MachinaHeadless;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.BlockChangeDelegate;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Difficulty;
+import org.bukkit.Effect;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Sound;
+import org.bukkit.TreeType;
+import org.bukkit.World;
+import org.bukkit.WorldType;
+import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Arrow;
+import org.bukkit.entity.CreatureType;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.FallingBlock;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.LightningStrike;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.generator.BlockPopulator;
+import org.bukkit.generator.ChunkGenerator;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.util.Vector;
+
+/**
+ * An in-memory world for running machinae without a server. Chunks are
+ * created on first access and start out as air. Blocks are plain type id and
+ * data values: there is no physics, lighting or block updates of any kind, so
+ * a simulation gives the same result every time it is run. Changes that would
+ * apply physics on a server are counted instead, see
+ * {@link #getPhysicsUpdates()}.
+ * <p>
+ * Like ungenerated chunks on a server, chunks that were never accessed are not
+ * loaded. Accessing a block creates and loads its chunk.
+ * <p>
+ * Only the calls the machina plugins make are implemented. Other calls throw
+ * an {@link UnsupportedOperationException}.
+ * 
+ * @author Lyneira
+ */
+public final class HeadlessWorld implements World {
+    /**
+     * The height of the world in blocks.
+     */
+    public static final int height = 256;
+
+    private static final int seaLevel = 64;
+
+    private final String name;
+    private final UUID uid;
+    private final Map<Long, HeadlessChunk> chunks = new HashMap<Long, HeadlessChunk>();
+    private final List<ItemStack> drops = new ArrayList<ItemStack>();
+    private HeadlessChunk lastChunk;
+    private long physicsUpdates = 0;
+
+    /**
+     * Constructs a new empty world.
+     * 
+     * @param name
+     *            The name of the world
+     */
+    public HeadlessWorld(final String name) {
+        this.name = name;
+        uid = UUID.nameUUIDFromBytes(name.getBytes());
+    }
+
+    /**
+     * @return The type id of the block at the given location, 0 outside the
+     *         world height.
+     */
+    public final int getTypeId(final int x, final int y, final int z) {
+        if (y < 0 || y >= height)
+            return 0;
+        return chunk(x >> 4, z >> 4).getTypeId(x & 15, y, z & 15);
+    }
+
+    /**
+     * @return The data of the block at the given location, 0 outside the world
+     *         height.
+     */
+    public final byte getData(final int x, final int y, final int z) {
+        if (y < 0 || y >= height)
+            return 0;
+        return chunk(x >> 4, z >> 4).getData(x & 15, y, z & 15);
+    }
+
+    /**
+     * Sets the type id and data of a block. Blocks outside the world height
+     * are ignored.
+     */
+    public final void setTypeIdAndData(final int x, final int y, final int z, final int typeId, final byte data) {
+        if (y < 0 || y >= height)
+            return;
+        chunk(x >> 4, z >> 4).set(x & 15, y, z & 15, typeId, data);
+    }
+
+    /**
+     * Records a block change that applies physics on a server.
+     */
+    final void physicsUpdate() {
+        physicsUpdates++;
+    }
+
+    /**
+     * Returns the number of block changes made through Bukkit that would have
+     * applied physics on a server. Physics is not simulated, but each of these
+     * changes updates the neighbours of the block on a server.
+     * 
+     * @return The number of changes with physics since the world was created
+     */
+    public final long getPhysicsUpdates() {
+        return physicsUpdates;
+    }
+
+    /**
+     * Fills the box between the given corners, inclusive, with the given type
+     * id and data.
+     */
+    public final void fill(final int x1, final int y1, final int z1, final int x2, final int y2, final int z2, final int typeId, final byte data) {
+        for (int x = Math.min(x1, x2); x <= Math.max(x1, x2); x++) {
+            for (int y = Math.min(y1, y2); y <= Math.max(y1, y2); y++) {
+                for (int z = Math.min(z1, z2); z <= Math.max(z1, z2); z++) {
+                    setTypeIdAndData(x, y, z, typeId, data);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the inventory of the container at the given location.
+     * 
+     * @return The inventory, or null if the block is not a container.
+     */
+    public final Inventory getInventory(final int x, final int y, final int z) {
+        return getHeadlessInventory(x, y, z);
+    }
+
+    /**
+     * Returns the headless inventory of the container at the given location.
+     * 
+     * @return The inventory, or null if the block is not a container.
+     */
+    public final HeadlessInventory getHeadlessInventory(final int x, final int y, final int z) {
+        final HeadlessTile tile = getTile(x, y, z);
+        return tile == null ? null : tile.inventory;
+    }
+
+    /**
+     * Returns every item dropped into the world so far. The list can be
+     * cleared by the caller.
+     * 
+     * @return The live list of dropped items
+     */
+    public final List<ItemStack> getDrops() {
+        return drops;
+    }
+
+    /**
+     * @return A block for the given location.
+     */
+    public final Block getBlock(final int x, final int y, final int z) {
+        return new HeadlessBlock(this, x, y, z);
+    }
+
+    final HeadlessTile getTile(final int x, final int y, final int z) {
+        if (y < 0 || y >= height)
+            return null;
+        return chunk(x >> 4, z >> 4).getTile(x & 15, y, z & 15);
+    }
+
+    private static final long key(final int chunkX, final int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the chunk at the given chunk coordinates, creating it if it
+     * does not exist yet. Accessing a chunk loads it.
+     */
+    final HeadlessChunk chunk(final int chunkX, final int chunkZ) {
+        HeadlessChunk chunk = lastChunk;
+        if (chunk != null && chunk.x == chunkX && chunk.z == chunkZ) {
+            chunk.loaded = true;
+            return chunk;
+        }
+        final Long key = key(chunkX, chunkZ);
+        chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new HeadlessChunk(this, chunkX, chunkZ);
+            chunks.put(key, chunk);
+        }
+        chunk.loaded = true;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    public Block getBlockAt(final int x, final int y, final int z) {
+        return getBlock(x, y, z);
+    }
+
+    public Block getBlockAt(final Location location) {
+        return getBlock(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    public int getBlockTypeIdAt(final int x, final int y, final int z) {
+        return getTypeId(x, y, z);
+    }
+
+    public int getBlockTypeIdAt(final Location location) {
+        return getTypeId(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    public int getHighestBlockYAt(final int x, final int z) {
+        int y = height - 1;
+        while (y > 0 && getTypeId(x, y, z) == 0) {
+            y--;
+        }
+        return y + 1;
+    }
+
+    public int getHighestBlockYAt(final Location location) {
+        return getHighestBlockYAt(location.getBlockX(), location.getBlockZ());
+    }
+
+    public Block getHighestBlockAt(final int x, final int z) {
+        return getBlock(x, getHighestBlockYAt(x, z), z);
+    }
+
+    public Block getHighestBlockAt(final Location location) {
+        return getHighestBlockAt(location.getBlockX(), location.getBlockZ());
+    }
+
+    public Biome getBiome(final int x, final int z) {
+        return chunk(x >> 4, z >> 4).getBiome(x & 15, z & 15);
+    }
+
+    public void setBiome(final int x, final int z, final Biome biome) {
+        chunk(x >> 4, z >> 4).setBiome(x & 15, z & 15, biome);
+    }
+
+    public double getTemperature(final int x, final int z) {
+        throw new UnsupportedOperationException();
+    }
+
+    public double getHumidity(final int x, final int z) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Chunk getChunkAt(final int x, final int z) {
+        return chunk(x, z);
+    }
+
+    public Chunk getChunkAt(final Location location) {
+        return chunk(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    public Chunk getChunkAt(final Block block) {
+        return chunk(block.getX() >> 4, block.getZ() >> 4);
+    }
+
+    public boolean isChunkLoaded(final Chunk chunk) {
+        return isChunkLoaded(chunk.getX(), chunk.getZ());
+    }
+
+    public boolean isChunkLoaded(final int x, final int z) {
+        final HeadlessChunk chunk = chunks.get(key(x, z));
+        return chunk != null && chunk.loaded;
+    }
+
+    public boolean isChunkInUse(final int x, final int z) {
+        return false;
+    }
+
+    public Chunk[] getLoadedChunks() {
+        final List<Chunk> loaded = new ArrayList<Chunk>(chunks.size());
+        for (HeadlessChunk chunk : chunks.values()) {
+            if (chunk.loaded)
+                loaded.add(chunk);
+        }
+        return loaded.toArray(new Chunk[loaded.size()]);
+    }
+
+    public void loadChunk(final Chunk chunk) {
+        chunk(chunk.getX(), chunk.getZ());
+    }
+
+    public void loadChunk(final int x, final int z) {
+        chunk(x, z);
+    }
+
+    public boolean loadChunk(final int x, final int z, final boolean generate) {
+        if (!generate && !chunks.containsKey(key(x, z)))
+            return false;
+        chunk(x, z);
+        return true;
+    }
+
+    public boolean unloadChunk(final Chunk chunk) {
+        return unloadChunk(chunk.getX(), chunk.getZ());
+    }
+
+    public boolean unloadChunk(final int x, final int z) {
+        final HeadlessChunk chunk = chunks.get(key(x, z));
+        if (chunk != null)
+            chunk.loaded = false;
+        return true;
+    }
+
+    public boolean unloadChunk(final int x, final int z, final boolean save) {
+        return unloadChunk(x, z);
+    }
+
+    public boolean unloadChunk(final int x, final int z, final boolean save, final boolean safe) {
+        return unloadChunk(x, z);
+    }
+
+    public boolean unloadChunkRequest(final int x, final int z) {
+        return unloadChunk(x, z);
+    }
+
+    public boolean unloadChunkRequest(final int x, final int z, final boolean safe) {
+        return unloadChunk(x, z);
+    }
+
+    public boolean regenerateChunk(final int x, final int z) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean refreshChunk(final int x, final int z) {
+        return true;
+    }
+
+    public ChunkSnapshot getEmptyChunkSnapshot(final int x, final int z, final boolean includeBiome, final boolean includeBiomeTempRain) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Item dropItem(final Location location, final ItemStack item) {
+        drops.add(item);
+        return null;
+    }
+
+    public Item dropItemNaturally(final Location location, final ItemStack item) {
+        drops.add(item);
+        return null;
+    }
+
+    public List<Entity> getEntities() {
+        return new ArrayList<Entity>();
+    }
+
+    public List<LivingEntity> getLivingEntities() {
+        return new ArrayList<LivingEntity>();
+    }
+
+    public <T extends Entity> Collection<T> getEntitiesByClass(final Class<T>... classes) {
+        return new ArrayList<T>();
+    }
+
+    public <T extends Entity> Collection<T> getEntitiesByClass(final Class<T> cls) {
+        return new ArrayList<T>();
+    }
+
+    public Collection<Entity> getEntitiesByClasses(final Class<?>... classes) {
+        return new ArrayList<Entity>();
+    }
+
+    public List<Player> getPlayers() {
+        return new ArrayList<Player>();
+    }
+
+    public Arrow spawnArrow(final Location location, final Vector direction, final float speed, final float spread) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Entity spawnEntity(final Location location, final EntityType type) {
+        throw new UnsupportedOperationException();
+    }
+
+    public LivingEntity spawnCreature(final Location location, final EntityType type) {
+        throw new UnsupportedOperationException();
+    }
+
+    public LivingEntity spawnCreature(final Location location, final CreatureType type) {
+        throw new UnsupportedOperationException();
+    }
+
+    public <T extends Entity> T spawn(final Location location, final Class<T> clazz) {
+        throw new UnsupportedOperationException();
+    }
+
+    public FallingBlock spawnFallingBlock(final Location location, final Material material, final byte data) {
+        throw new UnsupportedOperationException();
+    }
+
+    public FallingBlock spawnFallingBlock(final Location location, final int blockId, final byte blockData) {
+        throw new UnsupportedOperationException();
+    }
+
+    public LightningStrike strikeLightning(final Location location) {
+        throw new UnsupportedOperationException();
+    }
+
+    public LightningStrike strikeLightningEffect(final Location location) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void playEffect(final Location location, final Effect effect, final int data) {
+    }
+
+    public void playEffect(final Location location, final Effect effect, final int data, final int radius) {
+    }
+
+    public <T> void playEffect(final Location location, final Effect effect, final T data) {
+    }
+
+    public <T> void playEffect(final Location location, final Effect effect, final T data, final int radius) {
+    }
+
+    public void playSound(final Location location, final Sound sound, final float volume, final float pitch) {
+    }
+
+    public boolean createExplosion(final double x, final double y, final double z, final float power) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean createExplosion(final double x, final double y, final double z, final float power, final boolean setFire) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean createExplosion(final double x, final double y, final double z, final float power, final boolean setFire, final boolean breakBlocks) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean createExplosion(final Location location, final float power) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean createExplosion(final Location location, final float power, final boolean setFire) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean generateTree(final Location location, final TreeType type) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean generateTree(final Location location, final TreeType type, final BlockChangeDelegate delegate) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public UUID getUID() {
+        return uid;
+    }
+
+    public Environment getEnvironment() {
+        return Environment.NORMAL;
+    }
+
+    public int getMaxHeight() {
+        return height;
+    }
+
+    public int getSeaLevel() {
+        return seaLevel;
+    }
+
+    public long getTime() {
+        return 0;
+    }
+
+    public long getFullTime() {
+        return 0;
+    }
+
+    public void setTime(final long time) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setFullTime(final long time) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Location getSpawnLocation() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean setSpawnLocation(final int x, final int y, final int z) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean hasStorm() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setStorm(final boolean hasStorm) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getWeatherDuration() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setWeatherDuration(final int duration) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isThundering() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setThundering(final boolean thundering) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getThunderDuration() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setThunderDuration(final int duration) {
+        throw new UnsupportedOperationException();
+    }
+
+    public long getSeed() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean getPVP() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setPVP(final boolean pvp) {
+        throw new UnsupportedOperationException();
+    }
+
+    public ChunkGenerator getGenerator() {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<BlockPopulator> getPopulators() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void save() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setSpawnFlags(final boolean allowMonsters, final boolean allowAnimals) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean getAllowAnimals() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean getAllowMonsters() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean getKeepSpawnInMemory() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setKeepSpawnInMemory(final boolean keepLoaded) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isAutoSave() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setAutoSave(final boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Difficulty getDifficulty() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setDifficulty(final Difficulty difficulty) {
+        throw new UnsupportedOperationException();
+    }
+
+    public File getWorldFolder() {
+        throw new UnsupportedOperationException();
+    }
+
+    public WorldType getWorldType() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean canGenerateStructures() {
+        throw new UnsupportedOperationException();
+    }
+
+    public long getTicksPerAnimalSpawns() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setTicksPerAnimalSpawns(final int ticksPerAnimalSpawns) {
+        throw new UnsupportedOperationException();
+    }
+
+    public long getTicksPerMonsterSpawns() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setTicksPerMonsterSpawns(final int ticksPerMonsterSpawns) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getMonsterSpawnLimit() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setMonsterSpawnLimit(final int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getAnimalSpawnLimit() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setAnimalSpawnLimit(final int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getWaterAnimalSpawnLimit() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setWaterAnimalSpawnLimit(final int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getAmbientSpawnLimit() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setAmbientSpawnLimit(final int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String[] getGameRules() {
+        throw new UnsupportedOperationException();
+    }
+
+    public String getGameRuleValue(final String rule) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean setGameRuleValue(final String rule, final String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isGameRule(final String rule) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void sendPluginMessage(final Plugin source, final String channel, final byte[] message) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Set<String> getListeningPluginChannels() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setMetadata(final String metadataKey, final MetadataValue newMetadataValue) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<MetadataValue> getMetadata(final String metadataKey) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean hasMetadata(final String metadataKey) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void removeMetadata(final String metadataKey, final Plugin owningPlugin) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        return "HeadlessWorld{name=" + name + "}";
+    }
+}
@@ -5,11 +5,12 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import me.lyneira.MachinaCore.AnchoredBlueprint;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
 import me.lyneira.MachinaCore.EventSimulator;
 import me.lyneira.MachinaCore.Machina;
-import me.lyneira.MachinaCore.MachinaBlueprint;
+import me.lyneira.MachinaCore.MachinaCore;
 
 /**
  * MachinaBlueprint representing a Planter blueprint
@@ -17,7 +18,7 @@ import me.lyneira.MachinaCore.MachinaBlueprint;
  * @author Lyneira
  * 
  */
-class Blueprint implements MachinaBlueprint {
+class Blueprint implements AnchoredBlueprint {
 
     // Base materials
     final static Material anchorMaterial = Material.BRICK;
@@ -31,6 +32,16 @@ class Blueprint implements MachinaBlueprint {
     final static Material planterHeadBlockMaterial = Material.WOOD;
     final static Material planterHeadMaterial = Material.IRON_FENCE;
 
+    @Override
+    public int[] getAnchorTypeIds() {
+        return new int[] { anchorMaterial.getId() };
+    }
+
+    @Override
+    public BlockFace[] getLeverFaces() {
+        return null;
+    }
+
     @Override
     public Machina detect(Player player, BlockLocation anchor, BlockFace leverFace, ItemStack itemInHand) {
         if (!anchor.checkType(anchorMaterial))
@@ -73,11 +84,14 @@ class Blueprint implements MachinaBlueprint {
 
         if (!player.hasPermission("machinaplanter.activate")) {
             player.sendMessage("You do not have permission to activate a planter.");
+            MachinaCore.rejectDetection();
             return null;
         }
         
-        if (EventSimulator.inventoryProtectedStatic(player, chest))
+        if (EventSimulator.inventoryProtectedStatic(player, chest)) {
+            MachinaCore.rejectDetection();
             return null;
+        }
 
         return new Planter(rail, anchor.getRelative(leverFace), base, chest, furnace, movingRailYaw.getOpposite(), player.hasPermission("machinaplanter.harvest"));
     }
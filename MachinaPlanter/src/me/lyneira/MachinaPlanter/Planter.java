@@ -8,6 +8,7 @@ import me.lyneira.MachinaCore.BlockRotation;
 import me.lyneira.MachinaCore.Fuel;
 import me.lyneira.MachinaCore.HeartBeatEvent;
 import me.lyneira.MachinaCore.Machina;
+import me.lyneira.MachinaCore.PhaseTolerant;
 import me.lyneira.MachinaCore.Tool;
 import me.lyneira.MachinaPlanter.crop.CropCarrot;
 import me.lyneira.MachinaPlanter.crop.CropCocoa;
@@ -31,7 +32,7 @@ import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import com.google.common.base.Predicate;
 
-public class Planter implements Machina {
+public class Planter implements Machina, PhaseTolerant {
     private static int delay = 20;
     private final static int harvestCost = 20;
     private final static int plantingCost = 10;
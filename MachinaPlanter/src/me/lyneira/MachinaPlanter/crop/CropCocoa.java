@@ -1,6 +1,7 @@
 package me.lyneira.MachinaPlanter.crop;
 
 import java.util.Collection;
+import me.lyneira.MachinaCore.BlockAccess;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
 import org.bukkit.DyeColor;
@@ -75,7 +76,9 @@ public class CropCocoa implements CropHandler {
             default:
             }
             state.setData(cocoaPlant);
-            return state.update();
+            boolean result = state.update();
+            BlockAccess.invalidate();
+            return result;
         } catch (ClassCastException e) {
             return false;
         }
@@ -116,11 +119,11 @@ public class CropCocoa implements CropHandler {
         BlockRotation rotation = findJungleLog(crop);
         if (rotation == null)
             return;
-        Block block = crop.getBlock();
-        block.setType(getHarvestableMaterial());
-        BlockState state = block.getState();
+        crop.setType(getHarvestableMaterial());
+        BlockState state = crop.getBlock().getState();
         state.setData(new CocoaPlant(CocoaPlant.CocoaPlantSize.SMALL, rotation.getYawFace()));
         state.update();
+        BlockAccess.invalidate();
     }
     
     /**
@@ -6,7 +6,6 @@ import java.util.Random;
 
 import me.lyneira.MachinaCore.BlockLocation;
 import org.bukkit.Material;
-import org.bukkit.block.Block;
 import org.bukkit.inventory.ItemStack;
 
 /**
@@ -29,8 +28,7 @@ public class GenericCrop {
      * @return True if bonemeal was used
      */
     public static boolean useBonemeal(BlockLocation crop) {
-        Block block = crop.getBlock();
-        int data = block.getData();
+        int data = crop.getData();
         if (data == fullyGrown)
             return false;
         /*
@@ -41,7 +39,7 @@ public class GenericCrop {
         if (data > fullyGrown) {
             data = fullyGrown;
         }
-        block.setData((byte) data);
+        crop.setData((byte) data);
         return true;
     }
 
@@ -54,7 +52,7 @@ public class GenericCrop {
      * @return True if the crop is ripe
      */
     public static boolean isCropRipe(BlockLocation crop) {
-        byte data = crop.getBlock().getData();
+        byte data = crop.getData();
         return data == fullyGrown;
     }
 
@@ -6,17 +6,18 @@ import org.bukkit.block.Furnace;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import me.lyneira.MachinaCore.AnchoredBlueprint;
 import me.lyneira.MachinaCore.BlockLocation;
 import me.lyneira.MachinaCore.BlockRotation;
 import me.lyneira.MachinaCore.Machina;
-import me.lyneira.MachinaCore.MachinaBlueprint;
+import me.lyneira.MachinaCore.MachinaCore;
 
 /**
  * MachinaBlueprint representing a Pump blueprint
  * 
  * @author Lyneira
  */
-final class Blueprint implements MachinaBlueprint {
+final class Blueprint implements AnchoredBlueprint {
     final static Blueprint instance = new Blueprint();
 
     final static Material anchorMaterial = Material.GOLD_BLOCK;
@@ -25,6 +26,16 @@ final class Blueprint implements MachinaBlueprint {
         // Singleton
     }
 
+    @Override
+    public int[] getAnchorTypeIds() {
+        return new int[] { anchorMaterial.getId() };
+    }
+
+    @Override
+    public BlockFace[] getLeverFaces() {
+        return null;
+    }
+
     public Machina detect(Player player, final BlockLocation anchor, final BlockFace leverFace, ItemStack itemInHand) {
         if (!anchor.checkType(anchorMaterial))
             return null;
@@ -54,10 +65,12 @@ final class Blueprint implements MachinaBlueprint {
         if (yaw != null && cauldron != null) {
             if (!player.hasPermission("machinapump.activate")) {
                 player.sendMessage("You do not have permission to activate a pump.");
+                MachinaCore.rejectDetection();
                 return null;
             }
             if (!Pump.canActivate(player)) {
                 player.sendMessage("You cannot activate any more pumps.");
+                MachinaCore.rejectDetection();
                 return null;
             }
             Pump pump = new Pump(yaw, player, anchor, leverFace, cauldron, lavaMode);
@@ -1,6 +1,7 @@
 package me.lyneira.MachinaPump;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -22,14 +23,14 @@ import me.lyneira.MachinaCore.BlockVector;
 import me.lyneira.MachinaCore.EventSimulator;
 import me.lyneira.MachinaCore.Fuel;
 import me.lyneira.MachinaCore.HeartBeatEvent;
-import me.lyneira.MachinaCore.Machina;
+import me.lyneira.MachinaCore.FootprintMachina;
 
 /**
  * A machina that drains or fills an area with water.
  * 
  * @author Lyneira
  */
-final class Pump implements Machina {
+final class Pump implements FootprintMachina {
     private static int maxLength = 9;
     private static int maxDepth = 8;
     private static int delay = 10;
@@ -61,6 +62,10 @@ final class Pump implements Machina {
     private final Material filledBucketMaterial;
 
     private final List<BlockLocation> tube = new ArrayList<BlockLocation>(maxLength);
+    /**
+     * True if the tube has grown or shrunk since the last heartbeat.
+     */
+    private boolean tubeChanged = false;
 
     Pump(BlockRotation yaw, Player player, BlockLocation anchor, BlockFace leverFace, BlockFace cauldronFace, boolean lavaMode) {
         this.player = player;
@@ -99,13 +104,26 @@ final class Pump implements Machina {
         return true;
     }
 
+    @Override
+    public void getFootprint(BlockLocation anchor, Collection<BlockLocation> footprint) {
+        footprint.add(anchor);
+        footprint.add(anchor.getRelative(leverFace));
+        footprint.add(anchor.getRelative(backward));
+        footprint.add(anchor.getRelative(cauldronFace));
+        footprint.addAll(tube);
+    }
+
     @Override
     public HeartBeatEvent heartBeat(BlockLocation anchor) {
+        tubeChanged = false;
         stage = stage.run();
         if (stage == null)
             return null;
 
-        return new HeartBeatEvent(delay, anchor);
+        // Tell MachinaCore to collect the footprint again if the tube changed.
+        if (tubeChanged)
+            return new HeartBeatEvent(delay, anchor);
+        return new HeartBeatEvent(delay);
     }
 
     @Override
@@ -252,6 +270,7 @@ final class Pump implements Machina {
                 }
                 target.setTypeIdAndData(tubeMaterial.getId(), data, true);
                 tube.add(target);
+                tubeChanged = true;
                 return this;
             }
             return stop();
@@ -412,7 +431,7 @@ final class Pump implements Machina {
         void apply(BlockLocation target) {
             if ((target.checkTypes(Material.AIR, liquidMaterial, stationaryLiquidMaterial))
                     && EventSimulator.blockPlace(target, stationaryLiquidMaterial.getId(), (byte) 0, target.getRelative(down), player)) {
-                target.getBlock().setTypeIdAndData(stationaryLiquidMaterial.getId(), (byte) 0, true);
+                target.setTypeIdAndData(stationaryLiquidMaterial.getId(), (byte) 0, true);
             }
         }
 
@@ -463,6 +482,7 @@ final class Pump implements Machina {
                 return null;
 
             BlockLocation target = tube.remove(size - 1);
+            tubeChanged = true;
             byte data = target.getBlock().getData();
             if (!EventSimulator.blockBreak(target, player))
                 return null;